@@ -0,0 +1,148 @@
+package com.example.agriconnect.Configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor configuration for background work in the AgriConnect application.
+ * <p>
+ * Long-running pipelines (such as crop image analysis jobs) run on bounded pools defined here
+ * instead of holding servlet threads. When a pool and its queue are full, submissions are
+ * rejected so callers can answer with HTTP 503 rather than queueing without limit.
+ * <p>
+ * With {@code spring.threads.virtual.enabled=true} the pools keep their size and queue limits but
+ * start virtual threads, matching Tomcat and the scheduler, which Spring Boot switches itself.
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${image.analysis.executor.core-size:4}")
+    private int imageAnalysisCoreSize;
+
+    @Value("${image.analysis.executor.max-size:8}")
+    private int imageAnalysisMaxSize;
+
+    @Value("${image.analysis.executor.queue-capacity:100}")
+    private int imageAnalysisQueueCapacity;
+
+    @Value("${image.upload.executor.size:4}")
+    private int imageUploadPoolSize;
+
+    @Value("${image.upload.executor.queue-capacity:20}")
+    private int imageUploadQueueCapacity;
+
+    @Value("${image.analysis.batch.workers:4}")
+    private int imageBatchWorkers;
+
+    @Value("${image.analysis.batch.queue-capacity:500}")
+    private int imageBatchQueueCapacity;
+
+    @Value("${weather.stream.executor.core-size:4}")
+    private int weatherStreamCoreSize;
+
+    @Value("${weather.stream.executor.max-size:16}")
+    private int weatherStreamMaxSize;
+
+    @Value("${weather.stream.executor.queue-capacity:50}")
+    private int weatherStreamQueueCapacity;
+
+    /**
+     * Creates the bounded executor that runs the stages of crop image analysis jobs.
+     *
+     * @return configured {@link ThreadPoolTaskExecutor} instance
+     */
+    @Bean(name = "imageAnalysisExecutor")
+    public ThreadPoolTaskExecutor imageAnalysisExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(imageAnalysisCoreSize);
+        executor.setMaxPoolSize(imageAnalysisMaxSize);
+        executor.setQueueCapacity(imageAnalysisQueueCapacity);
+        executor.setThreadNamePrefix("image-analysis-");
+        useVirtualThreads(executor, "image-analysis-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Creates the small fixed-size pool that Cloudinary uploads of crop images run on. Uploads are kept off
+     * {@code imageAnalysisExecutor}, whose extra threads only start once its queue is full, so a synchronous
+     * analysis never waits behind queued job stages. When this pool is saturated the upload runs on the
+     * calling thread instead.
+     *
+     * @return configured {@link ThreadPoolTaskExecutor} instance
+     */
+    @Bean(name = "imageUploadExecutor")
+    public ThreadPoolTaskExecutor imageUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(imageUploadPoolSize);
+        executor.setMaxPoolSize(imageUploadPoolSize);
+        executor.setQueueCapacity(imageUploadQueueCapacity);
+        executor.setThreadNamePrefix("image-upload-");
+        useVirtualThreads(executor, "image-upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Creates the fixed-size worker pool that batch crop image analyses fan out on. It is separate from
+     * {@code imageUploadExecutor} so batch workers can wait for Cloudinary uploads running there without
+     * starving them. When the queue is full the submitting thread runs the task itself, which throttles
+     * further submissions instead of failing part of a batch.
+     *
+     * @return configured {@link ThreadPoolTaskExecutor} instance
+     */
+    @Bean(name = "imageBatchExecutor")
+    public ThreadPoolTaskExecutor imageBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(imageBatchWorkers);
+        executor.setMaxPoolSize(imageBatchWorkers);
+        executor.setQueueCapacity(imageBatchQueueCapacity);
+        executor.setThreadNamePrefix("image-batch-");
+        useVirtualThreads(executor, "image-batch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Creates the bounded executor that produces {@code /weather/stream} responses. Each task mostly waits
+     * on OpenWeatherMap and the streamed Gemini answer while the servlet thread is already released.
+     *
+     * @return configured {@link ThreadPoolTaskExecutor} instance
+     */
+    @Bean(name = "weatherStreamExecutor")
+    public ThreadPoolTaskExecutor weatherStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(weatherStreamCoreSize);
+        executor.setMaxPoolSize(weatherStreamMaxSize);
+        executor.setQueueCapacity(weatherStreamQueueCapacity);
+        executor.setThreadNamePrefix("weather-stream-");
+        useVirtualThreads(executor, "weather-stream-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Pool threads stay bounded by the executor; only their kind changes
+    private void useVirtualThreads(ThreadPoolTaskExecutor executor, String namePrefix) {
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name(namePrefix, 1).factory());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.agriconnect.Controller;
 
 import com.example.Authentication.Components.UserPrinciple;
 import com.example.agriconnect.Service.CropDiseaseService;
+import com.example.common.DTO.CursorPage;
 import com.example.common.Model.CropDisease;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,11 +12,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -39,7 +42,9 @@ public class CropDiseaseRestController {
     @PreAuthorize("isAuthenticated()")
     @Operation(
             summary = "Get crop disease dashboard",
-            description = "Retrieves a paginated list of crop diseases for the authenticated user, filtered by language, crop type, and cause. Includes metadata like total pages and critical disease count."
+            description = "Retrieves a paginated list of crop diseases for the authenticated user, newest first, filtered by language, crop type, and cause. "
+                    + "Includes metadata like total pages and critical disease count. Without a cause filter, later pages can be fetched with the "
+                    + "returned nextCursor instead of a page number, which avoids counting and skipping earlier rows."
     )
     @SecurityRequirement(name = "Bearer Authentication")
     @ApiResponses(value = {
@@ -70,12 +75,19 @@ public class CropDiseaseRestController {
             @Parameter(description = "Page number for pagination (zero-based)", example = "0")
             @RequestParam(value = "page", defaultValue = "0") @Min(0) int page,
             @Parameter(description = "Number of records per page", example = "10")
-            @RequestParam(value = "size", defaultValue = "10") @Min(1) int size) {
+            @RequestParam(value = "size", defaultValue = "10") @Min(1) @Max(100) int size,
+            @Parameter(description = "Cursor from the previous response's nextCursor; replaces page (ignored with a cause filter)", example = "1520")
+            @RequestParam(value = "before", required = false) Long before) {
 
         // Fetch user ID from authenticated principal
         try {
             Long userId = userPrinciples.getUserId();
-            Pageable pageable = PageRequest.of(page, size);
+            boolean hasCause = cause != null && !cause.isEmpty();
+            if (before != null && !hasCause) {
+                return ResponseEntity.ok(getDiseaseCursorPage(lang, cropType, userId, before, size));
+            }
+
+            Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id"));
             // Retrieve paginated disease data based on filters
             Page<CropDisease> diseasePage = getDiseasePage(lang, cropType, cause, userId, pageable);
             List<CropDisease> allDiseases = diseasePage.getContent();
@@ -96,6 +108,8 @@ public class CropDiseaseRestController {
             response.put("totalPages", diseasePage.getTotalPages());
             response.put("currentPage", page);
             response.put("totalElements", diseasePage.getTotalElements());
+            response.put("nextCursor", !hasCause && diseasePage.hasNext()
+                    ? allDiseases.get(allDiseases.size() - 1).getId() : null);
             response.put("criticalDiseases", criticalDiseases);
             response.put("lang", lang);
             response.put("userId", userId);
@@ -174,6 +188,25 @@ public class CropDiseaseRestController {
         }
     }
 
+    // Helper method to build the dashboard response for a keyset page after the given cursor
+    private Map<String, Object> getDiseaseCursorPage(String lang, String cropType, Long userId, Long before, int size) {
+        boolean isHindi = "hi".equalsIgnoreCase(lang);
+        String type = cropType != null && !cropType.isEmpty() ? cropType : null;
+        CursorPage<CropDisease> diseasePage = cropDiseaseService.findDiseasePage(userId, type, isHindi, before, size);
+        List<String> cropTypes = isHindi
+                ? cropDiseaseService.findDistinctCropTypesHiByUserId(userId)
+                : cropDiseaseService.findDistinctCropTypesByUserId(userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("diseases", diseasePage.items());
+        response.put("cropTypes", cropTypes);
+        response.put("nextCursor", diseasePage.nextCursor());
+        response.put("criticalDiseases", diseasePage.items().stream().filter(this::isCriticalDisease).count());
+        response.put("lang", lang);
+        response.put("userId", userId);
+        return response;
+    }
+
     // Helper method to fetch paginated disease data based on filters
     private Page<CropDisease> getDiseasePage(String lang, String cropType, String cause, Long userId, Pageable pageable) {
         boolean isHindi = "hi".equalsIgnoreCase(lang);
@@ -1,9 +1,14 @@
 package com.example.agriconnect.Controller;
 
 import com.example.Authentication.Components.UserPrinciple;
+import com.example.agriconnect.Service.CloudinaryCleanupService;
 import com.example.agriconnect.Service.CropImageAnalysisService;
+import com.example.agriconnect.Service.ImageAnalysisJob;
+import com.example.agriconnect.Service.ImageAnalysisJobService;
+import com.example.agriconnect.Service.ImageBatchAnalysisService;
+import com.example.agriconnect.Service.PreparedImage;
 import com.example.common.Exception.AnyException;
-import com.example.common.util.GeminiValidationService;
+import com.example.common.Model.CloudinaryCleanupRun;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,16 +19,23 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @RestController
@@ -34,13 +46,25 @@ public class CropImageAnalysis {
     private CropImageAnalysisService cropImageAnalysisService;
 
     @Autowired
-    private GeminiValidationService geminiValidationService;
+    private ImageAnalysisJobService imageAnalysisJobService;
+
+    @Autowired
+    private ImageBatchAnalysisService imageBatchAnalysisService;
+
+    @Autowired
+    private CloudinaryCleanupService cloudinaryCleanupService;
+
+    @Value("${image.analysis.batch.timeout-seconds:600}")
+    private long batchTimeoutSeconds;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @PostMapping("/analyzeImage")
     @PreAuthorize("isAuthenticated()")
     @Operation(
             summary = "Analyze a crop image",
-            description = "Uploads and analyzes a crop image to detect diseases or issues, returning analysis results for the authenticated user."
+            description = "Uploads and analyzes a crop image to detect diseases or issues, returning analysis results for the authenticated user. "
+                    + "With async=true the image is queued as a background job and a job ID is returned immediately; poll /analysisStatus/{jobId} for progress."
     )
     @SecurityRequirement(name = "Bearer Authentication")
     @ApiResponses(value = {
@@ -49,6 +73,11 @@ public class CropImageAnalysis {
                     description = "Image analyzed successfully",
                     content = @Content(schema = @Schema(implementation = Map.class))
             ),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Image queued for background analysis (async=true)",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Invalid or empty image file, or analysis failed",
@@ -63,26 +92,40 @@ public class CropImageAnalysis {
                     responseCode = "500",
                     description = "Server error during image processing or analysis",
                     content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Background analysis queue is full (async=true)",
+                    content = @Content(schema = @Schema(implementation = Map.class))
             )
     })
     public ResponseEntity<?> analyzeImage(
             @Parameter(description = "Image file to analyze (e.g., JPEG, PNG)", required = true)
             @RequestParam("file") MultipartFile file,
+            @Parameter(description = "Run the analysis as a background job and return a job ID immediately", example = "false")
+            @RequestParam(value = "async", defaultValue = "false") boolean async,
             @AuthenticationPrincipal UserPrinciple userPrinciples) {
         // Check if file is empty
         if (file == null || file.isEmpty()) {
             return ResponseEntity.badRequest().body(createErrorResponse("File upload is empty. Please provide an image."));
         }
 
+        if (async) {
+            return submitAnalysisJob(file, userPrinciples.getUserId());
+        }
+
         try {
-            // Validate crop image using GeminiValidationService
-            boolean isValid = geminiValidationService.isValidCropImage(file);
+            // Read and downscale the upload once; every stage below shares the prepared image
+            PreparedImage image = cropImageAnalysisService.prepareImage(file);
+
+            // Validate crop image using GeminiValidationService, unless it is folded into the enhancement call
+            boolean isValid = cropImageAnalysisService.passesPreAnalysisValidation(image);
             if (!isValid) {
                 return ResponseEntity.badRequest().body(createErrorResponse("Invalid crop image. Please upload a valid crop image."));
             }
 
             // Analyze image using service (returns Map<String, Object>)
-            Map<String, Object> result = cropImageAnalysisService.analyzeImage(file, userPrinciples.getUserId());
+            Map<String, Object> result = cropImageAnalysisService.analyzeImage(image, userPrinciples.getUserId());
 
             // Check for errors in the service response
             if (Boolean.FALSE.equals(result.get("success"))) {
@@ -107,18 +150,87 @@ public class CropImageAnalysis {
         }
     }
 
+    @PostMapping(value = "/analyzeImages", produces = "application/x-ndjson")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(
+            summary = "Analyze a batch of crop images",
+            description = "Uploads many crop images (as repeated files parts or inside zip archives) and analyzes them concurrently. "
+                    + "The response is newline-delimited JSON: one line with type=result per image, written as soon as that image is analyzed "
+                    + "(in completion order, identified by index and originalFilename), followed by one line with type=summary once all "
+                    + "analysis records have been saved. Results with provisional=true are only saved if the summary reports success."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Batch accepted; per-image results and the summary are streamed",
+                    content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "No images in the upload, or more images than a batch allows",
+                    content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized access - authentication required",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Server error while reading the upload",
+                    content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = Map.class))
+            )
+    })
+    public ResponseEntity<ResponseBodyEmitter> analyzeImages(
+            @Parameter(description = "Image files or zip archives of images to analyze", required = true)
+            @RequestParam("files") List<MultipartFile> files,
+            @AuthenticationPrincipal UserPrinciple userPrinciples) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutSeconds * 1000);
+        Lock emitterLock = new ReentrantLock();
+
+        List<ImageBatchAnalysisService.BatchUpload> uploads;
+        try {
+            uploads = imageBatchAnalysisService.readUploads(files);
+        } catch (AnyException e) {
+            log.warn("Rejected batch image analysis: {}", e.getMessage());
+            sendLine(emitter, emitterLock, createErrorResponse(e.getMessage()));
+            emitter.complete();
+            return ResponseEntity.status(e.getStatusCode()).contentType(NDJSON).body(emitter);
+        } catch (IOException e) {
+            log.error("IO Exception while reading batch image upload", e);
+            sendLine(emitter, emitterLock, createErrorResponse("File processing error. Please check the files and try again."));
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(NDJSON).body(emitter);
+        }
+
+        imageBatchAnalysisService.analyze(uploads, userPrinciples.getUserId(), result -> sendLine(emitter, emitterLock, result))
+                .whenComplete((summary, ex) -> {
+                    if (ex != null) {
+                        log.error("Batch image analysis failed", ex);
+                        sendLine(emitter, emitterLock, createErrorResponse("Unexpected error occurred during batch image analysis."));
+                    } else {
+                        sendLine(emitter, emitterLock, summary);
+                    }
+                    emitter.complete();
+                });
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
     @GetMapping("/analysisStatus/{filename}")
     @PreAuthorize("isAuthenticated()")
     @Operation(
             summary = "Get analysis status",
-            description = "Retrieves the status of a previous image analysis by filename for the authenticated user."
+            description = "Retrieves the status of an image analysis by filename or job ID for the authenticated user. "
+                    + "For background jobs the response reports the current stage (queued, validating, cache_lookup, uploading, classifying, enhancing, saving, saved or failed) "
+                    + "with per-stage timings, and the analysis result once saved."
     )
     @SecurityRequirement(name = "Bearer Authentication")
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
                     description = "Analysis status retrieved successfully",
-                    content = @Content(schema = @Schema(type = "string"))
+                    content = @Content(schema = @Schema(implementation = Map.class))
             ),
             @ApiResponse(
                     responseCode = "401",
@@ -131,11 +243,19 @@ public class CropImageAnalysis {
                     content = @Content(schema = @Schema(type = "string"))
             )
     })
-    public ResponseEntity<String> getAnalysisStatus(
-            @Parameter(description = "Filename of the analyzed image", required = true, example = "crop_image.jpg")
-            @PathVariable String filename) {
+    public ResponseEntity<?> getAnalysisStatus(
+            @Parameter(description = "Filename of the analyzed image or job ID", required = true, example = "crop_image.jpg")
+            @PathVariable String filename,
+            @AuthenticationPrincipal UserPrinciple userPrinciples) {
         try {
-            // Retrieve analysis status for the given filename
+            // Report stage progress for background jobs
+            Long userId = userPrinciples != null ? userPrinciples.getUserId() : null;
+            Optional<ImageAnalysisJob> job = imageAnalysisJobService.findJob(filename, userId);
+            if (job.isPresent()) {
+                return ResponseEntity.ok(job.get().toStatusMap());
+            }
+
+            // Fall back to checking whether the image exists in Cloudinary
             String status = cropImageAnalysisService.getAnalysisStatus(filename);
             return ResponseEntity.ok(status);
         } catch (Exception e) {
@@ -149,13 +269,20 @@ public class CropImageAnalysis {
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(
             summary = "Clean up old analysis files",
-            description = "Deletes image analysis files older than the specified number of days. Restricted to admin users."
+            description = "Queues a background cleanup of image analysis files older than the specified number of days and returns its run ID. "
+                    + "The cleanup pages through every stored image and resumes after a restart; poll /cleanupRuns/{runId} for progress. "
+                    + "Restricted to admin users."
     )
     @SecurityRequirement(name = "Bearer Authentication")
     @ApiResponses(value = {
             @ApiResponse(
-                    responseCode = "200",
-                    description = "Old files cleaned up successfully",
+                    responseCode = "202",
+                    description = "Cleanup queued, or an identical cleanup is already in progress",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid number of days",
                     content = @Content(schema = @Schema(implementation = Map.class))
             ),
             @ApiResponse(
@@ -170,7 +297,7 @@ public class CropImageAnalysis {
             ),
             @ApiResponse(
                     responseCode = "500",
-                    description = "Server error during file cleanup",
+                    description = "Server error while queueing the cleanup",
                     content = @Content(schema = @Schema(implementation = Map.class))
             )
     })
@@ -178,13 +305,83 @@ public class CropImageAnalysis {
             @Parameter(description = "Number of days to determine age of files to delete", required = true, example = "30")
             @PathVariable int days) {
         try {
-            // Execute cleanup of old files
-            cropImageAnalysisService.cleanupOldFiles(days);
-            return ResponseEntity.ok(createSuccessResponse());
+            CloudinaryCleanupRun run = cloudinaryCleanupService.enqueue(days);
+            Map<String, Object> response = cloudinaryCleanupService.toStatusMap(run);
+            response.put("success", true);
+            response.put("message", "Old files cleanup queued.");
+            response.put("statusUrl", "/cleanupRuns/" + run.getId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (AnyException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
-            log.error("Error during cleanup of old files: {}", e.getMessage(), e);
+            log.error("Error queueing cleanup of old files: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Failed to queue cleanup of old files."));
+        }
+    }
+
+    @GetMapping("/cleanupRuns/{runId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+            summary = "Get cleanup progress",
+            description = "Reports the status (queued, running, completed or failed) and the scanned, deleted and failed counts of a cleanup run. "
+                    + "Restricted to admin users."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Cleanup progress retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "Forbidden - admin role required",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Unknown cleanup run",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            )
+    })
+    public ResponseEntity<?> getCleanupRun(
+            @Parameter(description = "Cleanup run ID returned when the cleanup was queued", required = true, example = "1")
+            @PathVariable Long runId) {
+        return cloudinaryCleanupService.findRun(runId)
+                .<ResponseEntity<?>>map(run -> ResponseEntity.ok(cloudinaryCleanupService.toStatusMap(run)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse("Cleanup run not found.")));
+    }
+
+    // Queues the image as a background job and answers with 202 and the job ID
+    private ResponseEntity<?> submitAnalysisJob(MultipartFile file, Long userId) {
+        try {
+            ImageAnalysisJob job = imageAnalysisJobService.submit(file, userId);
+            Map<String, Object> response = job.toStatusMap();
+            response.put("success", true);
+            response.put("statusUrl", "/analysisStatus/" + job.getJobId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (AnyException e) {
+            log.warn("Could not queue image analysis job: {}", e.getMessage());
+            return ResponseEntity.status(e.getStatusCode()).body(createErrorResponse(e.getMessage()));
+        } catch (IOException e) {
+            log.error("IO Exception while queueing image analysis", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("Failed to clean up old files."));
+                    .body(createErrorResponse("File processing error. Please check the file and try again."));
+        }
+    }
+
+    // Writes one NDJSON line; the analysis keeps running if the client has disconnected
+    // A lock rather than synchronized, so a virtual thread blocked on the socket does not pin its carrier
+    private void sendLine(ResponseBodyEmitter emitter, Lock emitterLock, Map<String, Object> line) {
+        emitterLock.lock();
+        try {
+            emitter.send(line, MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not stream batch analysis line: {}", e.getMessage());
+        } finally {
+            emitterLock.unlock();
         }
     }
 
@@ -195,12 +392,4 @@ public class CropImageAnalysis {
         errorResponse.put("error", message);
         return errorResponse;
     }
-
-    // Helper method to create standardized success response
-    private Map<String, Object> createSuccessResponse() {
-        Map<String, Object> successResponse = new HashMap<>();
-        successResponse.put("success", true);
-        successResponse.put("message", "Old files cleanup executed.");
-        return successResponse;
-    }
-}
\ No newline at end of file
+}
@@ -16,6 +16,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,6 +24,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.*;
 
 @Slf4j
@@ -62,7 +64,8 @@ public class CropPriceController {
     @PreAuthorize("isAuthenticated()")
     @Operation(
             summary = "Get crop price dashboard",
-            description = "Retrieves market details for crop prices for the authenticated user, optionally filtered by state."
+            description = "Retrieves one page of market details for crop prices for the authenticated user, newest first, optionally filtered by state. "
+                    + "Pass the returned nextCursor as 'before' to fetch the next page."
     )
     @SecurityRequirement(name = "Bearer Authentication")
     @ApiResponses(value = {
@@ -80,7 +83,11 @@ public class CropPriceController {
     public ResponseEntity<?> getAllMarketDetails(
             @AuthenticationPrincipal UserPrinciple userPrinciples,
             @Parameter(description = "State to filter market data (optional)", example = "Maharashtra")
-            @RequestParam(required = false) String state) {
+            @RequestParam(required = false) String state,
+            @Parameter(description = "Cursor from the previous page's nextCursor (omit for the first page)", example = "1520")
+            @RequestParam(required = false) Long before,
+            @Parameter(description = "Number of entries per page", example = "20")
+            @RequestParam(defaultValue = "20") int size) {
         // Check if user is authenticated
         if (userPrinciples == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -88,7 +95,95 @@ public class CropPriceController {
         }
 
         // Fetch market dashboard data via facade
-        return cropPriceFacade.getDashboard(userPrinciples, state);
+        return cropPriceFacade.getDashboard(userPrinciples, state, before, size);
+    }
+
+    @GetMapping("/dashboard/analytics")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(
+            summary = "Get crop price analytics",
+            description = "Returns min/max/avg best price per crop and market, and a daily or weekly best-price series per crop and market "
+                    + "(with the change against the previous bucket), aggregated from the authenticated user's predictions."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved price analytics",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Unknown bucket or inverted date range",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized access - authentication required",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<?> getPriceAnalytics(
+            @AuthenticationPrincipal UserPrinciple userPrinciples,
+            @Parameter(description = "State to filter by (optional)", example = "Maharashtra")
+            @RequestParam(required = false) String state,
+            @Parameter(description = "Crop to filter by (optional)", example = "Wheat")
+            @RequestParam(value = "crop", required = false) String cropName,
+            @Parameter(description = "Market to filter by (optional)", example = "Pune")
+            @RequestParam(required = false) String market,
+            @Parameter(description = "Series bucket: daily or weekly", example = "weekly")
+            @RequestParam(defaultValue = "daily") String bucket,
+            @Parameter(description = "First arrival date, inclusive (optional; defaults to 90 days before 'to')", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last arrival date, inclusive (optional; defaults to today)", example = "2025-03-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        // Check if user is authenticated
+        if (userPrinciples == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Unauthorized"));
+        }
+        // Fetch aggregated analytics via facade
+        return cropPriceFacade.getAnalytics(userPrinciples, state, cropName, market, bucket, from, to);
+    }
+
+    @GetMapping("/market/trend")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(
+            summary = "Get crop price trend",
+            description = "Returns the daily best-price trend of a crop across all users' predictions, optionally narrowed to a state, "
+                    + "district or market, read from the daily price rollups."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved the price trend",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Missing crop or invalid number of days",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized access - authentication required",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<?> getPriceTrend(
+            @Parameter(description = "Crop name", required = true, example = "Onion")
+            @RequestParam("crop") String cropName,
+            @Parameter(description = "State to narrow to (optional)", example = "Maharashtra")
+            @RequestParam(required = false) String state,
+            @Parameter(description = "District to narrow to (optional)", example = "Nashik")
+            @RequestParam(required = false) String district,
+            @Parameter(description = "Market to narrow to (optional)", example = "Lasalgaon")
+            @RequestParam(required = false) String market,
+            @Parameter(description = "Number of days up to and including today", example = "30")
+            @RequestParam(defaultValue = "30") int days) {
+        // Fetch the cross-user trend via facade
+        return cropPriceFacade.getTrend(cropName, state, district, market, days);
     }
 
     @GetMapping("/predict")
@@ -155,4 +250,42 @@ public class CropPriceController {
         // Predict crop price via facade
         return cropPriceFacade.predictCrop(userPrinciples, crop);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/predict/batch")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(
+            summary = "Predict prices for several crops",
+            description = "Submits a list of crop details (state, district, market, crop and arrival date) and predicts all of them at once "
+                    + "for the authenticated user. Results come back in input order, one per crop, with either the prediction or an error."
+    )
+    @SecurityRequirement(name = "Bearer Authentication")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Batch processed; see each result's success flag",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Empty or oversized batch",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
+            @ApiResponse(
+                    responseCode = "401",
+                    description = "Unauthorized access - authentication required",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<?> predictBatch(
+            @AuthenticationPrincipal UserPrinciple userPrinciples,
+            @Parameter(description = "Crop details for price prediction", required = true)
+            @RequestBody List<Crop> crops) {
+        // Check if user is authenticated
+        if (userPrinciples == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Unauthorized"));
+        }
+        // Predict crop prices via facade
+        return cropPriceFacade.predictCrops(userPrinciples, crops);
+    }
+}
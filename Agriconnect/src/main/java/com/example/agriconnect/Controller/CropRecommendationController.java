@@ -2,6 +2,7 @@ package com.example.agriconnect.Controller;
 
 import com.example.Authentication.Components.UserPrinciple;
 import com.example.Authentication.repository.UserRepo;
+import com.example.common.DTO.CursorPage;
 import com.example.common.Model.CropRecommendation;
 import com.example.common.Model.UserDetails1;
 import com.example.agriconnect.Service.CropRecommendationService;
@@ -16,13 +17,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,6 +37,9 @@ public class CropRecommendationController {
     private final UserRepo userRepo;
     private final PexelsImageService pexelsImageService;
 
+    @Value("${history.page.max-size:100}")
+    private int maxPageSize;
+
     public CropRecommendationController(CropRecommendationService cropRecommendationService,
                                         UserRepo userRepo,
                                         PexelsImageService pexelsImageService) {
@@ -128,7 +133,8 @@ public class CropRecommendationController {
     @PreAuthorize("isAuthenticated()")
     @Operation(
             summary = "Get saved crop recommendations",
-            description = "Retrieves saved crop recommendations for the authenticated user, optionally filtered by crop name, along with unique crops."
+            description = "Retrieves one page of saved crop recommendations for the authenticated user, newest first, optionally filtered by crop name, "
+                    + "along with unique crops. Pass the returned nextCursor as 'before' to fetch the next page."
     )
     @SecurityRequirement(name = "Bearer Authentication")
     @ApiResponses(value = {
@@ -137,6 +143,11 @@ public class CropRecommendationController {
                     description = "Successfully retrieved saved recommendations",
                     content = @Content(schema = @Schema(implementation = Map.class))
             ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid page size",
+                    content = @Content(schema = @Schema(implementation = Map.class))
+            ),
             @ApiResponse(
                     responseCode = "401",
                     description = "Unauthorized access - authentication required",
@@ -156,6 +167,10 @@ public class CropRecommendationController {
     public ResponseEntity<?> getSavedRecommendation(
             @Parameter(description = "Crop name to filter recommendations (optional)", example = "Wheat")
             @RequestParam(required = false) String crop,
+            @Parameter(description = "Cursor from the previous page's nextCursor (omit for the first page)", example = "842")
+            @RequestParam(required = false) Long before,
+            @Parameter(description = "Number of recommendations per page", example = "20")
+            @RequestParam(defaultValue = "20") int size,
             @AuthenticationPrincipal UserPrinciple userPrinciples) {
 
         // Check if user is authenticated
@@ -164,32 +179,31 @@ public class CropRecommendationController {
                     .body(Map.of("error", "Unauthorized"));
         }
 
+        if (size < 1 || size > maxPageSize) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Size must be between 1 and " + maxPageSize);
+        }
+
         Long userId = userPrinciples.getUserId();
         try {
-            // Fetch all saved recommendations for the user
-            List<CropRecommendation> recommendationList =
-                    cropRecommendationService.GetSavedRecommendCropByUserId(userId);
+            // Fetch one page of saved recommendations, filtered by crop if provided
+            CursorPage<CropRecommendation> page = cropRecommendationService.getSavedRecommendationsPage(
+                    userId, (crop != null && !crop.isEmpty()) ? crop : null, before, size);
 
             // Fetch unique crop names for the user
             Set<String> uniqueCrops = cropRecommendationService.getUniqueCrops(userId);
 
-            // Filter recommendations by crop if provided
-            List<CropRecommendation> displayedRecommendations =
-                    (crop != null && !crop.isEmpty())
-                            ? cropRecommendationService.getRecommendations(crop, userId)
-                            : recommendationList;
-
             // Check if recommendations exist
-            if (displayedRecommendations.isEmpty()) {
+            if (page.items().isEmpty() && before == null) {
                 throw new AnyException(HttpStatus.NOT_FOUND.value(),
                         "No crop recommendations found for this user");
             }
 
-            // Return response with recommendations and unique crops
-            return ResponseEntity.ok(Map.of(
-                    "recommendations", displayedRecommendations,
-                    "uniqueCrops", uniqueCrops
-            ));
+            // Return response with recommendations, unique crops and the next page's cursor (null on the last page)
+            Map<String, Object> response = new HashMap<>();
+            response.put("recommendations", page.items());
+            response.put("uniqueCrops", uniqueCrops);
+            response.put("nextCursor", page.nextCursor());
+            return ResponseEntity.ok(response);
 
         } catch (AnyException e) {
             throw e;
@@ -1,5 +1,7 @@
 package com.example.agriconnect.Controller;
 
+import com.example.common.DTO.WeatherForecastDto;
+import com.example.common.Service.WeatherService;
 import com.example.common.util.WeatherHelper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,11 +12,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @RestController
@@ -22,16 +35,23 @@ import java.util.Map;
 public class WeatherController {
 
     private final WeatherHelper weatherHelper;
+    private final TaskExecutor weatherStreamExecutor;
+
+    @Value("${weather.stream.timeout-seconds:60}")
+    private long streamTimeoutSeconds;
 
     @Autowired
-    public WeatherController(WeatherHelper weatherHelper) {
+    public WeatherController(WeatherHelper weatherHelper,
+                             @Qualifier("weatherStreamExecutor") TaskExecutor weatherStreamExecutor) {
         this.weatherHelper = weatherHelper;
+        this.weatherStreamExecutor = weatherStreamExecutor;
     }
 
     @GetMapping("/weather")
     @Operation(
             summary = "Get weather data",
-            description = "Retrieves weather data for the specified latitude and longitude coordinates, with support for language-specific responses."
+            description = "Retrieves weather data for the specified latitude and longitude coordinates, with support for language-specific responses. " +
+                    "With daily=true the response also contains per-day summaries of the 5-day forecast."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -56,11 +76,13 @@ public class WeatherController {
             @Parameter(description = "Longitude coordinate for weather data (optional)", example = "72.8777")
             @RequestParam(value = "lon", required = false) Double longitude,
             @Parameter(description = "Language for the response (e.g., 'en' for English, 'hi' for Hindi)", example = "en")
-            @RequestParam(value = "lang", defaultValue = "en") String lang) {
-        log.info("Weather API call: lat={}, lon={}, lang={}", latitude, longitude, lang);
+            @RequestParam(value = "lang", defaultValue = "en") String lang,
+            @Parameter(description = "Include per-day min/max/mean temperature, rain probability and dominant condition for the next 5 days", example = "false")
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily) {
+        log.info("Weather API call: lat={}, lon={}, lang={}, daily={}", latitude, longitude, lang, daily);
         try {
             // Fetch weather data using WeatherHelper
-            return weatherHelper.createWeatherApiResponse(latitude, longitude, lang);
+            return weatherHelper.createWeatherApiResponse(latitude, longitude, lang, daily);
         } catch (Exception e) {
             log.error("Weather API call failed: {}", e.getMessage(), e);
             // Return error response if weather data retrieval fails
@@ -69,6 +91,92 @@ public class WeatherController {
         }
     }
 
+    @GetMapping(value = "/weather/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Stream weather data and crop advice",
+            description = "Same data as /weather, sent as server-sent events: a 'weather' event with the current conditions, " +
+                    "one 'advice' event per crop as soon as its advice is available, and a final 'done' event with the " +
+                    "success status and location. When live data is unavailable the fallback data follows as 'weather' and " +
+                    "'advice' events if nothing was sent yet."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Event stream started",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Too many weather streams in progress",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+            )
+    })
+    public ResponseEntity<SseEmitter> streamWeatherData(
+            @Parameter(description = "Latitude coordinate for weather data (optional)", example = "19.0760")
+            @RequestParam(value = "lat", required = false) Double latitude,
+            @Parameter(description = "Longitude coordinate for weather data (optional)", example = "72.8777")
+            @RequestParam(value = "lon", required = false) Double longitude,
+            @Parameter(description = "Language for the response (e.g., 'en' for English, 'hi' for Hindi)", example = "en")
+            @RequestParam(value = "lang", defaultValue = "en") String lang,
+            @Parameter(description = "Include per-day forecast summaries in the 'weather' event", example = "false")
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily) {
+        log.info("Weather stream call: lat={}, lon={}, lang={}, daily={}", latitude, longitude, lang, daily);
+        SseEmitter emitter = new SseEmitter(streamTimeoutSeconds * 1000);
+        Lock emitterLock = new ReentrantLock();
+        AtomicBoolean conditionsSent = new AtomicBoolean();
+
+        WeatherService.ForecastListener listener = new WeatherService.ForecastListener() {
+            @Override
+            public void onConditions(WeatherForecastDto conditions) {
+                conditionsSent.set(true);
+                sendEvent(emitter, emitterLock, "weather", daily ? conditions : conditions.withoutDaily());
+            }
+
+            @Override
+            public void onCropAdvice(Map<String, String> advice) {
+                sendEvent(emitter, emitterLock, "advice", advice);
+            }
+        };
+
+        try {
+            weatherStreamExecutor.execute(() -> {
+                WeatherHelper.WeatherResult result = weatherHelper.streamWeatherData(latitude, longitude, lang, listener);
+                if (!result.isSuccess() && !conditionsSent.get()) {
+                    listener.onConditions(result.getWeatherData().withoutAdvice());
+                    result.getWeatherData().cropAdvice().forEach(listener::onCropAdvice);
+                }
+
+                Map<String, Object> done = new HashMap<>();
+                done.put("success", result.isSuccess());
+                done.put("location", result.getLocation());
+                if (!result.isSuccess()) {
+                    done.put("error", result.getErrorMessage());
+                }
+                sendEvent(emitter, emitterLock, "done", done);
+                emitter.complete();
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Weather stream executor saturated, rejecting stream request");
+            sendEvent(emitter, emitterLock, "error", Map.of("success", false, "error", "Too many weather requests. Please try again shortly."));
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(emitter);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Sends one named event; the forecast is still completed and cached if the client has disconnected
+    // A lock rather than synchronized, so a virtual thread blocked on the socket does not pin its carrier
+    private void sendEvent(SseEmitter emitter, Lock emitterLock, String name, Object data) {
+        emitterLock.lock();
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not send weather stream event {}: {}", name, e.getMessage());
+        } finally {
+            emitterLock.unlock();
+        }
+    }
+
     @GetMapping("/weather/advice")
     @Operation(
             summary = "Get crop-specific weather advice",
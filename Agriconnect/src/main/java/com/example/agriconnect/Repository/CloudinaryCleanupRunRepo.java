@@ -0,0 +1,18 @@
+package com.example.agriconnect.Repository;
+
+import com.example.common.Model.CloudinaryCleanupRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface CloudinaryCleanupRunRepo extends JpaRepository<CloudinaryCleanupRun, Long> {
+
+    // Oldest unfinished run first, so runs are processed in the order they were queued
+    Optional<CloudinaryCleanupRun> findFirstByStatusInOrderByIdAsc(Collection<CloudinaryCleanupRun.Status> statuses);
+
+    Optional<CloudinaryCleanupRun> findFirstByPrefixAndDaysOldAndStatusIn(String prefix, int daysOld,
+                                                                          Collection<CloudinaryCleanupRun.Status> statuses);
+}
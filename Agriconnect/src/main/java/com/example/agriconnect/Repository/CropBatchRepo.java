@@ -0,0 +1,58 @@
+package com.example.agriconnect.Repository;
+
+import com.example.common.Model.Crop;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Inserts many {@link Crop} price predictions with one JDBC batch.
+ * <p>
+ * {@code Crop} uses identity IDs, which stops Hibernate from batching inserts, so batch predictions
+ * write through {@link JdbcTemplate} instead of {@code saveAll}. Generated IDs are not read back.
+ */
+@Repository
+public class CropBatchRepo {
+
+    private static final String INSERT_SQL = "INSERT INTO Crop "
+            + "(state, district, market, crop_name, arrival_date, min_price, max_price, suggested_price, "
+            + "suggested_price_second, suggested_price_third, best_price, UserId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CropBatchRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts all predicted crops for one user in a single batch.
+     *
+     * @param crops  the rows to insert
+     * @param userId the ID of the user owning every row
+     * @return the number of rows inserted
+     */
+    @Transactional
+    public int insertAll(List<Crop> crops, Long userId) {
+        if (crops.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, crops, crops.size(), (ps, crop) -> {
+            ps.setString(1, crop.getState());
+            ps.setString(2, crop.getDistrict());
+            ps.setString(3, crop.getMarket());
+            ps.setString(4, crop.getCropName());
+            ps.setDate(5, crop.getArrivalDate() != null ? Date.valueOf(crop.getArrivalDate()) : null);
+            ps.setObject(6, crop.getMinPrice());
+            ps.setObject(7, crop.getMaxPrice());
+            ps.setObject(8, crop.getSuggestedPrice());
+            ps.setObject(9, crop.getSuggestedPriceSecond());
+            ps.setObject(10, crop.getSuggestedPriceThird());
+            ps.setObject(11, crop.getBestPrice());
+            ps.setLong(12, userId);
+        });
+        return crops.size();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.agriconnect.Repository;
+
+import com.example.common.Model.CropDisease;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Inserts many {@link CropDisease} rows with one JDBC batch.
+ * <p>
+ * {@code CropDisease} uses identity IDs, which stops Hibernate from batching inserts, so batch analyses
+ * write through {@link JdbcTemplate} instead of {@code saveAll}. Generated IDs are not read back.
+ */
+@Repository
+public class CropDiseaseBatchRepo {
+
+    private static final String INSERT_SQL = "INSERT INTO crop_diseases "
+            + "(name_en, name_hi, cause_en, cause_hi, symptoms_en, symptoms_hi, suggestion_en, suggestion_hi, "
+            + "crop_type_en, crop_type_hi, image_path, UserId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CropDiseaseBatchRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts all diseases for one user in a single batch.
+     *
+     * @param diseases the rows to insert
+     * @param userId   the ID of the user owning every row
+     * @return the number of rows inserted
+     */
+    @Transactional
+    public int insertAll(List<CropDisease> diseases, Long userId) {
+        if (diseases.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, diseases, diseases.size(), (ps, disease) -> {
+            ps.setString(1, disease.getNameEn());
+            ps.setString(2, disease.getNameHi());
+            ps.setString(3, disease.getCauseEn());
+            ps.setString(4, disease.getCauseHi());
+            ps.setString(5, disease.getSymptomsEn());
+            ps.setString(6, disease.getSymptomsHi());
+            ps.setString(7, disease.getSuggestionEn());
+            ps.setString(8, disease.getSuggestionHi());
+            ps.setString(9, disease.getCropTypeEn());
+            ps.setString(10, disease.getCropTypeHi());
+            ps.setString(11, disease.getImagePath());
+            ps.setLong(12, userId);
+        });
+        return diseases.size();
+    }
+}
@@ -29,6 +29,15 @@ public interface CropDiseaseRepo  extends JpaRepository<CropDisease, Long> {
     @Query("SELECT cd FROM CropDisease cd WHERE cd.cropTypeHi = :cropTypeHi AND LOWER(cd.causeHi) LIKE LOWER(CONCAT('%', :causeHi, '%')) AND cd.userDetails1.userId = :userId")
     Page<CropDisease> findByCropTypeHiAndCauseHiContainingIgnoreCaseAndUserDetails1UserId(@Param("cropTypeHi") String cropTypeHi, @Param("causeHi") String causeHi, @Param("userId") Long userId, Pageable pageable);
 
+    @Query("SELECT cd FROM CropDisease cd WHERE cd.userDetails1.userId = :userId AND cd.id < :before ORDER BY cd.id DESC")
+    List<CropDisease> findPageByUserId(@Param("userId") Long userId, @Param("before") Long before, Pageable pageable);
+
+    @Query("SELECT cd FROM CropDisease cd WHERE cd.cropTypeEn = :cropTypeEn AND cd.userDetails1.userId = :userId AND cd.id < :before ORDER BY cd.id DESC")
+    List<CropDisease> findPageByCropTypeEnAndUserId(@Param("cropTypeEn") String cropTypeEn, @Param("userId") Long userId, @Param("before") Long before, Pageable pageable);
+
+    @Query("SELECT cd FROM CropDisease cd WHERE cd.cropTypeHi = :cropTypeHi AND cd.userDetails1.userId = :userId AND cd.id < :before ORDER BY cd.id DESC")
+    List<CropDisease> findPageByCropTypeHiAndUserId(@Param("cropTypeHi") String cropTypeHi, @Param("userId") Long userId, @Param("before") Long before, Pageable pageable);
+
     Optional<CropDisease> findByIdAndUserDetails1UserId(Long id, Long userId);
 
     @Query("SELECT DISTINCT cd.cropTypeEn FROM CropDisease cd WHERE cd.userDetails1.userId = :userId")
@@ -0,0 +1,133 @@
+package com.example.agriconnect.Repository;
+
+import com.example.common.DTO.PricePointDto;
+import com.example.common.DTO.PriceStatsDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregates a user's {@code Crop} price predictions in the database, so the dashboard receives one row per
+ * group or time bucket instead of every prediction.
+ * <p>
+ * Queries are native MySQL: weekly buckets start on Monday ({@code WEEKDAY}), and the change between
+ * consecutive buckets is computed with the {@code LAG} window function. Rows without a best price are ignored.
+ */
+@Repository
+public class CropPriceAnalyticsRepo {
+
+    /**
+     * The width of a series bucket.
+     */
+    public enum Bucket {
+        DAILY("arrival_date"),
+        WEEKLY("DATE_SUB(arrival_date, INTERVAL WEEKDAY(arrival_date) DAY)");
+
+        private final String startExpression;
+
+        Bucket(String startExpression) {
+            this.startExpression = startExpression;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CropPriceAnalyticsRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Computes min/max/avg best price per crop and market.
+     *
+     * @param userId the ID of the user owning the predictions
+     * @param filter the optional state, crop, market and date range
+     * @return one entry per crop and market, ordered by crop and market
+     */
+    public List<PriceStatsDto> findStats(Long userId, Filter filter) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT crop_name, market, COUNT(*) AS predictions, MIN(best_price) AS min_price, "
+                + "MAX(best_price) AS max_price, ROUND(AVG(best_price), 2) AS avg_price, "
+                + "MIN(arrival_date) AS first_date, MAX(arrival_date) AS last_date "
+                + "FROM Crop " + where(userId, filter, args)
+                + " GROUP BY crop_name, market ORDER BY crop_name, market";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new PriceStatsDto(
+                rs.getString("crop_name"),
+                rs.getString("market"),
+                rs.getLong("predictions"),
+                rs.getObject("min_price", Double.class),
+                rs.getObject("max_price", Double.class),
+                rs.getObject("avg_price", Double.class),
+                rs.getObject("first_date", LocalDate.class),
+                rs.getObject("last_date", LocalDate.class)), args.toArray());
+    }
+
+    /**
+     * Computes the best-price series per crop and market, one point per day or week that has predictions.
+     *
+     * @param userId the ID of the user owning the predictions
+     * @param bucket the bucket width
+     * @param filter the optional state, crop, market and date range
+     * @return the points ordered by crop, market and bucket start
+     */
+    public List<PricePointDto> findSeries(Long userId, Bucket bucket, Filter filter) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT crop_name, market, bucket_start, predictions, min_price, max_price, avg_price, "
+                + "ROUND(avg_price - LAG(avg_price) OVER (PARTITION BY crop_name, market ORDER BY bucket_start), 2) AS avg_change "
+                + "FROM (SELECT crop_name, market, " + bucket.startExpression + " AS bucket_start, COUNT(*) AS predictions, "
+                + "MIN(best_price) AS min_price, MAX(best_price) AS max_price, ROUND(AVG(best_price), 2) AS avg_price "
+                + "FROM Crop " + where(userId, filter, args) + " AND arrival_date IS NOT NULL "
+                + "GROUP BY crop_name, market, bucket_start) buckets "
+                + "ORDER BY crop_name, market, bucket_start";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new PricePointDto(
+                rs.getString("crop_name"),
+                rs.getString("market"),
+                rs.getObject("bucket_start", LocalDate.class),
+                rs.getLong("predictions"),
+                rs.getObject("min_price", Double.class),
+                rs.getObject("max_price", Double.class),
+                rs.getObject("avg_price", Double.class),
+                rs.getObject("avg_change", Double.class)), args.toArray());
+    }
+
+    private static String where(Long userId, Filter filter, List<Object> args) {
+        StringBuilder where = new StringBuilder("WHERE UserId = ? AND best_price IS NOT NULL");
+        args.add(userId);
+        if (filter.state() != null) {
+            where.append(" AND state = ?");
+            args.add(filter.state());
+        }
+        if (filter.cropName() != null) {
+            where.append(" AND crop_name = ?");
+            args.add(filter.cropName());
+        }
+        if (filter.market() != null) {
+            where.append(" AND market = ?");
+            args.add(filter.market());
+        }
+        if (filter.from() != null) {
+            where.append(" AND arrival_date >= ?");
+            args.add(Date.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            where.append(" AND arrival_date <= ?");
+            args.add(Date.valueOf(filter.to()));
+        }
+        return where.toString();
+    }
+
+    /**
+     * Optional restrictions of an analytics query; {@code null} components are not applied.
+     *
+     * @param state    the state
+     * @param cropName the crop name
+     * @param market   the market
+     * @param from     the first arrival date, inclusive
+     * @param to       the last arrival date, inclusive
+     */
+    public record Filter(String state, String cropName, String market, LocalDate from, LocalDate to) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.agriconnect.Repository;
+
+import com.example.common.DTO.PricePointDto;
+import com.example.common.Model.Crop;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains and reads {@code crop_price_daily_rollups}.
+ * <p>
+ * Saved predictions are folded into their row with {@code INSERT ... ON DUPLICATE KEY UPDATE}, which MySQL
+ * applies atomically per row, so concurrent requests for the same crop, market and day need no locking.
+ * The same aggregation can be recomputed from {@code Crop} for any date range.
+ */
+@Repository
+public class CropPriceRollupRepo {
+
+    // Longest name the rollup key columns hold; longer values are left out of the rollup
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private static final String UPSERT_SQL = "INSERT INTO crop_price_daily_rollups "
+            + "(crop_name, market, district, state, rollup_date, predictions, best_sum, best_min, best_max, "
+            + "suggested_sum, suggested_min, suggested_max) VALUES (?, ?, ?, ?, ?, 1, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE predictions = predictions + 1, "
+            + "best_sum = best_sum + VALUES(best_sum), "
+            + "best_min = LEAST(COALESCE(best_min, VALUES(best_min)), VALUES(best_min)), "
+            + "best_max = GREATEST(COALESCE(best_max, VALUES(best_max)), VALUES(best_max)), "
+            + "suggested_sum = suggested_sum + VALUES(suggested_sum), "
+            + "suggested_min = COALESCE(LEAST(suggested_min, VALUES(suggested_min)), suggested_min, VALUES(suggested_min)), "
+            + "suggested_max = COALESCE(GREATEST(suggested_max, VALUES(suggested_max)), suggested_max, VALUES(suggested_max))";
+
+    private static final String REBUILD_SQL = "INSERT INTO crop_price_daily_rollups "
+            + "(crop_name, market, district, state, rollup_date, predictions, best_sum, best_min, best_max, "
+            + "suggested_sum, suggested_min, suggested_max) "
+            + "SELECT crop_name, COALESCE(market, ''), COALESCE(district, ''), COALESCE(state, ''), arrival_date, COUNT(*), "
+            + "SUM(best_price), MIN(best_price), MAX(best_price), "
+            + "COALESCE(SUM(suggested_price), 0), MIN(suggested_price), MAX(suggested_price) "
+            + "FROM Crop WHERE best_price IS NOT NULL AND arrival_date IS NOT NULL AND crop_name IS NOT NULL "
+            + "AND arrival_date >= ? "
+            + "AND CHAR_LENGTH(crop_name) <= " + MAX_KEY_LENGTH
+            + " AND CHAR_LENGTH(COALESCE(market, '')) <= " + MAX_KEY_LENGTH
+            + " AND CHAR_LENGTH(COALESCE(district, '')) <= " + MAX_KEY_LENGTH
+            + " AND CHAR_LENGTH(COALESCE(state, '')) <= " + MAX_KEY_LENGTH
+            + " GROUP BY crop_name, COALESCE(market, ''), COALESCE(district, ''), COALESCE(state, ''), arrival_date";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CropPriceRollupRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds saved predictions to their rollup rows. Crops without a crop name, arrival date or best price,
+     * or with names longer than {@link #MAX_KEY_LENGTH}, are skipped.
+     *
+     * @param crops the saved predictions
+     * @return the number of predictions added
+     */
+    @Transactional
+    public int addAll(List<Crop> crops) {
+        List<Crop> rollable = new ArrayList<>(crops.size());
+        for (Crop crop : crops) {
+            if (isRollable(crop)) {
+                rollable.add(crop);
+            }
+        }
+        if (rollable.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rollable, rollable.size(), (ps, crop) -> {
+            ps.setString(1, crop.getCropName());
+            ps.setString(2, orEmpty(crop.getMarket()));
+            ps.setString(3, orEmpty(crop.getDistrict()));
+            ps.setString(4, orEmpty(crop.getState()));
+            ps.setDate(5, Date.valueOf(crop.getArrivalDate()));
+            ps.setDouble(6, crop.getBestPrice());
+            ps.setDouble(7, crop.getBestPrice());
+            ps.setDouble(8, crop.getBestPrice());
+            ps.setDouble(9, crop.getSuggestedPrice() != null ? crop.getSuggestedPrice() : 0);
+            ps.setObject(10, crop.getSuggestedPrice());
+            ps.setObject(11, crop.getSuggestedPrice());
+        });
+        return rollable.size();
+    }
+
+    /**
+     * Recomputes every rollup row from the given arrival date on from {@code Crop}.
+     *
+     * @param from the first arrival date to rebuild; {@code null} rebuilds everything
+     * @return the number of rollup rows written
+     */
+    @Transactional
+    public int rebuildFrom(LocalDate from) {
+        Date start = Date.valueOf(from != null ? from : LocalDate.of(1900, 1, 1));
+        jdbcTemplate.update("DELETE FROM crop_price_daily_rollups WHERE rollup_date >= ?", start);
+        return jdbcTemplate.update(REBUILD_SQL, start);
+    }
+
+    /**
+     * @return {@code true} if no rollup rows exist yet
+     */
+    public boolean isEmpty() {
+        List<Integer> any = jdbcTemplate.queryForList("SELECT 1 FROM crop_price_daily_rollups LIMIT 1", Integer.class);
+        return any.isEmpty();
+    }
+
+    /**
+     * Reads the daily best-price trend of a crop across all users, optionally narrowed to a state, district
+     * or market. Served from the {@code (crop_name, rollup_date)} index and the unique key.
+     *
+     * @param cropName the crop name
+     * @param state    the state (optional)
+     * @param district the district (optional)
+     * @param market   the market (optional)
+     * @param from     the first arrival date, inclusive
+     * @param to       the last arrival date, inclusive
+     * @return one point per day with predictions, in date order
+     */
+    public List<PricePointDto> findDailyTrend(String cropName, String state, String district, String market,
+                                              LocalDate from, LocalDate to) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder where = new StringBuilder("WHERE crop_name = ? AND rollup_date BETWEEN ? AND ?");
+        args.add(cropName);
+        args.add(Date.valueOf(from));
+        args.add(Date.valueOf(to));
+        if (market != null) {
+            where.append(" AND market = ?");
+            args.add(market);
+        }
+        if (district != null) {
+            where.append(" AND district = ?");
+            args.add(district);
+        }
+        if (state != null) {
+            where.append(" AND state = ?");
+            args.add(state);
+        }
+        String sql = "SELECT rollup_date, predictions, min_price, max_price, avg_price, "
+                + "ROUND(avg_price - LAG(avg_price) OVER (ORDER BY rollup_date), 2) AS avg_change "
+                + "FROM (SELECT rollup_date, SUM(predictions) AS predictions, MIN(best_min) AS min_price, "
+                + "MAX(best_max) AS max_price, ROUND(SUM(best_sum) / SUM(predictions), 2) AS avg_price "
+                + "FROM crop_price_daily_rollups " + where + " GROUP BY rollup_date) days "
+                + "ORDER BY rollup_date";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new PricePointDto(
+                cropName,
+                market,
+                rs.getObject("rollup_date", LocalDate.class),
+                rs.getLong("predictions"),
+                rs.getObject("min_price", Double.class),
+                rs.getObject("max_price", Double.class),
+                rs.getObject("avg_price", Double.class),
+                rs.getObject("avg_change", Double.class)), args.toArray());
+    }
+
+    private static boolean isRollable(Crop crop) {
+        return crop.getCropName() != null && crop.getArrivalDate() != null && crop.getBestPrice() != null
+                && crop.getCropName().length() <= MAX_KEY_LENGTH
+                && orEmpty(crop.getMarket()).length() <= MAX_KEY_LENGTH
+                && orEmpty(crop.getDistrict()).length() <= MAX_KEY_LENGTH
+                && orEmpty(crop.getState()).length() <= MAX_KEY_LENGTH;
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -2,6 +2,7 @@
 package com.example.agriconnect.Repository;
 
 import com.example.common.Model.CropRecommendation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -37,6 +38,31 @@ public interface CropRecommendationRepo extends JpaRepository<CropRecommendation
      */
     @Query("SELECT cr FROM CropRecommendation cr WHERE cr.userDetails1.userId = :userId AND cr.predictedCrop = :crop")
     List<CropRecommendation> findByUserIdAndPredictedCrop(@Param("userId") Long userId, @Param("crop") String crop);
+
+    /**
+     * Fetch one keyset page of a user's recommendations, newest first.
+     *
+     * @param userId   the user ID
+     * @param before   the ID of the last recommendation of the previous page ({@link Integer#MAX_VALUE} for the first page)
+     * @param pageable the limit, as {@code PageRequest.of(0, limit)}
+     * @return list of CropRecommendation entities with IDs below {@code before}
+     */
+    @Query("SELECT cr FROM CropRecommendation cr WHERE cr.userDetails1.userId = :userId AND cr.id < :before ORDER BY cr.id DESC")
+    List<CropRecommendation> findPageByUserId(@Param("userId") Long userId, @Param("before") Integer before, Pageable pageable);
+
+    /**
+     * Fetch one keyset page of a user's recommendations for one predicted crop, newest first.
+     *
+     * @param userId   the user ID
+     * @param crop     the predicted crop
+     * @param before   the ID of the last recommendation of the previous page ({@link Integer#MAX_VALUE} for the first page)
+     * @param pageable the limit, as {@code PageRequest.of(0, limit)}
+     * @return list of CropRecommendation entities with IDs below {@code before}
+     */
+    @Query("SELECT cr FROM CropRecommendation cr WHERE cr.userDetails1.userId = :userId AND cr.predictedCrop = :crop "
+            + "AND cr.id < :before ORDER BY cr.id DESC")
+    List<CropRecommendation> findPageByUserIdAndPredictedCrop(@Param("userId") Long userId, @Param("crop") String crop,
+                                                              @Param("before") Integer before, Pageable pageable);
 //    List<CropRecommendation> findByHiContainingIgnoreCaseAndUserIdAndPredictedCrop(Long userId, String cropName);
 //
 //    List<CropRecommendation> findByEnContainingIgnoreCaseAndUserId(Long userId);
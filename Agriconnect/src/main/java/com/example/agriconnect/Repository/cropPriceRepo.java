@@ -2,8 +2,10 @@ package com.example.agriconnect.Repository;
 
 
 import com.example.common.Model.Crop;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -26,6 +28,18 @@ public interface cropPriceRepo extends JpaRepository<Crop,Long > {
     List<Crop> findByUserDetails1UserId(Long userId);
     @Query("SELECT DISTINCT c.state FROM Crop c WHERE c.userDetails1.id = :userId")
     Set<String> findDistinctStatesByUserId(Long userId);
+
+    /*
+        Keyset Pages Of A User's Predictions, Newest First: Pass The Last Id Of The Previous Page As before
+        And PageRequest.of(0, limit). InnoDB Keeps The Id In Every Secondary Index, So (UserId) And
+        (UserId, state) Serve Both The Filter And The Order Without Sorting
+     */
+    @Query("SELECT c FROM Crop c WHERE c.userDetails1.userId = :userId AND c.id < :before ORDER BY c.id DESC")
+    List<Crop> findPageByUserId(@Param("userId") Long userId, @Param("before") Long before, Pageable pageable);
+
+    @Query("SELECT c FROM Crop c WHERE c.userDetails1.userId = :userId AND c.state = :state AND c.id < :before ORDER BY c.id DESC")
+    List<Crop> findPageByStateAndUserId(@Param("state") String state, @Param("userId") Long userId,
+                                        @Param("before") Long before, Pageable pageable);
 //    List<Crop> findByStateHiContainingIgnoreCaseAndUserDetails1UserId(String state, Long userId);
     //    List<Crop> findByStateEnContainingIgnoreCaseAndUserDetails1UserId(String state, Long userId);
 }
@@ -0,0 +1,337 @@
+package com.example.agriconnect.Service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.api.ApiResponse;
+import com.cloudinary.api.ApiRateLimit;
+import com.cloudinary.utils.ObjectUtils;
+import com.example.agriconnect.Repository.CloudinaryCleanupRunRepo;
+import com.example.common.Exception.AnyException;
+import com.example.common.Model.CloudinaryCleanupRun;
+import com.example.common.Model.CloudinaryCleanupRun.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deletes old crop images from Cloudinary in the background.
+ * <p>
+ * A cleanup is queued as a {@link CloudinaryCleanupRun} and worked through by a scheduled task a few
+ * listing pages at a time. Each page is fetched with the Admin API cursor, and its expired assets are
+ * destroyed with the multi-id delete call in chunks of up to 100. Listing a page saves the new cursor, the
+ * scanned count and the page's expired IDs together; each successful delete call then saves its counts
+ * together with the IDs still pending. A restart or retry therefore resumes exactly where the run stopped
+ * without counting anything twice. Calls are spaced by a fixed interval, and the run pauses, even in the
+ * middle of a page, until the rate limit window resets when few Admin API calls remain. Deleted assets are
+ * evicted from the {@link ImageAnalysisCache} so cached analyses never point at them.
+ */
+@Slf4j
+@Service
+public class CloudinaryCleanupService {
+
+    private static final String CROP_IMAGES_PREFIX = "crop-images/";
+
+    // Admin API limit for public IDs per delete_resources call
+    private static final int MAX_IDS_PER_DELETE = 100;
+
+    private static final Set<Status> ACTIVE_STATUSES = EnumSet.of(Status.QUEUED, Status.RUNNING);
+
+    private final Cloudinary cloudinary;
+    private final AtomicBoolean processing = new AtomicBoolean();
+
+    // A lock rather than synchronized, so a virtual thread waiting on the database does not pin its carrier
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+
+    @Autowired
+    private CloudinaryCleanupRunRepo cleanupRunRepo;
+
+    @Autowired
+    private ImageAnalysisCache analysisCache;
+
+    @Value("${image.cleanup.page-size:500}")
+    private int pageSize;
+
+    @Value("${image.cleanup.pages-per-tick:5}")
+    private int pagesPerTick;
+
+    @Value("${image.cleanup.request-interval-ms:500}")
+    private long requestIntervalMs;
+
+    @Value("${image.cleanup.min-remaining-calls:50}")
+    private long minRemainingCalls;
+
+    @Value("${image.cleanup.retry-delay-seconds:60}")
+    private long retryDelaySeconds;
+
+    @Value("${image.cleanup.max-consecutive-errors:5}")
+    private int maxConsecutiveErrors;
+
+    /**
+     * Constructs a new {@code CloudinaryCleanupService} with Cloudinary configuration.
+     *
+     * @param cloudName the Cloudinary cloud name
+     * @param apiKey    the Cloudinary API key
+     * @param apiSecret the Cloudinary API secret
+     */
+    public CloudinaryCleanupService(
+            @Value("${cloudinary.cloud.name}") String cloudName,
+            @Value("${cloudinary.api.key}") String apiKey,
+            @Value("${cloudinary.api.secret}") String apiSecret) {
+        this.cloudinary = new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", cloudName,
+                "api_key", apiKey,
+                "api_secret", apiSecret,
+                "secure", true));
+    }
+
+    /**
+     * Queues a cleanup of crop images older than the given number of days. If an identical cleanup is
+     * already queued or running, that run is returned instead.
+     *
+     * @param daysOld the age threshold (in days) for images to be deleted
+     * @return the queued or already active run
+     * @throws AnyException if {@code daysOld} is negative
+     */
+    public CloudinaryCleanupRun enqueue(int daysOld) {
+        if (daysOld < 0) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Days must not be negative.");
+        }
+        enqueueLock.lock();
+        try {
+            return findOrQueueRun(daysOld);
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    private CloudinaryCleanupRun findOrQueueRun(int daysOld) {
+        Optional<CloudinaryCleanupRun> active = cleanupRunRepo.findFirstByPrefixAndDaysOldAndStatusIn(
+                CROP_IMAGES_PREFIX, daysOld, ACTIVE_STATUSES);
+        if (active.isPresent()) {
+            return active.get();
+        }
+
+        long now = System.currentTimeMillis();
+        CloudinaryCleanupRun run = new CloudinaryCleanupRun();
+        run.setPrefix(CROP_IMAGES_PREFIX);
+        run.setDaysOld(daysOld);
+        run.setCutoffTime(now - TimeUnit.DAYS.toMillis(daysOld));
+        run.setStatus(Status.QUEUED);
+        run.setCreatedAt(now);
+        run.setUpdatedAt(now);
+        CloudinaryCleanupRun saved = cleanupRunRepo.save(run);
+        log.info("Queued Cloudinary cleanup run {} for images older than {} days", saved.getId(), daysOld);
+        return saved;
+    }
+
+    /**
+     * @param runId the cleanup run ID
+     * @return the run, or {@link Optional#empty()} if it does not exist
+     */
+    public Optional<CloudinaryCleanupRun> findRun(Long runId) {
+        return cleanupRunRepo.findById(runId);
+    }
+
+    /**
+     * Describes a run for the cleanup endpoints.
+     *
+     * @param run the cleanup run
+     * @return a {@link Map} with the run ID, status, counters and last error
+     */
+    public Map<String, Object> toStatusMap(CloudinaryCleanupRun run) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("runId", run.getId());
+        status.put("status", run.getStatus().name().toLowerCase());
+        status.put("daysOld", run.getDaysOld());
+        status.put("scanned", run.getScannedCount());
+        status.put("deleted", run.getDeletedCount());
+        status.put("failed", run.getFailedCount());
+        status.put("pausedUntil", run.getPausedUntil());
+        status.put("lastError", run.getLastError());
+        return status;
+    }
+
+    /**
+     * Scheduled task that advances the oldest unfinished cleanup run by a few listing pages.
+     * Runs every 30 seconds by default.
+     */
+    @Scheduled(fixedDelayString = "${image.cleanup.poll-interval-ms:30000}")
+    public void processPendingRuns() {
+        if (!processing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            cleanupRunRepo.findFirstByStatusInOrderByIdAsc(ACTIVE_STATUSES).ifPresent(this::advance);
+        } catch (Exception e) {
+            log.error("Error loading Cloudinary cleanup runs: {}", e.getMessage(), e);
+        } finally {
+            processing.set(false);
+        }
+    }
+
+    private void advance(CloudinaryCleanupRun run) {
+        long now = System.currentTimeMillis();
+        if (run.getPausedUntil() != null && run.getPausedUntil() > now) {
+            return;
+        }
+        run.setPausedUntil(null);
+        run.setStatus(Status.RUNNING);
+
+        for (int page = 0; page < pagesPerTick; page++) {
+            boolean hasMore;
+            try {
+                hasMore = processPage(run);
+                run.setConsecutiveErrors(0);
+                run.setLastError(null);
+            } catch (Exception e) {
+                recordFailure(run, e);
+                save(run);
+                return;
+            }
+
+            if (!hasMore) {
+                run.setStatus(Status.COMPLETED);
+                save(run);
+                log.info("Cloudinary cleanup run {} completed: scanned={}, deleted={}, failed={}",
+                        run.getId(), run.getScannedCount(), run.getDeletedCount(), run.getFailedCount());
+                return;
+            }
+            save(run);
+            if (run.getPausedUntil() != null) {
+                log.info("Cloudinary cleanup run {} paused for rate limit until {}", run.getId(), run.getPausedUntil());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lists the next page of assets unless expired IDs of the previous one are still pending, then deletes
+     * pending IDs chunk by chunk until none are left or the run is paused for the rate limit.
+     *
+     * @return {@code true} if the run has more work
+     */
+    private boolean processPage(CloudinaryCleanupRun run) throws Exception {
+        if (run.getPendingPublicIds() == null && !run.isListingComplete()) {
+            listPage(run);
+            save(run);
+        }
+
+        List<String> pending = run.getPendingPublicIds() == null
+                ? List.of() : List.of(run.getPendingPublicIds().split("\n"));
+        while (!pending.isEmpty() && run.getPausedUntil() == null) {
+            List<String> chunk = pending.subList(0, Math.min(MAX_IDS_PER_DELETE, pending.size()));
+            deleteChunk(run, chunk);
+            pending = pending.subList(chunk.size(), pending.size());
+            run.setPendingPublicIds(pending.isEmpty() ? null : String.join("\n", pending));
+            save(run);
+        }
+        return !pending.isEmpty() || !run.isListingComplete();
+    }
+
+    /**
+     * Lists one page of assets, records its expired IDs as pending and moves the cursor forward.
+     */
+    private void listPage(CloudinaryCleanupRun run) throws Exception {
+        Map<String, Object> listParams = ObjectUtils.asMap(
+                "type", "upload",
+                "prefix", run.getPrefix(),
+                "resource_type", "image",
+                "max_results", pageSize
+        );
+        if (run.getNextCursor() != null) {
+            listParams.put("next_cursor", run.getNextCursor());
+        }
+        ApiResponse page = cloudinary.api().resources(listParams);
+        throttle(run, page);
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> resources = (List<Map<String, Object>>) page.get("resources");
+        List<String> expired = new ArrayList<>();
+        if (resources != null) {
+            for (Map<String, Object> resource : resources) {
+                String createdAtStr = (String) resource.get("created_at");
+                long createdAt = ZonedDateTime.parse(createdAtStr).toInstant().toEpochMilli();
+                if (createdAt < run.getCutoffTime()) {
+                    expired.add((String) resource.get("public_id"));
+                }
+            }
+            run.setScannedCount(run.getScannedCount() + resources.size());
+        }
+
+        String nextCursor = (String) page.get("next_cursor");
+        run.setNextCursor(nextCursor);
+        run.setListingComplete(nextCursor == null);
+        run.setPendingPublicIds(expired.isEmpty() ? null : String.join("\n", expired));
+    }
+
+    private void deleteChunk(CloudinaryCleanupRun run, List<String> publicIds) throws Exception {
+        ApiResponse result = cloudinary.api().deleteResources(publicIds,
+                ObjectUtils.asMap("resource_type", "image", "type", "upload", "invalidate", true));
+        throttle(run, result);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> deleted = (Map<String, Object>) result.get("deleted");
+        long deletedCount = 0;
+        long notFoundCount = 0;
+        if (deleted != null) {
+            deletedCount = deleted.values().stream().filter("deleted"::equals).count();
+            // Already gone, for example deleted by an attempt whose response was lost; neither deleted nor failed here
+            notFoundCount = deleted.values().stream().filter("not_found"::equals).count();
+            // Cached analyses must not keep serving URLs of assets that no longer exist
+            analysisCache.evictByPublicIds(deleted.entrySet().stream()
+                    .filter(e -> "deleted".equals(e.getValue()) || "not_found".equals(e.getValue()))
+                    .map(Map.Entry::getKey)
+                    .toList());
+        }
+        run.setDeletedCount(run.getDeletedCount() + deletedCount);
+        run.setFailedCount(run.getFailedCount() + publicIds.size() - deletedCount - notFoundCount);
+        log.info("Cloudinary cleanup run {} deleted {} of {} expired images", run.getId(), deletedCount, publicIds.size());
+    }
+
+    /**
+     * Spaces Admin API calls and pauses the run when the remaining call budget is low.
+     */
+    private void throttle(CloudinaryCleanupRun run, ApiResponse response) throws InterruptedException {
+        ApiRateLimit rateLimit = response.apiRateLimit();
+        if (rateLimit != null && rateLimit.getLimit() > 0 && rateLimit.getRemaining() <= minRemainingCalls
+                && rateLimit.getReset() != null) {
+            run.setPausedUntil(rateLimit.getReset().getTime());
+        }
+        Thread.sleep(requestIntervalMs);
+    }
+
+    private void recordFailure(CloudinaryCleanupRun run, Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        run.setConsecutiveErrors(run.getConsecutiveErrors() + 1);
+        String message = String.valueOf(e.getMessage());
+        run.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        if (run.getConsecutiveErrors() >= maxConsecutiveErrors) {
+            run.setStatus(Status.FAILED);
+            log.error("Cloudinary cleanup run {} failed after {} attempts: {}", run.getId(), run.getConsecutiveErrors(), e.getMessage(), e);
+        } else {
+            run.setPausedUntil(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(retryDelaySeconds));
+            log.warn("Cloudinary cleanup run {} page failed, retrying in {}s: {}", run.getId(), retryDelaySeconds, e.getMessage());
+        }
+    }
+
+    private void save(CloudinaryCleanupRun run) {
+        run.setUpdatedAt(System.currentTimeMillis());
+        cleanupRunRepo.save(run);
+    }
+}
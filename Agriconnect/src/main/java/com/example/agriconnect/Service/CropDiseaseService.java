@@ -2,9 +2,11 @@ package com.example.agriconnect.Service;
 
 import com.example.Authentication.repository.UserRepo;
 import com.example.agriconnect.Repository.CropDiseaseRepo;
+import com.example.common.DTO.CursorPage;
 import com.example.common.Model.CropDisease;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -110,6 +112,30 @@ public class CropDiseaseService {
         return cropDiseaseRepository.findByCropTypeHiAndCauseHiContainingIgnoreCaseAndUserDetails1UserId(cropTypeHi, causeHi, userId, pageable);
     }
 
+    /**
+     * Retrieves one keyset page of a user's crop diseases, newest first, optionally filtered by crop type.
+     *
+     * @param userId   the ID of the user whose crop diseases are to be retrieved
+     * @param cropType the crop type to filter by ({@code null} for all crop types)
+     * @param hindi    whether {@code cropType} is the Hindi crop type
+     * @param before   the cursor returned with the previous page ({@code null} for the first page)
+     * @param size     the maximum number of diseases on the page
+     * @return a {@link CursorPage} of {@link CropDisease} objects and the cursor of the next page
+     */
+    public CursorPage<CropDisease> findDiseasePage(Long userId, String cropType, boolean hindi, Long before, int size) {
+        Long cursor = before != null ? before : Long.MAX_VALUE;
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<CropDisease> fetched;
+        if (cropType == null) {
+            fetched = cropDiseaseRepository.findPageByUserId(userId, cursor, limit);
+        } else if (hindi) {
+            fetched = cropDiseaseRepository.findPageByCropTypeHiAndUserId(cropType, userId, cursor, limit);
+        } else {
+            fetched = cropDiseaseRepository.findPageByCropTypeEnAndUserId(cropType, userId, cursor, limit);
+        }
+        return CursorPage.of(fetched, size, CropDisease::getId);
+    }
+
     /**
      * Retrieves a specific crop disease by its ID and associated user ID.
      *
@@ -7,11 +7,15 @@ import com.example.agriconnect.Repository.CropDiseaseRepo;
 import com.example.common.Exception.AnyException;
 import com.example.common.Model.CropDisease;
 import com.example.common.util.GeminiApiHelper;
+import com.example.common.util.GeminiCallGuard;
+import com.example.common.util.GeminiValidationService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
@@ -20,13 +24,18 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service class for analyzing crop images to identify diseases and provide detailed analysis.
  * Integrates with Cloudinary for image storage, a Flask API for image analysis, and Gemini AI for
  * enhancing analysis results. Supports localization in English and Hindi, and saves results to the
- * database. Provides methods for image upload, analysis, status checking, and cleanup of old images.
+ * database. Provides methods for image upload, analysis and status checking.
  */
 @Slf4j
 @Service
@@ -35,6 +44,17 @@ public class CropImageAnalysisService {
     @Value("${flask.api.url3:http://localhost:8082}")
     private String flaskApiUrl3;
 
+    // Validate the image and enhance the disease details in one Gemini request instead of two
+    @Value("${image.analysis.gemini.combined-call:true}")
+    private boolean combinedGeminiCall;
+
+    @Value("${image.analysis.timeout.upload-seconds:30}")
+    private long uploadTimeoutSeconds;
+
+    // Whether the Flask model server accepts several images per request on /analysis/batch
+    @Value("${flask.api.batch-enabled:false}")
+    private boolean flaskBatchEnabled;
+
     @Autowired
     private CropDiseaseRepo cropDiseaseRepository;
 
@@ -48,8 +68,27 @@ public class CropImageAnalysisService {
     private ObjectMapper objectMapper;
 
     @Autowired
+    @Qualifier("flaskAnalysisRestTemplate")
     private RestTemplate restTemplate;
 
+    @Autowired
+    @Qualifier("imageUploadExecutor")
+    private TaskExecutor uploadExecutor;
+
+    @Autowired
+    private GeminiValidationService geminiValidationService;
+
+    @Autowired
+    private ImageAnalysisCache analysisCache;
+
+    @Autowired
+    private CropImagePreprocessor imagePreprocessor;
+
+    @Autowired
+    private UploadBufferPool uploadBufferPool;
+
+    static final String INVALID_CROP_IMAGE_MESSAGE = "Invalid crop image. Please upload a valid crop image.";
+
     private final Cloudinary cloudinary;
     private final List<String> allowedExtensions = Arrays.asList("jpg", "jpeg", "png", "jfif", "heic");
 
@@ -73,9 +112,11 @@ public class CropImageAnalysisService {
 
     /**
      * Analyzes an uploaded crop image to identify diseases and provides detailed results.
-     * Validates the image, uploads it to Cloudinary, sends it to a Flask API for analysis,
-     * enhances results with Gemini AI, saves the analysis to the database, and returns
-     * formatted results in English and Hindi.
+     * Validates the image, then uploads it to Cloudinary while it is classified by the Flask API and
+     * enhanced with Gemini AI. The image URL is only awaited when the analysis is saved to the database.
+     * If any step fails before the record is saved, the uploaded Cloudinary asset is destroyed.
+     * When the combined Gemini call is enabled, the crop validation happens in the enhancement request and
+     * a non-crop image yields a response with {@code success=false}.
      *
      * @param file   the image file to analyze (must be in allowed formats: jpg, jpeg, png, jfif, heic)
      * @param userId the ID of the user associated with the analysis
@@ -85,41 +126,237 @@ public class CropImageAnalysisService {
      * @throws AnyException     if the image is invalid, the user is not found, or analysis fails
      */
     public Map<String, Object> analyzeImage(MultipartFile file, Long userId) throws IOException {
-        Map<String, Object> response;
+        return analyzeImage(prepareImage(file), userId);
+    }
+
+    /**
+     * Analyzes a preprocessed crop image. Identical images analysed before are answered from the cache
+     * without calling Cloudinary, Flask or Gemini.
+     *
+     * @param image  the preprocessed image to analyze
+     * @param userId the ID of the user associated with the analysis
+     * @return a {@link Map} containing analysis results, image URL, filename, public ID, and success status
+     * @throws AnyException if the image is invalid, the user is not found, or analysis fails
+     */
+    public Map<String, Object> analyzeImage(PreparedImage image, Long userId) {
+        Optional<Map<String, Object>> cached = findCachedAnalysis(image.getContentHash(), userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        String filename = generateUniqueFilename(image.getOriginalFilename());
+        String publicId = toPublicId(filename);
+
+        // Upload to Cloudinary in the background; the classifier only needs the image bytes
+        PendingUpload upload = startUpload(image.getImageBytes(), publicId, null);
+
+        try {
+            JsonNode jsonNode = classifyImage(image.getImageBytes(), image.getFilename());
+            Map<String, String> details;
+            if (combinedGeminiCall) {
+                Optional<Map<String, String>> reviewed = validateAndEnhance(image, jsonNode);
+                if (reviewed.isEmpty()) {
+                    upload.discard();
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", INVALID_CROP_IMAGE_MESSAGE);
+                    return response;
+                }
+                details = reviewed.get();
+            } else {
+                details = enhanceAnalysis(jsonNode);
+            }
+
+            String imageUrl = upload.imageUrl().orTimeout(uploadTimeoutSeconds, TimeUnit.SECONDS).join();
+            // From here on a row may reference the image, so a later failure must not destroy it
+            upload.keep();
+            Map<String, Object> response = saveAnalysis(details, userId, imageUrl);
+            response.put("imageUrl", imageUrl);
+            response.put("filename", filename);
+            response.put("publicId", publicId);
+
+            cacheAnalysis(image.getContentHash(), jsonNode, details, filename, imageUrl, userId);
+            return response;
+        } catch (Exception e) {
+            upload.discard();
+            log.error("Error while analyzing image: {}", e.getMessage(), e);
+            throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Image analysis service failed.");
+        }
+    }
+
+    /**
+     * Reads an upload once and preprocesses it for validation, classification and storage.
+     *
+     * @param file the uploaded image file
+     * @return the prepared image shared by all analysis stages
+     * @throws IOException  if the upload cannot be read
+     * @throws AnyException if the file is empty or not an allowed image type
+     */
+    public PreparedImage prepareImage(MultipartFile file) throws IOException {
+        validateImageFile(file);
+        try (UploadBuffer upload = uploadBufferPool.read(file)) {
+            return prepareImage(upload, file.getOriginalFilename(), file.getContentType());
+        }
+    }
+
+    /**
+     * Preprocesses an upload that was already read into a buffer. Hashing and decoding both stream from
+     * the buffer, so the upload is never copied; the caller still owns and must close the buffer.
+     *
+     * @param upload           the upload as read from the request
+     * @param originalFilename the filename supplied by the client
+     * @param contentType      the MIME type supplied by the client
+     * @return the prepared image shared by all analysis stages
+     */
+    public PreparedImage prepareImage(UploadBuffer upload, String originalFilename, String contentType) {
+        long allocatedBefore = allocatedBytes();
+        try {
+            String contentHash = analysisCache.hash(upload.inputStream());
+            return imagePreprocessor.prepare(upload, originalFilename, contentType, contentHash);
+        } catch (IOException e) {
+            throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to read uploaded image.");
+        } finally {
+            if (log.isDebugEnabled() && allocatedBefore >= 0) {
+                log.debug("Prepared {} ({} bytes uploaded), heap allocated while preparing: {} bytes",
+                        originalFilename, upload.length(), allocatedBytes() - allocatedBefore);
+            }
+        }
+    }
+
+    /**
+     * Reads the current thread's allocation counter, used to report per-request heap usage of image
+     * preparation at debug level.
+     *
+     * @return the bytes allocated by this thread so far, or -1 if the JVM does not track it
+     */
+    private long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean
+                && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return threadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Ensures the uploaded file is a non-empty image with an allowed extension, no larger than
+     * {@code image.upload.max-file-size}.
+     *
+     * @param file the uploaded image file
+     * @throws AnyException if the file is empty or not an allowed image type (HTTP 400), or too large (HTTP 413)
+     */
+    public void validateImageFile(MultipartFile file) {
         if (!isValidImageFile(file)) {
             throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Only image files are allowed.");
         }
+        // The multipart limits are sized for batch uploads, so single images are held to the per-image limit here
+        if (file.getSize() > uploadBufferPool.maxImageSize()) {
+            throw new AnyException(HttpStatus.PAYLOAD_TOO_LARGE.value(), "Image exceeds the maximum upload size.");
+        }
+    }
 
-        String filename = generateUniqueFilename(file.getOriginalFilename());
-
+    /**
+     * Uploads the image bytes to Cloudinary under the given public ID.
+     *
+     * @param imageBytes the raw image bytes
+     * @param publicId   the Cloudinary public ID (including the {@code crop-images/} folder)
+     * @return the secure URL of the uploaded image
+     * @throws AnyException if the upload fails
+     */
+    public String uploadImage(byte[] imageBytes, String publicId) {
         try {
-            // Upload to Cloudinary
-            String publicId = "crop-images/" + filename;
-            Map uploadResult = cloudinary.uploader().upload(file.getBytes(),
+            Map uploadResult = cloudinary.uploader().upload(imageBytes,
                     ObjectUtils.asMap(
                             "public_id", publicId,
                             "resource_type", "image",
                             "folder", "crop-images"
                     ));
             String imageUrl = (String) uploadResult.get("secure_url");
+            log.info("Uploaded image to Cloudinary: publicId={}, url={}", publicId, imageUrl);
+            return imageUrl;
+        } catch (Exception e) {
+            log.error("Error uploading image to Cloudinary: publicId={}", publicId, e);
+            throw new AnyException(HttpStatus.BAD_GATEWAY.value(), "Failed to upload image.");
+        }
+    }
 
-            // Call Flask API with MultipartFile
-            String flaskResponse = sendToFlaskAPI(file);
-            JsonNode jsonNode = objectMapper.readTree(flaskResponse);
+    /**
+     * Starts uploading the image to Cloudinary on the upload executor so it can overlap with classification.
+     * Falls back to uploading on the calling thread if the executor is saturated.
+     *
+     * @param imageBytes the raw image bytes
+     * @param publicId   the Cloudinary public ID (including the {@code crop-images/} folder)
+     * @param onStart    optional callback run when the upload actually starts
+     * @return a {@link PendingUpload} that can be joined for the image URL or discarded on failure
+     */
+    public PendingUpload startUpload(byte[] imageBytes, String publicId, Runnable onStart) {
+        return new PendingUpload(imageBytes, publicId, onStart);
+    }
 
-            // Process analysis
-            response = processImageAnalysis(jsonNode, userId, imageUrl);
-            response.put("imageUrl", imageUrl);
-            response.put("filename", filename);
-            response.put("publicId", publicId);
+    /**
+     * Deletes an uploaded image from Cloudinary, logging rather than propagating failures.
+     *
+     * @param publicId the Cloudinary public ID of the image
+     */
+    public void destroyImage(String publicId) {
+        try {
+            cloudinary.uploader().destroy(publicId, ObjectUtils.asMap("resource_type", "image", "invalidate", true));
+            log.info("Destroyed orphaned Cloudinary image: {}", publicId);
+        } catch (Exception e) {
+            log.error("Failed to destroy orphaned Cloudinary image: {}", publicId, e);
+        }
+    }
 
-            log.info("Uploaded image to Cloudinary: publicId={}, url={}", publicId, imageUrl);
+    /**
+     * Sends the image bytes to the Flask disease classifier and parses its JSON response.
+     *
+     * @param imageBytes       the raw image bytes
+     * @param originalFilename the filename reported to the classifier
+     * @return the parsed classifier response
+     * @throws AnyException if the classifier call fails or returns malformed JSON
+     */
+    public JsonNode classifyImage(byte[] imageBytes, String originalFilename) {
+        String flaskResponse = sendToFlaskAPI(imageBytes, originalFilename);
+        try {
+            return objectMapper.readTree(flaskResponse);
+        } catch (IOException e) {
+            log.error("Invalid JSON from image analysis API: {}", e.getMessage());
+            throw new AnyException(HttpStatus.BAD_GATEWAY.value(), "Invalid analysis response format.");
+        }
+    }
 
-            return response;
-        } catch (Exception e) {
-            log.error("Error while analyzing image: {}", e.getMessage(), e);
-            throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Image analysis service failed.");
+    /**
+     * Classifies several images. When the Flask model server supports batches, the images are sent in one
+     * request to {@code /analysis/batch}; otherwise, or if the batch call fails, each image is classified
+     * with its own request.
+     *
+     * @param images the preprocessed images
+     * @return the parsed classifier responses, in the same order as {@code images}
+     * @throws AnyException if a per-image classifier call fails or returns malformed JSON
+     */
+    public List<JsonNode> classifyImages(List<PreparedImage> images) {
+        if (flaskBatchEnabled && images.size() > 1) {
+            try {
+                return sendBatchToFlaskAPI(images);
+            } catch (Exception e) {
+                log.warn("Batch classification of {} images failed, classifying individually: {}",
+                        images.size(), e.getMessage());
+            }
+        }
+        List<JsonNode> results = new ArrayList<>(images.size());
+        for (PreparedImage image : images) {
+            results.add(classifyImage(image.getImageBytes(), image.getFilename()));
         }
+        return results;
+    }
+
+    /**
+     * Builds the Cloudinary public ID for a generated filename.
+     *
+     * @param filename the unique filename of the image
+     * @return the public ID inside the {@code crop-images/} folder
+     */
+    public String toPublicId(String filename) {
+        return "crop-images/" + filename;
     }
 
     /**
@@ -130,10 +367,23 @@ public class CropImageAnalysisService {
      *         {@code false} otherwise
      */
     private boolean isValidImageFile(MultipartFile file) {
-        if (file.isEmpty() || file.getOriginalFilename() == null) {
+        if (file.isEmpty()) {
+            return false;
+        }
+        return isAllowedImageName(file.getOriginalFilename());
+    }
+
+    /**
+     * Checks whether a filename has one of the allowed image extensions.
+     *
+     * @param filename the name of the file, possibly {@code null}
+     * @return {@code true} if the extension is jpg, jpeg, png, jfif or heic
+     */
+    public boolean isAllowedImageName(String filename) {
+        if (filename == null) {
             return false;
         }
-        String extension = getFileExtension(file.getOriginalFilename()).toLowerCase();
+        String extension = getFileExtension(filename).toLowerCase();
         return allowedExtensions.contains(extension);
     }
 
@@ -154,29 +404,30 @@ public class CropImageAnalysisService {
      * @param originalFilename the original name of the uploaded file
      * @return a unique filename in the format {@code UUID.extension}
      */
-    private String generateUniqueFilename(String originalFilename) {
+    public String generateUniqueFilename(String originalFilename) {
         String extension = getFileExtension(originalFilename);
         String uuid = UUID.randomUUID().toString();
         return uuid + "." + extension;
     }
 
     /**
-     * Sends the image file to a Flask API for disease analysis.
+     * Sends the image bytes to a Flask API for disease analysis.
      *
-     * @param file the image file to send for analysis
+     * @param imageBytes       the image bytes to send for analysis
+     * @param originalFilename the filename reported in the multipart body
      * @return the JSON response from the Flask API as a string
      * @throws AnyException if the API call fails or returns a non-200 status
      */
-    private String sendToFlaskAPI(MultipartFile file) {
+    private String sendToFlaskAPI(byte[] imageBytes, String originalFilename) {
         try {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new org.springframework.core.io.ByteArrayResource(file.getBytes()) {
+            body.add("file", new org.springframework.core.io.ByteArrayResource(imageBytes) {
                 @Override
                 public String getFilename() {
-                    return file.getOriginalFilename();
+                    return originalFilename;
                 }
             });
 
@@ -199,6 +450,47 @@ public class CropImageAnalysisService {
         }
     }
 
+    /**
+     * Sends several images to the Flask batch endpoint as repeated {@code files} parts.
+     *
+     * @param images the preprocessed images
+     * @return the parsed per-image responses, in request order
+     * @throws AnyException if the call fails or the response does not hold one result per image
+     */
+    private List<JsonNode> sendBatchToFlaskAPI(List<PreparedImage> images) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        for (PreparedImage image : images) {
+            String filename = image.getFilename();
+            body.add("files", new org.springframework.core.io.ByteArrayResource(image.getImageBytes()) {
+                @Override
+                public String getFilename() {
+                    return filename;
+                }
+            });
+        }
+
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                flaskApiUrl3 + "/analysis/batch",
+                new HttpEntity<>(body, headers),
+                String.class);
+        if (response.getStatusCode() != HttpStatus.OK) {
+            throw new AnyException(HttpStatus.BAD_GATEWAY.value(), "Batch analysis API failed with status " + response.getStatusCode());
+        }
+
+        // Accept either a bare array or {"results": [...]}
+        JsonNode root = objectMapper.readTree(response.getBody());
+        JsonNode results = root.isArray() ? root : root.path("results");
+        if (!results.isArray() || results.size() != images.size()) {
+            throw new AnyException(HttpStatus.BAD_GATEWAY.value(), "Batch analysis API returned an unexpected number of results.");
+        }
+        List<JsonNode> parsed = new ArrayList<>(images.size());
+        results.forEach(parsed::add);
+        return parsed;
+    }
+
     /**
      * Retrieves the analysis status for an image based on its filename.
      *
@@ -207,7 +499,7 @@ public class CropImageAnalysisService {
      */
     public String getAnalysisStatus(String filename) {
         try {
-            String publicId = "crop-images/" + filename;
+            String publicId = toPublicId(filename);
             Map result = cloudinary.api().resource(publicId, ObjectUtils.asMap("resource_type", "image"));
             return result != null ? "completed" : "error.image_analysis_no_file";
         } catch (Exception e) {
@@ -217,129 +509,320 @@ public class CropImageAnalysisService {
     }
 
     /**
-     * Deletes images from Cloudinary that are older than the specified number of days.
+     * Processes the JSON response from the Flask API, enhances it with Gemini AI, saves the results to the database,
+     * and generates formatted analysis results in English and Hindi.
      *
-     * @param daysOld the age threshold (in days) for images to be deleted
+     * @param jsonNode the JSON response from the Flask API
+     * @param userId   the ID of the user associated with the analysis
+     * @param imageUrl the Cloudinary URL of the uploaded image
+     * @return a {@link Map} containing formatted analysis results (HTML and plain text in English and Hindi),
+     *         success status, and other metadata
+     * @throws AnyException if the JSON response is invalid, the user is not found, or processing fails
+     */
+    public Map<String, Object> processImageAnalysis(JsonNode jsonNode, Long userId, String imageUrl) {
+        return saveAnalysis(enhanceAnalysis(jsonNode), userId, imageUrl);
+    }
+
+    /**
+     * Resolves the final disease details from the Flask response, preferring Gemini-enhanced values and
+     * falling back to the classifier output (or localized defaults) for any field Gemini could not supply.
+     *
+     * @param jsonNode the JSON response from the Flask API
+     * @return a {@link Map} keyed by {@code name_en}, {@code name_hi}, {@code cause_en}, {@code cause_hi},
+     *         {@code symptoms_en}, {@code symptoms_hi}, {@code suggestion_en}, {@code suggestion_hi},
+     *         {@code crop_type_en} and {@code crop_type_hi}
+     * @throws AnyException if the JSON response does not contain an {@code info} node
      */
-    public void cleanupOldFiles(int daysOld) {
+    public Map<String, String> enhanceAnalysis(JsonNode jsonNode) {
+        JsonNode info = jsonNode.get("info");
+        if (info == null) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid analysis response format.");
+        }
+
+        String originalNameEn = getNodeValue(info, "name_en", "Unknown disease");
+        String originalCropTypeEn = getNodeValue(info, "crop_type_en", null);
+        String originalCropTypeHi = getNodeValue(info, "crop_type_hi", null);
+
+        // Enhance with Gemini AI
+        Map<String, String> enhancedData = tryEnhanceWithGemini(originalNameEn, originalCropTypeEn, originalCropTypeHi);
+        return resolveDetails(info, enhancedData);
+    }
+
+    /**
+     * Validates the image and enhances the disease details with a single Gemini request carrying both the
+     * image and the classifier output. If the combined request fails, falls back to the separate validation
+     * and enhancement calls.
+     *
+     * @param image    the preprocessed image
+     * @param jsonNode the JSON response from the Flask API
+     * @return the resolved disease details, or {@link Optional#empty()} if the image is not a crop
+     * @throws AnyException if the JSON response does not contain an {@code info} node, or if the fallback
+     *                      validation call fails
+     */
+    public Optional<Map<String, String>> validateAndEnhance(PreparedImage image, JsonNode jsonNode) {
+        JsonNode info = jsonNode.get("info");
+        if (info == null) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid analysis response format.");
+        }
+
+        String contentHash = image.getContentHash();
+        Boolean cachedVerdict = analysisCache.get(contentHash).map(ImageAnalysisCacheEntry::getValidCrop).orElse(null);
+        if (Boolean.FALSE.equals(cachedVerdict)) {
+            return Optional.empty();
+        }
+        if (Boolean.TRUE.equals(cachedVerdict)) {
+            return Optional.of(enhanceAnalysis(jsonNode));
+        }
+
+        String originalNameEn = getNodeValue(info, "name_en", "Unknown disease");
+        String originalCropTypeEn = getNodeValue(info, "crop_type_en", null);
         try {
-            Map<String, Object> listParams = ObjectUtils.asMap(
-                    "prefix", "crop-images/",
-                    "resource_type", "image",
-                    "max_results", 500
+            Map<String, Object> inlineData = Map.of(
+                    "mime_type", image.getContentType() != null ? image.getContentType() : "image/jpeg",
+                    "data", Base64.getEncoder().encodeToString(image.getValidationImageBytes())
             );
-            Map resources = cloudinary.api().resources(listParams);
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> resourceList = (List<Map<String, Object>>) resources.get("resources");
-
-            long cutoffTime = System.currentTimeMillis() - (daysOld * 24L * 60 * 60 * 1000);
-
-            for (Map<String, Object> resource : resourceList) {
-                String createdAtStr = (String) resource.get("created_at");
-                long createdAt = java.time.ZonedDateTime.parse(createdAtStr).toInstant().toEpochMilli();
-                if (createdAt < cutoffTime) {
-                    String publicId = (String) resource.get("public_id");
-                    try {
-                        cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
-                        log.info("Deleted old image from Cloudinary: {}", publicId);
-                    } catch (Exception e) {
-                        log.error("Failed to delete image: {}", publicId, e);
-                    }
+            String generatedText = geminiApiHelper.callGeminiApiWithInlineDataForJson(GeminiCallGuard.Feature.IMAGE_VALIDATE_ENHANCE,
+                    buildValidationAndEnhancementPrompt(originalNameEn, originalCropTypeEn), inlineData);
+
+            JsonNode verdict = objectMapper.readTree(generatedText);
+            boolean validCrop = verdict.path("is_crop").asBoolean(false);
+            analysisCache.update(contentHash, entry -> entry.setValidCrop(validCrop));
+            if (!validCrop) {
+                log.info("Gemini rejected image as not a crop during combined validation");
+                return Optional.empty();
+            }
+
+            Map<String, String> enhancedData = new HashMap<>();
+            if (verdict.path("details").isObject()) {
+                enhancedData = objectMapper.convertValue(verdict.get("details"),
+                        new com.fasterxml.jackson.core.type.TypeReference<Map<String, String>>() {});
+                if (!validateEnhancedData(enhancedData)) {
+                    log.warn("Gemini combined response incomplete for disease: {}, using original data", originalNameEn);
+                    enhancedData = new HashMap<>();
                 }
             }
+            return Optional.of(resolveDetails(info, enhancedData));
+
         } catch (Exception e) {
-            log.error("Error cleaning up old images in Cloudinary: {}", e.getMessage(), e);
+            log.warn("Combined Gemini validation failed for disease: {}, falling back to separate calls. Error: {}",
+                    originalNameEn, e.getMessage());
+            if (!isValidCropImage(image)) {
+                return Optional.empty();
+            }
+            return Optional.of(enhanceAnalysis(jsonNode));
         }
     }
 
     /**
-     * Processes the JSON response from the Flask API, enhances it with Gemini AI, saves the results to the database,
-     * and generates formatted analysis results in English and Hindi.
+     * Validates an uploaded image before analysis starts. When the combined Gemini call is enabled the
+     * validation is deferred to {@link #validateAndEnhance}, so only a cached verdict is consulted here.
      *
-     * @param jsonNode the JSON response from the Flask API
+     * @param image the preprocessed image
+     * @return {@code false} if the image is known not to be a crop
+     * @throws AnyException if the Gemini validation call fails
+     */
+    public boolean passesPreAnalysisValidation(PreparedImage image) {
+        if (combinedGeminiCall) {
+            return analysisCache.get(image.getContentHash()).map(ImageAnalysisCacheEntry::getValidCrop).orElse(true);
+        }
+        return isValidCropImage(image);
+    }
+
+    /**
+     * @return {@code true} if crop validation is folded into the Gemini enhancement request
+     */
+    public boolean isCombinedGeminiCall() {
+        return combinedGeminiCall;
+    }
+
+    /**
+     * Merges Gemini-enhanced values with the classifier output, falling back to localized defaults.
+     *
+     * @param info         the {@code info} node of the Flask response
+     * @param enhancedData the Gemini-enhanced values, possibly empty
+     * @return the resolved disease details
+     */
+    private Map<String, String> resolveDetails(JsonNode info, Map<String, String> enhancedData) {
+        String originalNameEn = getNodeValue(info, "name_en", "Unknown disease");
+        String originalCropTypeEn = getNodeValue(info, "crop_type_en", null);
+        String originalCropTypeHi = getNodeValue(info, "crop_type_hi", null);
+
+        Map<String, String> details = new HashMap<>();
+        details.put("name_en", enhancedData.getOrDefault("name_en", originalNameEn));
+        details.put("name_hi", enhancedData.getOrDefault("name_hi", getNodeValue(info, "name_hi", "अज्ञात रोग")));
+        details.put("cause_en", enhancedData.getOrDefault("cause_en", getNodeValue(info, "cause_en", "Unknown cause")));
+        details.put("cause_hi", enhancedData.getOrDefault("cause_hi", getNodeValue(info, "cause_hi", "अज्ञात कारण")));
+        details.put("symptoms_en", enhancedData.getOrDefault("symptoms_en", getNodeValue(info, "symptoms_en", "No specific symptoms detected")));
+        details.put("symptoms_hi", enhancedData.getOrDefault("symptoms_hi", getNodeValue(info, "symptoms_hi", "कोई विशिष्ट लक्षण नहीं पाया गया")));
+        details.put("suggestion_en", enhancedData.getOrDefault("suggestion_en", getNodeValue(info, "suggestion_en", "No specific treatment suggestion available.")));
+        details.put("suggestion_hi", enhancedData.getOrDefault("suggestion_hi", getNodeValue(info, "suggestion_hi", "कोई विशिष्ट उपचार सुझाव उपलब्ध नहीं।")));
+        details.put("crop_type_en", enhancedData.getOrDefault("crop_type_en", originalCropTypeEn != null ? originalCropTypeEn : "Unknown"));
+        details.put("crop_type_hi", enhancedData.getOrDefault("crop_type_hi", originalCropTypeHi != null ? originalCropTypeHi : "अज्ञात"));
+        return details;
+    }
+
+    /**
+     * Saves resolved disease details for a user and generates formatted analysis results in English and Hindi.
+     *
+     * @param details  the resolved disease details produced by {@link #enhanceAnalysis(JsonNode)}
      * @param userId   the ID of the user associated with the analysis
      * @param imageUrl the Cloudinary URL of the uploaded image
      * @return a {@link Map} containing formatted analysis results (HTML and plain text in English and Hindi),
      *         success status, and other metadata
-     * @throws AnyException if the JSON response is invalid, the user is not found, or processing fails
+     * @throws AnyException if the user is not found or the record cannot be saved
      */
-    public Map<String, Object> processImageAnalysis(JsonNode jsonNode, Long userId, String imageUrl) {
-        Map<String, Object> response = new HashMap<>();
+    public Map<String, Object> saveAnalysis(Map<String, String> details, Long userId, String imageUrl) {
         try {
-            JsonNode info = jsonNode.get("info");
-            if (info == null) {
-                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid analysis response format.");
-            }
-
-            String originalCauseEn = getNodeValue(info, "cause_en", "Unknown cause");
-            String originalCauseHi = getNodeValue(info, "cause_hi", "अज्ञात कारण");
-            String originalNameEn = getNodeValue(info, "name_en", "Unknown disease");
-            String originalNameHi = getNodeValue(info, "name_hi", "अज्ञात रोग");
-            String originalSuggestionEn = getNodeValue(info, "suggestion_en", "No specific treatment suggestion available.");
-            String originalSuggestionHi = getNodeValue(info, "suggestion_hi", "कोई विशिष्ट उपचार सुझाव उपलब्ध नहीं।");
-            String originalSymptomsEn = getNodeValue(info, "symptoms_en", "No specific symptoms detected");
-            String originalSymptomsHi = getNodeValue(info, "symptoms_hi", "कोई विशिष्ट लक्षण नहीं पाया गया");
-            String originalCropTypeEn = getNodeValue(info, "crop_type_en", null);
-            String originalCropTypeHi = getNodeValue(info, "crop_type_hi", null);
-
-            // Enhance with Gemini AI
-            Map<String, String> enhancedData = tryEnhanceWithGemini(originalNameEn, originalCropTypeEn, originalCropTypeHi);
-
-            String finalCauseEn = enhancedData.getOrDefault("cause_en", originalCauseEn);
-            String finalCauseHi = enhancedData.getOrDefault("cause_hi", originalCauseHi);
-            String finalNameEn = enhancedData.getOrDefault("name_en", originalNameEn);
-            String finalNameHi = enhancedData.getOrDefault("name_hi", originalNameHi);
-            String finalSuggestionEn = enhancedData.getOrDefault("suggestion_en", originalSuggestionEn);
-            String finalSuggestionHi = enhancedData.getOrDefault("suggestion_hi", originalSuggestionHi);
-            String finalSymptomsEn = enhancedData.getOrDefault("symptoms_en", originalSymptomsEn);
-            String finalSymptomsHi = enhancedData.getOrDefault("symptoms_hi", originalSymptomsHi);
-            String finalCropTypeEn = enhancedData.getOrDefault("crop_type_en", originalCropTypeEn != null ? originalCropTypeEn : "Unknown");
-            String finalCropTypeHi = enhancedData.getOrDefault("crop_type_hi", originalCropTypeHi != null ? originalCropTypeHi : "अज्ञात");
-
-            // Generate HTML and plain text results
-            response.put("analysisResultEn", generateResultHtml(finalNameEn, finalCauseEn, finalSymptomsEn, finalSuggestionEn, "en"));
-            response.put("analysisResultHi", generateResultHtml(finalNameHi, finalCauseHi, finalSymptomsHi, finalSuggestionHi, "hi"));
-            response.put("analysisTextEn", generatePlainTextResult(finalNameEn, finalCauseEn, finalSymptomsEn, finalSuggestionEn, finalCropTypeEn));
-            response.put("analysisTextHi", generatePlainTextResult(finalNameHi, finalCauseHi, finalSymptomsHi, finalSuggestionHi, finalCropTypeHi));
-
             // Save to database
-            CropDisease disease = new CropDisease();
-            disease.setNameEn(finalNameEn);
-            disease.setNameHi(finalNameHi);
-            disease.setCauseEn(finalCauseEn);
-            disease.setCauseHi(finalCauseHi);
-            disease.setSymptomsEn(finalSymptomsEn);
-            disease.setSymptomsHi(finalSymptomsHi);
-            disease.setSuggestionEn(finalSuggestionEn);
-            disease.setSuggestionHi(finalSuggestionHi);
-            disease.setCropTypeEn(finalCropTypeEn);
-            disease.setCropTypeHi(finalCropTypeHi);
-            disease.setImagePath(imageUrl);
+            CropDisease disease = toCropDisease(details, imageUrl);
             disease.setUserDetails1(userRepo.findById(userId).orElseThrow(() ->
                     new AnyException(HttpStatus.NOT_FOUND.value(), "User not found")));
             cropDiseaseRepository.save(disease);
-            log.info("Saved disease info: {}, cropTypeEn: {}, cropTypeHi: {}, imagePath: {}", finalNameEn, finalCropTypeEn, finalCropTypeHi, imageUrl);
-
-            // Mobile-friendly response
-            response.put("success", true);
-            response.put("showResults", true);
-            response.put("message", "Analysis completed successfully");
-            response.put("diseaseName", finalNameEn);
-            response.put("cropTypeEn", finalCropTypeEn);
-            response.put("cropTypeHi", finalCropTypeHi);
-            response.put("imageUrl", imageUrl);
+            log.info("Saved disease info: {}, cropTypeEn: {}, cropTypeHi: {}, imagePath: {}",
+                    disease.getNameEn(), disease.getCropTypeEn(), disease.getCropTypeHi(), imageUrl);
+
+            return buildAnalysisResponse(details, imageUrl);
 
         } catch (Exception e) {
             log.error("Error processing image analysis: {}", e.getMessage(), e);
-            response.put("success", false);
-            response.put("showResults", false);
-            response.put("error", "Failed to process image analysis: " + e.getMessage());
             throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to process image analysis.");
         }
+    }
+
+    /**
+     * Maps resolved disease details onto a new, unsaved {@link CropDisease} without an owner.
+     *
+     * @param details  the resolved disease details produced by {@link #enhanceAnalysis(JsonNode)}
+     * @param imageUrl the Cloudinary URL of the uploaded image
+     * @return the unsaved entity
+     */
+    public CropDisease toCropDisease(Map<String, String> details, String imageUrl) {
+        CropDisease disease = new CropDisease();
+        disease.setNameEn(details.get("name_en"));
+        disease.setNameHi(details.get("name_hi"));
+        disease.setCauseEn(details.get("cause_en"));
+        disease.setCauseHi(details.get("cause_hi"));
+        disease.setSymptomsEn(details.get("symptoms_en"));
+        disease.setSymptomsHi(details.get("symptoms_hi"));
+        disease.setSuggestionEn(details.get("suggestion_en"));
+        disease.setSuggestionHi(details.get("suggestion_hi"));
+        disease.setCropTypeEn(details.get("crop_type_en"));
+        disease.setCropTypeHi(details.get("crop_type_hi"));
+        disease.setImagePath(imageUrl);
+        return disease;
+    }
+
+    /**
+     * Generates the mobile-friendly analysis response (HTML and plain text in English and Hindi) without saving anything.
+     *
+     * @param details  the resolved disease details produced by {@link #enhanceAnalysis(JsonNode)}
+     * @param imageUrl the Cloudinary URL of the uploaded image
+     * @return a {@link Map} containing formatted analysis results, success status, and other metadata
+     */
+    public Map<String, Object> buildAnalysisResponse(Map<String, String> details, String imageUrl) {
+        String finalNameEn = details.get("name_en");
+        String finalNameHi = details.get("name_hi");
+        String finalCauseEn = details.get("cause_en");
+        String finalCauseHi = details.get("cause_hi");
+        String finalSymptomsEn = details.get("symptoms_en");
+        String finalSymptomsHi = details.get("symptoms_hi");
+        String finalSuggestionEn = details.get("suggestion_en");
+        String finalSuggestionHi = details.get("suggestion_hi");
+        String finalCropTypeEn = details.get("crop_type_en");
+        String finalCropTypeHi = details.get("crop_type_hi");
+
+        Map<String, Object> response = new HashMap<>();
+
+        // Generate HTML and plain text results
+        response.put("analysisResultEn", generateResultHtml(finalNameEn, finalCauseEn, finalSymptomsEn, finalSuggestionEn, "en"));
+        response.put("analysisResultHi", generateResultHtml(finalNameHi, finalCauseHi, finalSymptomsHi, finalSuggestionHi, "hi"));
+        response.put("analysisTextEn", generatePlainTextResult(finalNameEn, finalCauseEn, finalSymptomsEn, finalSuggestionEn, finalCropTypeEn));
+        response.put("analysisTextHi", generatePlainTextResult(finalNameHi, finalCauseHi, finalSymptomsHi, finalSuggestionHi, finalCropTypeHi));
+
+        // Mobile-friendly response
+        response.put("success", true);
+        response.put("showResults", true);
+        response.put("message", "Analysis completed successfully");
+        response.put("diseaseName", finalNameEn);
+        response.put("cropTypeEn", finalCropTypeEn);
+        response.put("cropTypeHi", finalCropTypeHi);
+        response.put("imageUrl", imageUrl);
         return response;
     }
 
+    /**
+     * Answers an analysis request from the content-hash cache when the same image was analysed before.
+     * The cached Cloudinary asset is referenced instead of uploading again, and a {@link CropDisease} row is
+     * only saved if this user does not already have one for the image.
+     *
+     * @param contentHash the SHA-256 of the image bytes
+     * @param userId      the ID of the user associated with the analysis
+     * @return the analysis response, or {@link Optional#empty()} if the image has no complete cache entry
+     */
+    public Optional<Map<String, Object>> findCachedAnalysis(String contentHash, Long userId) {
+        Optional<ImageAnalysisCacheEntry> cached = analysisCache.get(contentHash)
+                .filter(ImageAnalysisCacheEntry::isAnalysisComplete);
+        if (cached.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ImageAnalysisCacheEntry entry = cached.get();
+        Map<String, Object> response;
+        if (entry.getSavedUserIds().contains(userId)) {
+            response = buildAnalysisResponse(entry.getDetails(), entry.getImageUrl());
+        } else {
+            response = saveAnalysis(entry.getDetails(), userId, entry.getImageUrl());
+            analysisCache.update(contentHash, e -> e.getSavedUserIds().add(userId));
+        }
+        response.put("imageUrl", entry.getImageUrl());
+        response.put("filename", entry.getFilename());
+        response.put("publicId", entry.getPublicId());
+        response.put("cached", true);
+        log.info("Served image analysis from cache for publicId={}", entry.getPublicId());
+        return Optional.of(response);
+    }
+
+    /**
+     * Records a completed analysis in the content-hash cache.
+     *
+     * @param contentHash        the SHA-256 of the image bytes
+     * @param classifierResponse the raw Flask classifier response
+     * @param details            the resolved disease details
+     * @param filename           the unique filename of the uploaded image
+     * @param imageUrl           the Cloudinary URL of the uploaded image
+     * @param userId             the ID of the user the analysis was saved for
+     */
+    public void cacheAnalysis(String contentHash, JsonNode classifierResponse, Map<String, String> details,
+                              String filename, String imageUrl, Long userId) {
+        analysisCache.update(contentHash, entry -> {
+            entry.setClassifierResponse(classifierResponse.toString());
+            entry.setDetails(details);
+            entry.setFilename(filename);
+            entry.setPublicId(toPublicId(filename));
+            entry.setImageUrl(imageUrl);
+            entry.getSavedUserIds().add(userId);
+        });
+    }
+
+    /**
+     * Validates that an image shows a crop using its downscaled validation copy, reusing a cached Gemini
+     * verdict for identical images.
+     *
+     * @param image the preprocessed image
+     * @return {@code true} if the image is identified as a crop or plant
+     * @throws AnyException if the Gemini validation call fails
+     */
+    public boolean isValidCropImage(PreparedImage image) {
+        String contentHash = image.getContentHash();
+        Optional<Boolean> cached = analysisCache.get(contentHash).map(ImageAnalysisCacheEntry::getValidCrop);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        boolean valid = geminiValidationService.isValidCropImage(image.getValidationImageBytes(), image.getContentType());
+        analysisCache.update(contentHash, entry -> entry.setValidCrop(valid));
+        return valid;
+    }
+
     /**
      * Enhances disease analysis data using the Gemini AI API, falling back to original data if enhancement fails.
      *
@@ -355,7 +838,7 @@ public class CropImageAnalysisService {
             }
 
             String prompt = buildEnhancementPrompt(diseaseName, cropTypeEn, cropTypeHi);
-            String generatedText = geminiApiHelper.callGeminiApiForJson(prompt);
+            String generatedText = geminiApiHelper.callGeminiApiForJson(GeminiCallGuard.Feature.IMAGE_ENHANCE, prompt);
 
             Map<String, String> enhancedData = objectMapper.readValue(generatedText,
                     new com.fasterxml.jackson.core.type.TypeReference<Map<String, String>>() {});
@@ -409,6 +892,43 @@ public class CropImageAnalysisService {
         );
     }
 
+    /**
+     * Builds a prompt asking Gemini to check that the attached image shows a crop and, if so, to describe the
+     * disease reported by the classifier, so validation and enhancement share one request.
+     *
+     * @param diseaseName the disease name reported by the classifier
+     * @param cropTypeEn  the crop type in English (optional)
+     * @return a formatted prompt string for the Gemini AI API
+     */
+    private String buildValidationAndEnhancementPrompt(String diseaseName, String cropTypeEn) {
+        String plantContext = (cropTypeEn != null && !cropTypeEn.trim().isEmpty()) ?
+                " on " + cropTypeEn : "";
+        String diseaseContext = "Unknown disease".equals(diseaseName) ?
+                "The image classifier could not identify the disease; identify it from the image." :
+                String.format("An image classifier identified the disease as '%s'%s.", diseaseName, plantContext);
+
+        return "First decide whether the attached image shows a crop or plant. " + diseaseContext + "\n" +
+                "Return a JSON object with exactly these fields:\n" +
+                "{\n" +
+                "  \"is_crop\": true or false,\n" +
+                "  \"details\": null if is_crop is false, otherwise an object with these fields:\n" +
+                "  {\n" +
+                "    \"name_en\": \"Disease name in English\",\n" +
+                "    \"name_hi\": \"Disease name in Hindi (देवनागरी script)\",\n" +
+                "    \"cause_en\": \"Detailed cause/pathogen information in English (3-4 sentences)\",\n" +
+                "    \"cause_hi\": \"Detailed cause/pathogen information in Hindi (3-4 sentences)\",\n" +
+                "    \"symptoms_en\": \"Comprehensive symptoms description in English (4-5 sentences)\",\n" +
+                "    \"symptoms_hi\": \"Comprehensive symptoms description in Hindi (4-5 sentences)\",\n" +
+                "    \"suggestion_en\": \"Detailed management and treatment suggestions in English (5-6 sentences)\",\n" +
+                "    \"suggestion_hi\": \"Detailed management and treatment suggestions in Hindi (5-6 sentences)\",\n" +
+                "    \"crop_type_en\": \"Specific crop type affected by this disease in English (e.g., Wheat, Rice, Tomato)\",\n" +
+                "    \"crop_type_hi\": \"Specific crop type affected by this disease in Hindi (e.g., गेहूं, चावल, टमाटर)\"\n" +
+                "  }\n" +
+                "}\n\n" +
+                "Ensure all information is scientifically accurate, practical for farmers, and both English and Hindi content is complete and meaningful. " +
+                "For Hindi translations, use proper agricultural terminology that Indian farmers would understand.";
+    }
+
     /**
      * Validates the enhanced data returned by the Gemini AI API to ensure all required fields are present and non-empty.
      *
@@ -524,4 +1044,80 @@ public class CropImageAnalysisService {
         return input.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
                 .replace("\"", "&quot;").replace("'", "&#39;");
     }
-}
\ No newline at end of file
+
+    /**
+     * A Cloudinary upload running concurrently with the rest of the analysis. If the analysis fails, the upload
+     * is discarded: an upload that has not started yet is skipped, and one that is in flight or already finished
+     * has its asset destroyed once it completes. Once the analysis starts saving, the upload is kept and later
+     * discards are ignored, since a saved row may already reference the image.
+     */
+    public final class PendingUpload {
+
+        private enum Fate { PENDING, KEPT, DISCARDED }
+
+        private final String publicId;
+        private final AtomicReference<Fate> fate = new AtomicReference<>(Fate.PENDING);
+        private final CompletableFuture<String> task;
+
+        private PendingUpload(byte[] imageBytes, String publicId, Runnable onStart) {
+            this.publicId = publicId;
+            CompletableFuture<String> started;
+            try {
+                started = CompletableFuture.supplyAsync(() -> {
+                    if (fate.get() == Fate.DISCARDED) {
+                        return null;
+                    }
+                    if (onStart != null) {
+                        onStart.run();
+                    }
+                    return uploadImage(imageBytes, publicId);
+                }, uploadExecutor);
+            } catch (RejectedExecutionException e) {
+                log.warn("Upload executor saturated, uploading {} on the calling thread", publicId);
+                if (onStart != null) {
+                    onStart.run();
+                }
+                started = CompletableFuture.completedFuture(uploadImage(imageBytes, publicId));
+            }
+            this.task = started;
+        }
+
+        /**
+         * Returns a view of the upload result. Timeouts or cancellation applied to the returned future do not
+         * affect the upload itself, so {@link #discard()} can still clean up a late-finishing upload.
+         *
+         * @return a future completing with the secure URL of the uploaded image
+         */
+        public CompletableFuture<String> imageUrl() {
+            return task.copy();
+        }
+
+        /**
+         * Marks the upload as kept, so {@link #discard()} no longer destroys it. Called before saving.
+         *
+         * @throws IllegalStateException if the upload has already been discarded
+         */
+        public void keep() {
+            if (!fate.compareAndSet(Fate.PENDING, Fate.KEPT) && fate.get() == Fate.DISCARDED) {
+                throw new IllegalStateException("Upload " + publicId + " was already discarded");
+            }
+        }
+
+        /**
+         * Abandons the upload, destroying the Cloudinary asset if it was (or will be) created and evicting any
+         * cache entry pointing at it. Does nothing once the upload has been kept.
+         */
+        public void discard() {
+            if (fate.compareAndSet(Fate.PENDING, Fate.DISCARDED)) {
+                task.whenComplete((url, ex) -> {
+                    if (url != null) {
+                        destroyImage(publicId);
+                        analysisCache.evictByPublicIds(List.of(publicId));
+                    }
+                });
+            } else if (fate.get() == Fate.KEPT) {
+                log.debug("Keeping upload {} because saving has started", publicId);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.agriconnect.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Downscales and re-encodes uploaded crop images before they are validated, classified and stored.
+ * <p>
+ * Each upload is decoded once (subsampled while decoding when it is much larger than needed), rotated
+ * according to its EXIF orientation, scaled so its longest edge fits the classifier size and re-encoded
+ * as a baseline JPEG without metadata. A second, smaller JPEG is derived from that for Gemini requests.
+ * Images that cannot be decoded (e.g. HEIC, which ImageIO does not support) are passed through unchanged.
+ */
+@Slf4j
+@Service
+public class CropImagePreprocessor {
+
+    private static final String JPEG_CONTENT_TYPE = "image/jpeg";
+
+    @Value("${image.preprocess.enabled:true}")
+    private boolean enabled;
+
+    @Value("${image.preprocess.classifier-max-dimension:512}")
+    private int classifierMaxDimension;
+
+    @Value("${image.preprocess.validation-max-dimension:384}")
+    private int validationMaxDimension;
+
+    @Value("${image.preprocess.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    /**
+     * Prepares an uploaded image for analysis.
+     *
+     * @param upload           the upload as read from the request; not retained after this call
+     * @param originalFilename the filename supplied by the client
+     * @param contentType      the MIME type supplied by the client
+     * @param contentHash      the SHA-256 of the upload
+     * @return the prepared image; holds a copy of the original bytes if preprocessing is disabled or not possible
+     */
+    public PreparedImage prepare(UploadBuffer upload, String originalFilename, String contentType, String contentHash) {
+        if (enabled) {
+            try {
+                BufferedImage decoded = decode(upload, Math.max(classifierMaxDimension, validationMaxDimension));
+                if (decoded != null) {
+                    int orientation = readExifOrientation(upload.array(), upload.length());
+                    BufferedImage classifierImage = scale(decoded, orientation, classifierMaxDimension);
+                    BufferedImage validationImage = validationMaxDimension < classifierMaxDimension
+                            ? scale(classifierImage, 1, validationMaxDimension)
+                            : classifierImage;
+
+                    byte[] imageBytes = encodeJpeg(classifierImage);
+                    byte[] validationBytes = validationImage == classifierImage ? imageBytes : encodeJpeg(validationImage);
+                    log.debug("Preprocessed {}: {} bytes -> {} bytes ({}x{}), validation {} bytes",
+                            originalFilename, upload.length(), imageBytes.length,
+                            classifierImage.getWidth(), classifierImage.getHeight(), validationBytes.length);
+                    return new PreparedImage(originalFilename, toJpegFilename(originalFilename), contentHash,
+                            JPEG_CONTENT_TYPE, imageBytes, validationBytes);
+                }
+                log.debug("No ImageIO decoder for {}, sending original bytes", originalFilename);
+            } catch (Exception e) {
+                log.warn("Failed to preprocess image {}, sending original bytes: {}", originalFilename, e.getMessage());
+            }
+        }
+        byte[] originalBytes = upload.toByteArray();
+        return new PreparedImage(originalFilename, originalFilename, contentHash,
+                contentType, originalBytes, originalBytes);
+    }
+
+    /**
+     * Decodes the image, subsampling rows and columns while reading so a large photo never materialises at
+     * full resolution. At least twice the target size is kept so the final scaling step stays smooth.
+     *
+     * @return the decoded image, or {@code null} if no decoder supports the format
+     */
+    private BufferedImage decode(UploadBuffer upload, int targetDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(upload.inputStream())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestEdge / (targetDimension * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Applies the EXIF orientation and scales the image so its longest edge is at most {@code maxDimension},
+     * drawing onto an opaque RGB canvas (transparent areas become white) in a single pass.
+     */
+    private BufferedImage scale(BufferedImage source, int orientation, int maxDimension) {
+        boolean swapsAxes = orientation >= 5 && orientation <= 8;
+        int orientedWidth = swapsAxes ? source.getHeight() : source.getWidth();
+        int orientedHeight = swapsAxes ? source.getWidth() : source.getHeight();
+
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(orientedWidth, orientedHeight));
+        int width = Math.max(1, (int) Math.round(orientedWidth * ratio));
+        int height = Math.max(1, (int) Math.round(orientedHeight * ratio));
+
+        AffineTransform transform = AffineTransform.getScaleInstance(
+                (double) width / orientedWidth, (double) height / orientedHeight);
+        transform.concatenate(orientationTransform(orientation, orientedWidth, orientedHeight));
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Maps source pixel coordinates to their upright position for the given EXIF orientation (1-8).
+     */
+    private AffineTransform orientationTransform(int orientation, int width, int height) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, width, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, width, height);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, height);
+            default -> new AffineTransform();
+        };
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the orientation tag (0x0112) from the EXIF block of a JPEG, since ImageIO ignores it.
+     *
+     * @return the orientation (1-8), or 1 if the image is not a JPEG or has no orientation tag
+     */
+    private int readExifOrientation(byte[] bytes, int length) {
+        if (length < 4 || (bytes[0] & 0xFF) != 0xFF || (bytes[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int offset = 2;
+        while (offset + 4 <= length && (bytes[offset] & 0xFF) == 0xFF) {
+            int marker = bytes[offset + 1] & 0xFF;
+            int segmentLength = ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+            if (marker == 0xDA || segmentLength < 2) {
+                break; // start of scan: no more metadata segments
+            }
+            int segmentStart = offset + 4;
+            if (marker == 0xE1 && segmentStart + 14 <= length
+                    && bytes[segmentStart] == 'E' && bytes[segmentStart + 1] == 'x'
+                    && bytes[segmentStart + 2] == 'i' && bytes[segmentStart + 3] == 'f') {
+                return readTiffOrientation(bytes, segmentStart + 6, Math.min(length, offset + 2 + segmentLength));
+            }
+            offset += 2 + segmentLength;
+        }
+        return 1;
+    }
+
+    private int readTiffOrientation(byte[] bytes, int tiffStart, int end) {
+        boolean littleEndian = bytes[tiffStart] == 'I';
+        int ifdOffset = readInt(bytes, tiffStart + 4, littleEndian);
+        int entriesStart = tiffStart + ifdOffset;
+        if (ifdOffset < 8 || entriesStart + 2 > end) {
+            return 1;
+        }
+        int entryCount = readShort(bytes, entriesStart, littleEndian);
+        for (int i = 0; i < entryCount; i++) {
+            int entry = entriesStart + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(bytes, entry, littleEndian) == 0x0112) {
+                int orientation = readShort(bytes, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    private int readShort(byte[] bytes, int offset, boolean littleEndian) {
+        int b0 = bytes[offset] & 0xFF;
+        int b1 = bytes[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private int readInt(byte[] bytes, int offset, boolean littleEndian) {
+        int high = readShort(bytes, littleEndian ? offset + 2 : offset, littleEndian);
+        int low = readShort(bytes, littleEndian ? offset : offset + 2, littleEndian);
+        return (high << 16) | low;
+    }
+
+    private String toJpegFilename(String originalFilename) {
+        if (originalFilename == null) {
+            return "image.jpg";
+        }
+        int lastDotIndex = originalFilename.lastIndexOf('.');
+        return (lastDotIndex > 0 ? originalFilename.substring(0, lastDotIndex) : originalFilename) + ".jpg";
+    }
+}
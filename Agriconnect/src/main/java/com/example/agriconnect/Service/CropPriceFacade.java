@@ -2,17 +2,23 @@ package com.example.agriconnect.Service;
 
 import com.example.Authentication.Components.UserPrinciple;
 import com.example.Authentication.repository.UserRepo;
+import com.example.agriconnect.Repository.CropPriceAnalyticsRepo;
+import com.example.common.DTO.CursorPage;
 import com.example.common.Exception.AnyException;
 import com.example.common.Model.Crop;
 import com.example.common.Model.LocationMapping;
 import com.example.common.Model.UserDetails1;
 import com.example.common.util.LocationHelper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -29,6 +35,18 @@ public class CropPriceFacade {
     private final UserRepo userRepo;
     private final LocationHelper locationHelper;
 
+    @Value("${price.prediction.batch.max-rows:100}")
+    private int maxBatchRows;
+
+    @Value("${history.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${price.analytics.default-days:90}")
+    private int analyticsDefaultDays;
+
+    @Value("${price.rollup.max-trend-days:365}")
+    private int maxTrendDays;
+
     /**
      * Constructs a new {@code CropPriceFacade} with the specified dependencies.
      *
@@ -43,34 +61,113 @@ public class CropPriceFacade {
     }
 
     /**
-     * Retrieves market dashboard data for an authenticated user, optionally filtered by state.
-     * Returns a map containing the page title, unique states, and market data associated with the user.
+     * Retrieves one page of market dashboard data for an authenticated user, newest first, optionally filtered
+     * by state. Returns a map containing the page title, unique states, the market data on the page and the
+     * cursor of the next page.
      *
      * @param userPrinciples the authenticated user's details
      * @param state         the state to filter market data by (optional)
-     * @return a {@link ResponseEntity} containing a map with the page title, unique states, and market data
-     * @throws AnyException if no market data is available (HTTP 404)
+     * @param before        the {@code nextCursor} of the previous page (optional; omitted for the first page)
+     * @param size          the maximum number of entries on the page
+     * @return a {@link ResponseEntity} containing a map with the page title, unique states, market data and next cursor
+     * @throws AnyException if the page size is out of range (HTTP 400) or no market data is available (HTTP 404)
      */
-    public ResponseEntity<?> getDashboard(UserPrinciple userPrinciples, String state) {
+    public ResponseEntity<?> getDashboard(UserPrinciple userPrinciples, String state, Long before, int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Size must be between 1 and " + maxPageSize);
+        }
         Long userId = userPrinciples.getUserId();
-        List<Crop> allData = services.GetAllMarketDetailsById(userId);
+        CursorPage<Crop> page = services.getMarketDetailsPage(userId, blankToNull(state), before, size);
         Set<String> uniqueStates = services.getUniqueState(userId);
 
-        List<Crop> filteredData = (state != null && !state.isEmpty())
-                ? services.findByStateAndUserId(state, userId)
-                : allData;
-
-        if (allData.isEmpty() && filteredData.isEmpty()) {
+        if (page.items().isEmpty() && before == null) {
             throw new AnyException(HttpStatus.NOT_FOUND.value(), "No market data available");
         }
 
+        // nextCursor is null on the last page, which Map.of does not allow
+        Map<String, Object> response = new HashMap<>();
+        response.put("pageTitle", "Farmer's Market Dashboard");
+        response.put("state", uniqueStates);
+        response.put("allMarketData", page.items());
+        response.put("nextCursor", page.nextCursor());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Retrieves aggregated price analytics for an authenticated user: min/max/avg best price per crop and
+     * market, and a daily or weekly series per crop and market. Aggregation runs in the database, so the
+     * payload grows with the number of groups and buckets rather than with the number of predictions.
+     *
+     * @param userPrinciples the authenticated user's details
+     * @param state         the state to filter by (optional)
+     * @param cropName      the crop to filter by (optional)
+     * @param market        the market to filter by (optional)
+     * @param bucket        the series bucket, {@code daily} or {@code weekly}
+     * @param from          the first arrival date (optional; defaults to {@code price.analytics.default-days} before {@code to})
+     * @param to            the last arrival date (optional; defaults to today)
+     * @return a {@link ResponseEntity} containing a map with the unique states, the applied range, the per-group
+     *         statistics and the series
+     * @throws AnyException if the bucket is unknown or the range is inverted (HTTP 400)
+     */
+    public ResponseEntity<?> getAnalytics(UserPrinciple userPrinciples, String state, String cropName, String market,
+                                          String bucket, LocalDate from, LocalDate to) {
+        CropPriceAnalyticsRepo.Bucket seriesBucket;
+        try {
+            seriesBucket = CropPriceAnalyticsRepo.Bucket.valueOf(bucket.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Bucket must be daily or weekly");
+        }
+        LocalDate rangeEnd = to != null ? to : LocalDate.now();
+        LocalDate rangeStart = from != null ? from : rangeEnd.minusDays(analyticsDefaultDays);
+        if (rangeStart.isAfter(rangeEnd)) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "'from' must not be after 'to'");
+        }
+
+        Long userId = userPrinciples.getUserId();
+        CropPriceAnalyticsRepo.Filter filter = new CropPriceAnalyticsRepo.Filter(
+                blankToNull(state), blankToNull(cropName), blankToNull(market), rangeStart, rangeEnd);
+
         return ResponseEntity.ok(Map.of(
-                "pageTitle", "Farmer's Market Dashboard",
-                "state", uniqueStates,
-                "allMarketData", allData
+                "state", services.getUniqueState(userId),
+                "bucket", seriesBucket.name().toLowerCase(Locale.ROOT),
+                "from", rangeStart,
+                "to", rangeEnd,
+                "groups", services.getPriceStats(userId, filter),
+                "series", services.getPriceSeries(userId, seriesBucket, filter)
         ));
     }
 
+    /**
+     * Retrieves the daily best-price trend of a crop across all users, such as onion in Nashik over the last
+     * 30 days, from the pre-aggregated price rollups.
+     *
+     * @param cropName the crop name
+     * @param state    the state to narrow to (optional)
+     * @param district the district to narrow to (optional)
+     * @param market   the market to narrow to (optional)
+     * @param days     the number of days up to and including today
+     * @return a {@link ResponseEntity} containing a map with the crop, the number of days and one point per day
+     * @throws AnyException if the crop is missing or the number of days is out of range (HTTP 400)
+     */
+    public ResponseEntity<?> getTrend(String cropName, String state, String district, String market, int days) {
+        String crop = blankToNull(cropName);
+        if (crop == null) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Crop is required");
+        }
+        if (days < 1 || days > maxTrendDays) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Days must be between 1 and " + maxTrendDays);
+        }
+        return ResponseEntity.ok(Map.of(
+                "crop", crop,
+                "days", days,
+                "trend", services.getDailyTrend(crop, blankToNull(state), blankToNull(district), blankToNull(market), days)
+        ));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
     /**
      * Prepares data for the crop price prediction page, including location information based on provided
      * latitude and longitude, and lists of states, districts, and markets.
@@ -136,4 +233,41 @@ public class CropPriceFacade {
                     "Failed to predict crop price: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Predicts prices for a basket of crops (for example the same crops across several nearby markets) for an
+     * authenticated user. Rows that cannot be predicted are reported individually instead of failing the batch.
+     *
+     * @param userPrinciples the authenticated user's details
+     * @param crops         the crops to predict, at most {@code price.prediction.batch.max-rows}
+     * @return a {@link ResponseEntity} containing a map with a message, the predicted and failed counts, and
+     *         one result per crop in input order
+     * @throws AnyException if the batch is empty or too large (HTTP 400), the user is not found (HTTP 404),
+     *                      or saving the predictions fails (HTTP 500)
+     */
+    public ResponseEntity<?> predictCrops(UserPrinciple userPrinciples, List<Crop> crops) {
+        if (crops == null || crops.isEmpty()) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "At least one crop is required");
+        }
+        if (crops.size() > maxBatchRows) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(),
+                    "At most " + maxBatchRows + " crops can be predicted at once");
+        }
+
+        Long userId = userPrinciples.getUserId();
+        UserDetails1 userDetails1 = userRepo.findByUserId(userId);
+        if (userDetails1 == null) {
+            throw new AnyException(HttpStatus.NOT_FOUND.value(), "User not found");
+        }
+        crops.forEach(crop -> crop.setUserDetails1(userDetails1));
+
+        List<Map<String, Object>> results = services.getPredictions(crops, userId);
+        long predicted = results.stream().filter(result -> Boolean.TRUE.equals(result.get("success"))).count();
+        return ResponseEntity.ok(Map.of(
+                "message", "Crop prices predicted for " + predicted + " of " + crops.size() + " crops",
+                "predicted", predicted,
+                "failed", crops.size() - predicted,
+                "results", results
+        ));
+    }
+}
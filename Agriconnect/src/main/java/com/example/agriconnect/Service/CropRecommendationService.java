@@ -1,5 +1,6 @@
 package com.example.agriconnect.Service;
 
+import com.example.common.DTO.CursorPage;
 import com.example.common.Exception.AnyException;
 import com.example.common.Model.CropInfo;
 import com.example.common.Model.CropRecommendation;
@@ -7,7 +8,9 @@ import com.example.agriconnect.Repository.CropRecommendationRepo;
 import com.example.common.util.TranslateToHindi;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
@@ -38,6 +41,10 @@ public class CropRecommendationService {
     @Autowired
     private CropRecommendationRepo cropRecommendationRepo;
 
+    @Autowired
+    @Qualifier("flaskRecommendRestTemplate")
+    private RestTemplate restTemplate;
+
     /**
      * Generates a crop recommendation based on soil and environmental parameters by calling a Flask API.
      * Enhances the prediction with bilingual (English and Hindi) crop information, saves the recommendation
@@ -51,7 +58,6 @@ public class CropRecommendationService {
      *                      or an unexpected error occurs (HTTP 500)
      */
     public Map<String, Object> GetRecommendation(CropRecommendation cropRecommendation) {
-        RestTemplate restTemplate = new RestTemplate();
         Map<String, Object> requestMap = new HashMap<>();
         requestMap.put("N", cropRecommendation.getN());
         requestMap.put("P", cropRecommendation.getP());
@@ -108,13 +114,22 @@ public class CropRecommendationService {
     }
 
     /**
-     * Retrieves all saved crop recommendations for a specific user.
+     * Retrieves one keyset page of a user's saved crop recommendations, newest first, optionally filtered by crop.
      *
      * @param userId the ID of the user whose crop recommendations are to be retrieved
-     * @return a {@link List} of {@link CropRecommendation} objects associated with the user
+     * @param crop   the name of the crop to filter recommendations by ({@code null} for all crops)
+     * @param before the cursor returned with the previous page ({@code null} for the first page)
+     * @param size   the maximum number of recommendations on the page
+     * @return a {@link CursorPage} of {@link CropRecommendation} objects and the cursor of the next page
      */
-    public List<CropRecommendation> GetSavedRecommendCropByUserId(Long userId) {
-        return cropRecommendationRepo.findByUserDetails1UserId(userId);
+    public CursorPage<CropRecommendation> getSavedRecommendationsPage(Long userId, String crop, Long before, int size) {
+        // Recommendation IDs are ints, so larger cursors can only come from a forged request
+        Integer cursor = before != null ? (int) Math.min(before, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<CropRecommendation> fetched = crop != null
+                ? cropRecommendationRepo.findPageByUserIdAndPredictedCrop(userId, crop, cursor, limit)
+                : cropRecommendationRepo.findPageByUserId(userId, cursor, limit);
+        return CursorPage.of(fetched, size, CropRecommendation::getId);
     }
 
     /**
@@ -127,17 +142,6 @@ public class CropRecommendationService {
         return cropRecommendationRepo.findDistinctPredictedCropsByUserId(userId);
     }
 
-    /**
-     * Retrieves crop recommendations for a specific user and crop.
-     *
-     * @param crop   the name of the crop to filter recommendations by
-     * @param userId the ID of the user whose recommendations are to be retrieved
-     * @return a {@link List} of {@link CropRecommendation} objects matching the crop and user
-     */
-    public List<CropRecommendation> getRecommendations(String crop, Long userId) {
-        return cropRecommendationRepo.findByUserIdAndPredictedCrop(userId, crop);
-    }
-
     /**
      * Determines the water needs for a crop based on rainfall.
      *
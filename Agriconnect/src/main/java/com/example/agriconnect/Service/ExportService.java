@@ -12,11 +12,13 @@ import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Semaphore;
 
 /**
  * Service class for exporting agricultural data to PDF reports. Generates reports for crop disease,
@@ -26,6 +28,12 @@ import java.util.Objects;
 @Service
 public class ExportService {
 
+    private final Semaphore pdfPermits;
+
+    public ExportService(@Value("${export.pdf.max-concurrent:4}") int maxConcurrentPdfs) {
+        this.pdfPermits = new Semaphore(maxConcurrentPdfs, true);
+    }
+
     @Autowired
     private CropDiseaseRepo cropDiseaseRepository;
 
@@ -111,6 +119,28 @@ public class ExportService {
             }
         }
 
+        // Bounded so CPU-heavy iText rendering cannot occupy every carrier thread in virtual-thread mode
+        pdfPermits.acquire();
+        try {
+            return buildPdf(lang, page, diseases, cropRecommendations, cropList);
+        } finally {
+            pdfPermits.release();
+        }
+    }
+
+    /**
+     * Renders the selected records as a PDF report.
+     *
+     * @param lang                the language for the report ("en" for English, "hi" for Hindi)
+     * @param page                the type of report
+     * @param diseases            the disease records, if a disease report was requested
+     * @param cropRecommendations the recommendation records, if a recommendation report was requested
+     * @param cropList            the price records, if a price report was requested
+     * @return a byte array containing the generated PDF report
+     * @throws DocumentException if iText fails to build the document
+     */
+    private byte[] buildPdf(String lang, String page, List<CropDisease> diseases,
+                            List<CropRecommendation> cropRecommendations, List<Crop> cropList) throws DocumentException {
         // ----- PDF Building -----
         Document document = new Document(PageSize.A4);
         ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -0,0 +1,258 @@
+package com.example.agriconnect.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Content-addressed cache for crop image analysis results.
+ * <p>
+ * Entries are keyed by the SHA-256 of the image bytes, so a farmer re-uploading the same photo skips the
+ * Gemini validation, Cloudinary upload, Flask inference and Gemini enhancement. A bounded in-memory LRU
+ * tier is always used; an optional Redis tier (sharing the Lettuce connection from {@code RedisConfig})
+ * lets the cache survive restarts and be shared between instances. Redis failures are logged and treated
+ * as cache misses. Entries whose Cloudinary asset has been deleted are evicted by
+ * {@link #evictByPublicIds(Collection)}, so a hit never hands out a dead image URL.
+ */
+@Slf4j
+@Service
+public class ImageAnalysisCache {
+
+    private static final String REDIS_KEY_PREFIX = "image-analysis:";
+
+    // Maps a Cloudinary public ID back to the content hash whose entry references it
+    private static final String REDIS_ASSET_KEY_PREFIX = "image-analysis:asset:";
+
+    // Number of lock stripes serialising updates of the same content hash
+    private static final int UPDATE_LOCK_STRIPES = 64;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final boolean redisEnabled;
+
+    private final Map<String, ImageAnalysisCacheEntry> memoryTier;
+    private final ReentrantLock[] updateLocks = new ReentrantLock[UPDATE_LOCK_STRIPES];
+
+    /**
+     * Constructs a new {@code ImageAnalysisCache}.
+     *
+     * @param redisTemplate the Redis template used for the shared tier
+     * @param objectMapper  the mapper used to serialize entries for Redis
+     * @param maxEntries    the maximum number of entries kept in memory
+     * @param ttlMinutes    how long an entry stays valid
+     * @param redisEnabled  whether the Redis tier is used
+     */
+    public ImageAnalysisCache(@Qualifier("cacheRedisTemplate") StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${image.analysis.cache.max-entries:500}") int maxEntries,
+                              @Value("${image.analysis.cache.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${image.analysis.cache.redis.enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.redisEnabled = redisEnabled;
+        this.memoryTier = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ImageAnalysisCacheEntry> eldest) {
+                return size() > ImageAnalysisCache.this.maxEntries;
+            }
+        };
+        for (int i = 0; i < updateLocks.length; i++) {
+            updateLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Computes the cache key for an image.
+     *
+     * @param imageBytes the raw image bytes
+     * @return the lowercase hex SHA-256 of the bytes
+     */
+    public String hash(byte[] imageBytes) {
+        return HexFormat.of().formatHex(newDigest().digest(imageBytes));
+    }
+
+    /**
+     * Computes the cache key for an image by streaming it, without materialising the bytes.
+     *
+     * @param imageStream the image content; closed by this method
+     * @return the lowercase hex SHA-256 of the content
+     * @throws IOException if the stream cannot be read
+     */
+    public String hash(InputStream imageStream) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = imageStream) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up an entry, checking memory first and then Redis.
+     *
+     * @param contentHash the SHA-256 of the image
+     * @return the cached entry, or {@link Optional#empty()} if absent or expired
+     */
+    public Optional<ImageAnalysisCacheEntry> get(String contentHash) {
+        if (contentHash == null) {
+            return Optional.empty();
+        }
+        ImageAnalysisCacheEntry entry;
+        synchronized (memoryTier) {
+            entry = memoryTier.get(contentHash);
+        }
+        if (entry == null && redisEnabled) {
+            entry = readFromRedis(contentHash);
+            if (entry != null) {
+                synchronized (memoryTier) {
+                    memoryTier.put(contentHash, entry);
+                }
+            }
+        }
+        if (entry != null && isExpired(entry)) {
+            evict(contentHash);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Creates or updates the entry for an image and writes it through to Redis.
+     * <p>
+     * Updates of the same image are serialised, and the mutation is applied to a copy that then replaces
+     * the cached entry, so concurrent updates are not lost and readers never see a half-applied change.
+     *
+     * @param contentHash the SHA-256 of the image
+     * @param update      the mutation to apply to the entry
+     */
+    public void update(String contentHash, Consumer<ImageAnalysisCacheEntry> update) {
+        if (contentHash == null) {
+            return;
+        }
+        ReentrantLock lock = updateLocks[Math.floorMod(contentHash.hashCode(), updateLocks.length)];
+        lock.lock();
+        try {
+            ImageAnalysisCacheEntry entry = get(contentHash)
+                    .map(ImageAnalysisCacheEntry::copy)
+                    .orElseGet(ImageAnalysisCacheEntry::new);
+            update.accept(entry);
+            synchronized (memoryTier) {
+                memoryTier.put(contentHash, entry);
+            }
+            if (redisEnabled) {
+                writeToRedis(contentHash, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes an entry from both tiers, e.g. when its Cloudinary asset no longer exists.
+     *
+     * @param contentHash the SHA-256 of the image
+     */
+    public void evict(String contentHash) {
+        synchronized (memoryTier) {
+            memoryTier.remove(contentHash);
+        }
+        if (redisEnabled) {
+            try {
+                redisTemplate.delete(REDIS_KEY_PREFIX + contentHash);
+            } catch (Exception e) {
+                log.warn("Failed to evict image analysis cache entry {} from Redis: {}", contentHash, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Removes every entry that references one of the given Cloudinary assets, from both tiers. Called by
+     * the Cloudinary cleanup once the assets are gone.
+     *
+     * @param publicIds the public IDs of the deleted assets
+     */
+    public void evictByPublicIds(Collection<String> publicIds) {
+        if (publicIds == null || publicIds.isEmpty()) {
+            return;
+        }
+        Set<String> deleted = new HashSet<>(publicIds);
+        synchronized (memoryTier) {
+            memoryTier.values().removeIf(entry -> entry.getPublicId() != null && deleted.contains(entry.getPublicId()));
+        }
+        if (redisEnabled) {
+            for (String publicId : deleted) {
+                try {
+                    String assetKey = REDIS_ASSET_KEY_PREFIX + publicId;
+                    String contentHash = redisTemplate.opsForValue().get(assetKey);
+                    if (contentHash != null) {
+                        redisTemplate.delete(REDIS_KEY_PREFIX + contentHash);
+                        redisTemplate.delete(assetKey);
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to evict image analysis cache entry for asset {} from Redis: {}", publicId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(ImageAnalysisCacheEntry entry) {
+        return System.currentTimeMillis() - entry.getCreatedAt() > ttlMillis;
+    }
+
+    private ImageAnalysisCacheEntry readFromRedis(String contentHash) {
+        try {
+            String json = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + contentHash);
+            return json != null ? objectMapper.readValue(json, ImageAnalysisCacheEntry.class) : null;
+        } catch (Exception e) {
+            log.warn("Redis unavailable while reading image analysis cache entry {}: {}", contentHash, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToRedis(String contentHash, ImageAnalysisCacheEntry entry) {
+        try {
+            long remaining = Math.max(1, ttlMillis - (System.currentTimeMillis() - entry.getCreatedAt()));
+            redisTemplate.opsForValue().set(REDIS_KEY_PREFIX + contentHash,
+                    objectMapper.writeValueAsString(entry), Duration.ofMillis(remaining));
+            if (entry.getPublicId() != null) {
+                redisTemplate.opsForValue().set(REDIS_ASSET_KEY_PREFIX + entry.getPublicId(),
+                        contentHash, Duration.ofMillis(remaining));
+            }
+        } catch (Exception e) {
+            log.warn("Redis unavailable while writing image analysis cache entry {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.agriconnect.Service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cached outcome of analysing one image, keyed by the SHA-256 of its bytes.
+ * <p>
+ * Holds the Gemini validation verdict, the raw Flask classifier response, the resolved bilingual
+ * disease details and the Cloudinary asset the image was stored as. Fields are filled in as the
+ * pipeline progresses, so an entry may only contain a validation verdict. Entries held by the
+ * {@link ImageAnalysisCache} are never changed in place; updates are applied to a {@link #copy()}.
+ */
+@Data
+@NoArgsConstructor
+public class ImageAnalysisCacheEntry {
+
+    private Boolean validCrop;
+
+    private String classifierResponse;
+
+    private Map<String, String> details;
+
+    private String filename;
+
+    private String publicId;
+
+    private String imageUrl;
+
+    // Users that already have a CropDisease row for this image
+    private Set<Long> savedUserIds = new HashSet<>();
+
+    private long createdAt = System.currentTimeMillis();
+
+    /**
+     * @return a copy of this entry whose collections can be changed without affecting the original
+     */
+    public ImageAnalysisCacheEntry copy() {
+        ImageAnalysisCacheEntry copy = new ImageAnalysisCacheEntry();
+        copy.validCrop = validCrop;
+        copy.classifierResponse = classifierResponse;
+        copy.details = details != null ? new HashMap<>(details) : null;
+        copy.filename = filename;
+        copy.publicId = publicId;
+        copy.imageUrl = imageUrl;
+        copy.savedUserIds = savedUserIds != null ? new HashSet<>(savedUserIds) : new HashSet<>();
+        copy.createdAt = createdAt;
+        return copy;
+    }
+
+    /**
+     * @return {@code true} if the entry holds everything needed to answer an analysis request
+     */
+    @JsonIgnore
+    public boolean isAnalysisComplete() {
+        return details != null && imageUrl != null && publicId != null;
+    }
+}
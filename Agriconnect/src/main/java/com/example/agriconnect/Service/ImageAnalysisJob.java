@@ -0,0 +1,151 @@
+package com.example.agriconnect.Service;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the progress of one background crop image analysis.
+ * <p>
+ * A job starts in {@link Stage#QUEUED}, runs {@link Stage#VALIDATING} and {@link Stage#CACHE_LOOKUP}, then
+ * {@link Stage#UPLOADING} and {@link Stage#CLASSIFYING} concurrently, followed by {@link Stage#ENHANCING} and
+ * {@link Stage#SAVING}, and ends in either {@link Stage#SAVED} or {@link Stage#FAILED}. A cache hit goes
+ * straight from {@link Stage#CACHE_LOOKUP} to {@link Stage#SAVED}. Start and finish times are recorded per
+ * stage so the status endpoint can report where time was spent, including overlapping stages.
+ */
+@Getter
+public class ImageAnalysisJob {
+
+    /**
+     * Pipeline stages of an image analysis job, in execution order.
+     */
+    public enum Stage {
+        QUEUED, VALIDATING, CACHE_LOOKUP, UPLOADING, CLASSIFYING, ENHANCING, SAVING, SAVED, FAILED;
+
+        /**
+         * @return {@code true} if no further transitions happen after this stage
+         */
+        public boolean isTerminal() {
+            return this == SAVED || this == FAILED;
+        }
+    }
+
+    private final String jobId;
+    private final Long userId;
+    private final long createdAt;
+    private final Map<Stage, long[]> stageTimes = new LinkedHashMap<>();
+
+    private volatile Stage stage;
+    private volatile long finishedAt;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+
+    /**
+     * Creates a queued job.
+     *
+     * @param jobId  the job identifier (also the unique filename of the image)
+     * @param userId the ID of the user who submitted the image
+     */
+    public ImageAnalysisJob(String jobId, Long userId) {
+        this.jobId = jobId;
+        this.userId = userId;
+        this.createdAt = System.currentTimeMillis();
+        startStage(Stage.QUEUED);
+    }
+
+    /**
+     * Records that the job entered the given stage. Leaving the queue is recorded implicitly.
+     *
+     * @param next the stage the job is entering
+     */
+    public synchronized void startStage(Stage next) {
+        if (stage != null && stage.isTerminal()) {
+            return;
+        }
+        finishStage(Stage.QUEUED);
+        stage = next;
+        stageTimes.put(next, new long[]{System.currentTimeMillis(), 0});
+    }
+
+    /**
+     * Records that the given stage finished. The headline status moves back to any stage still running.
+     *
+     * @param done the stage that finished
+     */
+    public synchronized void finishStage(Stage done) {
+        long[] times = stageTimes.get(done);
+        if (times == null || times[1] != 0) {
+            return;
+        }
+        times[1] = System.currentTimeMillis();
+        if (stage == done) {
+            stageTimes.forEach((s, t) -> {
+                if (t[1] == 0) {
+                    stage = s;
+                }
+            });
+        }
+    }
+
+    /**
+     * Marks the job as successfully saved.
+     *
+     * @param result the analysis response returned to the client
+     */
+    public synchronized void complete(Map<String, Object> result) {
+        this.result = result;
+        this.finishedAt = System.currentTimeMillis();
+        finishStage(Stage.SAVING);
+        startStage(Stage.SAVED);
+    }
+
+    /**
+     * Marks the job as failed in its current stage.
+     *
+     * @param error the error message returned to the client
+     */
+    public synchronized void fail(String error) {
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+        startStage(Stage.FAILED);
+    }
+
+    /**
+     * Builds the payload reported by the analysis status endpoint.
+     *
+     * @return a {@link Map} with the job ID, current status, per-stage timings, and the result or error
+     */
+    public synchronized Map<String, Object> toStatusMap() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("jobId", jobId);
+        status.put("filename", jobId);
+        status.put("status", stage.name().toLowerCase());
+        status.put("completed", stage.isTerminal());
+
+        List<Map<String, Object>> stages = new ArrayList<>();
+        stageTimes.forEach((s, times) -> {
+            Map<String, Object> stageInfo = new HashMap<>();
+            stageInfo.put("stage", s.name().toLowerCase());
+            stageInfo.put("startedAt", times[0]);
+            if (times[1] != 0) {
+                stageInfo.put("finishedAt", times[1]);
+                stageInfo.put("durationMs", times[1] - times[0]);
+            }
+            stages.add(stageInfo);
+        });
+        status.put("stages", stages);
+
+        if (stage == Stage.SAVED) {
+            status.put("success", true);
+            status.put("result", result);
+        } else if (stage == Stage.FAILED) {
+            status.put("success", false);
+            status.put("error", error);
+        }
+        return status;
+    }
+}
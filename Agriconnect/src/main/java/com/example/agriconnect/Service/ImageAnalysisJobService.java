@@ -0,0 +1,251 @@
+package com.example.agriconnect.Service;
+
+import com.example.agriconnect.Service.ImageAnalysisJob.Stage;
+import com.example.common.Exception.AnyException;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs crop image analysis as a background job instead of on the request thread.
+ * <p>
+ * The upload is read once into a pooled buffer when the job is submitted, after which preprocessing and
+ * validation, Flask classification, Gemini enhancement and persistence run as separate stages on the bounded
+ * {@code imageAnalysisExecutor}. The Cloudinary upload runs on {@code imageUploadExecutor} and overlaps
+ * classification and enhancement.
+ * Each stage before saving has its own timeout; saving is never timed out, since the row would still be
+ * written after the job had failed and its upload had been discarded. Images already analysed are answered
+ * from the content-hash cache after validation.
+ * Job progress is kept in memory and can be polled through the analysis status endpoint until the job
+ * is evicted.
+ */
+@Slf4j
+@Service
+public class ImageAnalysisJobService {
+
+    private final Map<String, ImageAnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    private final CropImageAnalysisService cropImageAnalysisService;
+    private final UploadBufferPool uploadBufferPool;
+    private final TaskExecutor executor;
+
+    @Value("${image.analysis.timeout.validate-seconds:20}")
+    private long validateTimeoutSeconds;
+
+    @Value("${image.analysis.timeout.upload-seconds:30}")
+    private long uploadTimeoutSeconds;
+
+    @Value("${image.analysis.timeout.classify-seconds:30}")
+    private long classifyTimeoutSeconds;
+
+    @Value("${image.analysis.timeout.enhance-seconds:30}")
+    private long enhanceTimeoutSeconds;
+
+    @Value("${image.analysis.job.retention-minutes:30}")
+    private long retentionMinutes;
+
+    /**
+     * Constructs a new {@code ImageAnalysisJobService}.
+     *
+     * @param cropImageAnalysisService the service providing the individual analysis stages
+     * @param uploadBufferPool         the pool uploads are read into
+     * @param executor                 the bounded executor the stages run on
+     */
+    public ImageAnalysisJobService(CropImageAnalysisService cropImageAnalysisService,
+                                   UploadBufferPool uploadBufferPool,
+                                   @Qualifier("imageAnalysisExecutor") TaskExecutor executor) {
+        this.cropImageAnalysisService = cropImageAnalysisService;
+        this.uploadBufferPool = uploadBufferPool;
+        this.executor = executor;
+    }
+
+    /**
+     * Queues an uploaded image for background analysis and returns immediately.
+     *
+     * @param file   the uploaded image file
+     * @param userId the ID of the user submitting the image
+     * @return the queued {@link ImageAnalysisJob}
+     * @throws IOException  if the upload cannot be read
+     * @throws AnyException if the file is not an allowed image (HTTP 400) or the executor is saturated (HTTP 503)
+     */
+    public ImageAnalysisJob submit(MultipartFile file, Long userId) throws IOException {
+        cropImageAnalysisService.validateImageFile(file);
+
+        // The multipart temp file is deleted once the request completes, so read it once into a pooled buffer
+        UploadBuffer upload = uploadBufferPool.read(file);
+        String originalFilename = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        String filename = cropImageAnalysisService.generateUniqueFilename(originalFilename);
+        String publicId = cropImageAnalysisService.toPublicId(filename);
+
+        ImageAnalysisJob job = new ImageAnalysisJob(filename, userId);
+        jobs.put(filename, job);
+
+        try {
+            runStage(job, Stage.VALIDATING, validateTimeoutSeconds,
+                    () -> prepareAndValidate(upload, originalFilename, contentType))
+                    .thenCompose(image -> runStage(job, Stage.CACHE_LOOKUP,
+                            () -> cropImageAnalysisService.findCachedAnalysis(image.getContentHash(), userId))
+                            .thenCompose(cached -> cached.map(CompletableFuture::completedFuture)
+                                    .orElseGet(() -> analyzeConcurrently(job, image, filename, userId))))
+                    .whenComplete((response, ex) -> {
+                        if (ex == null) {
+                            // Cached results keep the filename and publicId of the original upload
+                            response.putIfAbsent("filename", filename);
+                            response.putIfAbsent("publicId", publicId);
+                            job.complete(response);
+                            log.info("Image analysis job {} saved", filename);
+                        } else {
+                            Stage failedStage = job.getStage();
+                            String message = describeFailure(failedStage, ex);
+                            job.fail(message);
+                            log.warn("Image analysis job {} failed during {}: {}", filename, failedStage, message);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            upload.close();
+            jobs.remove(filename);
+            log.warn("Image analysis executor saturated, rejecting job for userId {}", userId);
+            throw new AnyException(HttpStatus.SERVICE_UNAVAILABLE.value(), "Image analysis is busy. Please try again shortly.");
+        }
+        return job;
+    }
+
+    /**
+     * Looks up a job by its ID, restricted to the user who submitted it.
+     *
+     * @param jobId  the job identifier (the unique image filename)
+     * @param userId the ID of the requesting user
+     * @return the job, or {@link Optional#empty()} if it is unknown, evicted, or owned by another user
+     */
+    public Optional<ImageAnalysisJob> findJob(String jobId, Long userId) {
+        ImageAnalysisJob job = jobs.get(jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    /**
+     * Scheduled task that evicts finished jobs older than the configured retention period.
+     * Runs every 5 minutes.
+     */
+    @Scheduled(fixedRate = 5 * 60 * 1000)
+    public void evictFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        jobs.values().removeIf(job -> job.getStage().isTerminal() && job.getFinishedAt() < cutoff);
+    }
+
+    /**
+     * Uploads to Cloudinary while the image is classified and enhanced; the image URL is only awaited for
+     * the save stage. Any failure before the record is saved discards the upload; a successful analysis is
+     * added to the content-hash cache.
+     */
+    private CompletableFuture<Map<String, Object>> analyzeConcurrently(ImageAnalysisJob job, PreparedImage image,
+                                                                       String filename, Long userId) {
+        CropImageAnalysisService.PendingUpload upload = cropImageAnalysisService.startUpload(
+                image.getImageBytes(), cropImageAnalysisService.toPublicId(filename), () -> job.startStage(Stage.UPLOADING));
+        CompletableFuture<String> imageUrl = upload.imageUrl()
+                .orTimeout(uploadTimeoutSeconds, TimeUnit.SECONDS)
+                .whenComplete((url, ex) -> job.finishStage(Stage.UPLOADING));
+
+        return runStage(job, Stage.CLASSIFYING, classifyTimeoutSeconds,
+                () -> cropImageAnalysisService.classifyImage(image.getImageBytes(), image.getFilename()))
+                .thenCompose(jsonNode -> runStage(job, Stage.ENHANCING, enhanceTimeoutSeconds,
+                        () -> new ClassifiedImage(jsonNode, enhance(image, jsonNode))))
+                .thenCombine(imageUrl, (classified, url) -> runStage(job, Stage.SAVING, () -> {
+                    // The row about to be written references the upload, so it must survive any later failure
+                    upload.keep();
+                    Map<String, Object> response = cropImageAnalysisService.saveAnalysis(classified.details(), userId, url);
+                    cropImageAnalysisService.cacheAnalysis(image.getContentHash(), classified.classifierResponse(),
+                            classified.details(), filename, url, userId);
+                    return response;
+                }))
+                .thenCompose(saved -> saved)
+                .whenComplete((response, ex) -> {
+                    if (ex != null) {
+                        upload.discard();
+                    }
+                });
+    }
+
+    /**
+     * Downscales the upload, releasing its buffer, and, unless validation is folded into the enhancement call, checks with Gemini
+     * that it shows a crop.
+     */
+    private PreparedImage prepareAndValidate(UploadBuffer upload, String originalFilename, String contentType) {
+        PreparedImage image;
+        try (upload) {
+            image = cropImageAnalysisService.prepareImage(upload, originalFilename, contentType);
+        }
+        if (!cropImageAnalysisService.passesPreAnalysisValidation(image)) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), CropImageAnalysisService.INVALID_CROP_IMAGE_MESSAGE);
+        }
+        return image;
+    }
+
+    /**
+     * Enhances the classifier output. With the combined Gemini call the crop validation happens here too,
+     * and a non-crop image fails the job.
+     */
+    private Map<String, String> enhance(PreparedImage image, JsonNode jsonNode) {
+        if (!cropImageAnalysisService.isCombinedGeminiCall()) {
+            return cropImageAnalysisService.enhanceAnalysis(jsonNode);
+        }
+        return cropImageAnalysisService.validateAndEnhance(image, jsonNode)
+                .orElseThrow(() -> new AnyException(HttpStatus.BAD_REQUEST.value(),
+                        CropImageAnalysisService.INVALID_CROP_IMAGE_MESSAGE));
+    }
+
+    /**
+     * Runs one stage on the analysis executor. The timeout starts when the stage is scheduled, not when the
+     * job was submitted, so each stage gets its full budget.
+     */
+    private <T> CompletableFuture<T> runStage(ImageAnalysisJob job, Stage stage, long timeoutSeconds, Supplier<T> work) {
+        return runStage(job, stage, work).orTimeout(timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    private <T> CompletableFuture<T> runStage(ImageAnalysisJob job, Stage stage, Supplier<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            job.startStage(stage);
+            T value = work.get();
+            job.finishStage(stage);
+            return value;
+        }, executor);
+    }
+
+    private record ClassifiedImage(JsonNode classifierResponse, Map<String, String> details) {
+    }
+
+    private String describeFailure(Stage stage, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof TimeoutException) {
+            return "Image analysis timed out while " + describe(stage) + ".";
+        }
+        if (cause instanceof AnyException) {
+            return cause.getMessage();
+        }
+        return "Image analysis failed while " + describe(stage) + ".";
+    }
+
+    private String describe(Stage stage) {
+        return stage == Stage.CACHE_LOOKUP ? "checking the cache" : stage.name().toLowerCase();
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.agriconnect.Service;
+
+import com.example.agriconnect.Repository.CropDiseaseBatchRepo;
+import com.example.common.Exception.AnyException;
+import com.example.common.Model.CropDisease;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Analyses many crop images from one field survey in a single request.
+ * <p>
+ * Uploads (individual files or images inside a zip) are read on the request thread, after which every image
+ * is preprocessed and validated on the bounded {@code imageBatchExecutor}. Its Cloudinary upload starts as soon
+ * as it is prepared. Prepared images are classified in groups with one Flask request per group when the model
+ * server supports batches, then enhanced with Gemini individually. Each image's result is reported to a listener
+ * as soon as it is ready. All resulting {@link CropDisease} rows are inserted with one JDBC batch once every
+ * image has finished, and a final summary reports how many were saved.
+ * <p>
+ * Per-image results whose row is still waiting for that insert are marked {@code provisional}; the summary
+ * decides whether they were saved. Their Cloudinary assets are kept even if the insert fails, so every
+ * streamed {@code imageUrl} stays valid; unreferenced assets are removed later by the Cloudinary cleanup.
+ */
+@Slf4j
+@Service
+public class ImageBatchAnalysisService {
+
+    private static final String INVALID_FILE_MESSAGE = "Only image files are allowed.";
+    private static final String TOO_LARGE_MESSAGE = "Image exceeds the maximum upload size.";
+
+    private final CropImageAnalysisService cropImageAnalysisService;
+    private final ImageAnalysisCache analysisCache;
+    private final UploadBufferPool uploadBufferPool;
+    private final CropDiseaseBatchRepo cropDiseaseBatchRepo;
+    private final TaskExecutor executor;
+
+    @Value("${image.analysis.batch.max-images:50}")
+    private int maxImages;
+
+    @Value("${image.analysis.batch.classifier-batch-size:8}")
+    private int classifierBatchSize;
+
+    @Value("${image.analysis.timeout.upload-seconds:30}")
+    private long uploadTimeoutSeconds;
+
+    @Value("${image.analysis.batch.max-unzipped-size:100MB}")
+    private DataSize maxUnzippedSize;
+
+    /**
+     * Constructs a new {@code ImageBatchAnalysisService}.
+     *
+     * @param cropImageAnalysisService the service providing the individual analysis stages
+     * @param analysisCache            the content-hash cache of earlier analyses
+     * @param uploadBufferPool         the pool uploads are read into
+     * @param cropDiseaseBatchRepo     the repository inserting all rows of a batch at once
+     * @param executor                 the bounded worker pool the batch fans out on
+     */
+    public ImageBatchAnalysisService(CropImageAnalysisService cropImageAnalysisService,
+                                     ImageAnalysisCache analysisCache,
+                                     UploadBufferPool uploadBufferPool,
+                                     CropDiseaseBatchRepo cropDiseaseBatchRepo,
+                                     @Qualifier("imageBatchExecutor") TaskExecutor executor) {
+        this.cropImageAnalysisService = cropImageAnalysisService;
+        this.analysisCache = analysisCache;
+        this.uploadBufferPool = uploadBufferPool;
+        this.cropDiseaseBatchRepo = cropDiseaseBatchRepo;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads every upload of a batch request. Zip files are expanded into their image entries. Files that are
+     * not allowed images are kept as failed entries so they are reported alongside the others.
+     *
+     * @param files the uploaded files
+     * @return the uploads in request order; the caller must pass them to {@link #analyze} or close them
+     * @throws IOException  if an upload cannot be read
+     * @throws AnyException if the batch is empty, holds more than the configured number of images, or its zip
+     *                      files expand beyond the configured total size
+     */
+    public List<BatchUpload> readUploads(List<MultipartFile> files) throws IOException {
+        List<BatchUpload> uploads = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                if (isZip(file)) {
+                    readZip(file, uploads);
+                } else if (file.isEmpty() || !cropImageAnalysisService.isAllowedImageName(file.getOriginalFilename())) {
+                    addUpload(uploads, BatchUpload.failed(file.getOriginalFilename(), INVALID_FILE_MESSAGE));
+                } else if (file.getSize() > uploadBufferPool.maxImageSize()) {
+                    addUpload(uploads, BatchUpload.failed(file.getOriginalFilename(), TOO_LARGE_MESSAGE));
+                } else {
+                    addUpload(uploads, new BatchUpload(file.getOriginalFilename(), file.getContentType(),
+                            uploadBufferPool.read(file), null));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            uploads.forEach(BatchUpload::close);
+            throw e;
+        }
+        if (uploads.isEmpty()) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "No images found in the upload.");
+        }
+        return uploads;
+    }
+
+    /**
+     * Analyses a batch of uploads for one user.
+     *
+     * @param uploads  the uploads read by {@link #readUploads}; their buffers are released by this call
+     * @param userId   the ID of the user associated with the analyses
+     * @param listener receives one result map per image as soon as that image is done, from worker threads
+     * @return a future completing with the batch summary once all rows are saved
+     */
+    public CompletableFuture<Map<String, Object>> analyze(List<BatchUpload> uploads, Long userId,
+                                                         Consumer<Map<String, Object>> listener) {
+        BatchState state = new BatchState(userId, uploads.size(), listener);
+
+        List<CompletableFuture<Void>> groups = new ArrayList<>();
+        for (int start = 0; start < uploads.size(); start += classifierBatchSize) {
+            List<CompletableFuture<PendingAnalysis>> prepared = new ArrayList<>();
+            for (int index = start; index < Math.min(start + classifierBatchSize, uploads.size()); index++) {
+                int position = index;
+                BatchUpload upload = uploads.get(index);
+                prepared.add(CompletableFuture.supplyAsync(() -> prepare(position, upload, state), executor));
+            }
+            groups.add(CompletableFuture.allOf(prepared.toArray(new CompletableFuture[0]))
+                    .thenComposeAsync(v -> classifyGroup(prepared.stream()
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .toList(), state), executor));
+        }
+
+        return CompletableFuture.allOf(groups.toArray(new CompletableFuture[0]))
+                .thenApplyAsync(v -> saveAll(state), executor);
+    }
+
+    /**
+     * Preprocesses and validates one image, answering it from the cache or starting its Cloudinary upload.
+     *
+     * @return the image waiting for classification, or {@code null} if it has already been reported
+     */
+    private PendingAnalysis prepare(int index, BatchUpload upload, BatchState state) {
+        if (upload.error() != null) {
+            state.fail(index, upload.originalFilename(), upload.error());
+            return null;
+        }
+        try {
+            PreparedImage image;
+            try (UploadBuffer buffer = upload.buffer()) {
+                image = cropImageAnalysisService.prepareImage(buffer, upload.originalFilename(), upload.contentType());
+            }
+            if (!cropImageAnalysisService.passesPreAnalysisValidation(image)) {
+                state.fail(index, upload.originalFilename(), CropImageAnalysisService.INVALID_CROP_IMAGE_MESSAGE);
+                return null;
+            }
+
+            Optional<ImageAnalysisCacheEntry> cached = analysisCache.get(image.getContentHash())
+                    .filter(ImageAnalysisCacheEntry::isAnalysisComplete);
+            if (cached.isPresent()) {
+                ImageAnalysisCacheEntry entry = cached.get();
+                boolean alreadySaved = entry.getSavedUserIds().contains(state.userId);
+                state.succeed(index, upload.originalFilename(), entry.getDetails(), entry.getImageUrl(),
+                        entry.getFilename(), true, alreadySaved ? null
+                                : new SavedImage(image.getContentHash(), null, entry.getDetails(),
+                                entry.getFilename(), entry.getImageUrl()));
+                return null;
+            }
+
+            String filename = cropImageAnalysisService.generateUniqueFilename(image.getOriginalFilename());
+            CropImageAnalysisService.PendingUpload pendingUpload = cropImageAnalysisService.startUpload(
+                    image.getImageBytes(), cropImageAnalysisService.toPublicId(filename), null);
+            return new PendingAnalysis(index, upload.originalFilename(), image, filename, pendingUpload);
+        } catch (Exception e) {
+            upload.close();
+            log.warn("Batch image {} failed during preparation: {}", upload.originalFilename(), e.getMessage());
+            state.fail(index, upload.originalFilename(), failureMessage(e));
+            return null;
+        }
+    }
+
+    /**
+     * Classifies a group of prepared images together, then enhances each on its own worker.
+     */
+    private CompletableFuture<Void> classifyGroup(List<PendingAnalysis> group, BatchState state) {
+        if (group.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<JsonNode> responses;
+        try {
+            responses = cropImageAnalysisService.classifyImages(group.stream().map(PendingAnalysis::image).toList());
+        } catch (Exception e) {
+            log.warn("Classification of {} batch images failed: {}", group.size(), e.getMessage());
+            group.forEach(pending -> {
+                pending.upload().discard();
+                state.fail(pending.index(), pending.originalFilename(), failureMessage(e));
+            });
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<Void>> enhanced = new ArrayList<>(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            PendingAnalysis pending = group.get(i);
+            JsonNode response = responses.get(i);
+            enhanced.add(CompletableFuture.runAsync(() -> enhance(pending, response, state), executor));
+        }
+        return CompletableFuture.allOf(enhanced.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Enhances one classified image, waits for its upload and reports the result.
+     */
+    private void enhance(PendingAnalysis pending, JsonNode classifierResponse, BatchState state) {
+        try {
+            Map<String, String> details;
+            if (cropImageAnalysisService.isCombinedGeminiCall()) {
+                Optional<Map<String, String>> reviewed = cropImageAnalysisService.validateAndEnhance(pending.image(), classifierResponse);
+                if (reviewed.isEmpty()) {
+                    pending.upload().discard();
+                    state.fail(pending.index(), pending.originalFilename(), CropImageAnalysisService.INVALID_CROP_IMAGE_MESSAGE);
+                    return;
+                }
+                details = reviewed.get();
+            } else {
+                details = cropImageAnalysisService.enhanceAnalysis(classifierResponse);
+            }
+
+            String imageUrl = pending.upload().imageUrl().get(uploadTimeoutSeconds, TimeUnit.SECONDS);
+            state.succeed(pending.index(), pending.originalFilename(), details, imageUrl, pending.filename(), false,
+                    new SavedImage(pending.image().getContentHash(), classifierResponse, details,
+                            pending.filename(), imageUrl));
+        } catch (Exception e) {
+            pending.upload().discard();
+            log.warn("Batch image {} failed during analysis: {}", pending.originalFilename(), e.getMessage());
+            state.fail(pending.index(), pending.originalFilename(), failureMessage(e));
+        }
+    }
+
+    /**
+     * Inserts the rows of every successful image in one batch and records them in the cache. If the insert
+     * fails, the uploaded images are kept because their URLs have already been streamed to the client.
+     */
+    private Map<String, Object> saveAll(BatchState state) {
+        List<SavedImage> toSave = new ArrayList<>(state.toSave);
+        List<CropDisease> rows = toSave.stream()
+                .map(saved -> cropImageAnalysisService.toCropDisease(saved.details(), saved.imageUrl()))
+                .toList();
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("type", "summary");
+        summary.put("total", state.total);
+        summary.put("succeeded", state.succeeded.get());
+        summary.put("failed", state.failed.get());
+        try {
+            int inserted = cropDiseaseBatchRepo.insertAll(rows, state.userId);
+            for (SavedImage saved : toSave) {
+                if (saved.classifierResponse() != null) {
+                    cropImageAnalysisService.cacheAnalysis(saved.contentHash(), saved.classifierResponse(),
+                            saved.details(), saved.filename(), saved.imageUrl(), state.userId);
+                } else {
+                    analysisCache.update(saved.contentHash(), entry -> entry.getSavedUserIds().add(state.userId));
+                }
+            }
+            log.info("Saved {} crop disease records from a batch of {} images for userId {}",
+                    inserted, state.total, state.userId);
+            summary.put("success", true);
+            summary.put("saved", inserted);
+        } catch (Exception e) {
+            log.error("Failed to save batch analysis for userId {}: {}", state.userId, e.getMessage(), e);
+            summary.put("success", false);
+            summary.put("saved", 0);
+            summary.put("error", "Failed to save batch analysis.");
+        }
+        return summary;
+    }
+
+    private void readZip(MultipartFile zip, List<BatchUpload> uploads) throws IOException {
+        int maxBytes = uploadBufferPool.maxImageSize();
+        // A small archive can expand to many full-size entries, so the total read across all of them is capped too
+        long remaining = maxUnzippedSize.toBytes();
+        try (ZipInputStream in = new ZipInputStream(zip.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                // Skip folders and archiver metadata such as __MACOSX/._IMG_0001.jpg
+                if (entry.isDirectory() || name.isEmpty() || name.startsWith(".") || entry.getName().startsWith("__MACOSX/")) {
+                    continue;
+                }
+                if (!cropImageAnalysisService.isAllowedImageName(name)) {
+                    addUpload(uploads, BatchUpload.failed(name, INVALID_FILE_MESSAGE));
+                    continue;
+                }
+                // Entry sizes in the zip header are untrusted, so the pool stops reading at the limit
+                int limit = (int) Math.min(maxBytes, remaining);
+                UploadBuffer buffer = uploadBufferPool.read(in, limit);
+                if (buffer == null && limit < maxBytes) {
+                    throw new AnyException(HttpStatus.BAD_REQUEST.value(), "The zip file expands to more than "
+                            + maxUnzippedSize.toMegabytes() + "MB of images.");
+                }
+                if (buffer == null) {
+                    remaining -= limit;
+                    addUpload(uploads, BatchUpload.failed(name, TOO_LARGE_MESSAGE));
+                } else {
+                    remaining -= buffer.length();
+                    addUpload(uploads, new BatchUpload(name, URLConnection.guessContentTypeFromName(name), buffer, null));
+                }
+            }
+        }
+    }
+
+    private void addUpload(List<BatchUpload> uploads, BatchUpload upload) {
+        if (uploads.size() >= maxImages) {
+            upload.close();
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "A batch can contain at most " + maxImages + " images.");
+        }
+        uploads.add(upload);
+    }
+
+    private boolean isZip(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        return (name != null && name.toLowerCase().endsWith(".zip"))
+                || "application/zip".equals(contentType)
+                || "application/x-zip-compressed".equals(contentType);
+    }
+
+    private String failureMessage(Throwable e) {
+        if (e instanceof AnyException) {
+            return e.getMessage();
+        }
+        return e.getCause() instanceof AnyException ? e.getCause().getMessage() : "Image analysis failed.";
+    }
+
+    /**
+     * One file of a batch request, read into memory. Entries that were rejected while reading carry an error
+     * and no buffer.
+     */
+    public record BatchUpload(String originalFilename, String contentType, UploadBuffer buffer, String error) {
+
+        static BatchUpload failed(String originalFilename, String error) {
+            return new BatchUpload(originalFilename, null, null, error);
+        }
+
+        void close() {
+            if (buffer != null) {
+                buffer.close();
+            }
+        }
+    }
+
+    private record PendingAnalysis(int index, String originalFilename, PreparedImage image, String filename,
+                                   CropImageAnalysisService.PendingUpload upload) {
+    }
+
+    // A successful image waiting for the batch insert; classifierResponse is null when it came from the cache
+    private record SavedImage(String contentHash, JsonNode classifierResponse, Map<String, String> details,
+                              String filename, String imageUrl) {
+    }
+
+    /**
+     * Progress of one batch, shared by its workers.
+     */
+    private final class BatchState {
+
+        private final Long userId;
+        private final int total;
+        private final Consumer<Map<String, Object>> listener;
+        private final List<SavedImage> toSave = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private BatchState(Long userId, int total, Consumer<Map<String, Object>> listener) {
+            this.userId = userId;
+            this.total = total;
+            this.listener = listener;
+        }
+
+        private void succeed(int index, String originalFilename, Map<String, String> details, String imageUrl,
+                             String filename, boolean cached, SavedImage saved) {
+            if (saved != null) {
+                toSave.add(saved);
+            }
+            succeeded.incrementAndGet();
+            Map<String, Object> result = cropImageAnalysisService.buildAnalysisResponse(details, imageUrl);
+            result.put("filename", filename);
+            result.put("publicId", cropImageAnalysisService.toPublicId(filename));
+            result.put("cached", cached);
+            // Not saved until the batch insert commits; see the summary's success flag
+            result.put("provisional", saved != null);
+            report(index, originalFilename, result);
+        }
+
+        private void fail(int index, String originalFilename, String error) {
+            failed.incrementAndGet();
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("error", error);
+            report(index, originalFilename, result);
+        }
+
+        private void report(int index, String originalFilename, Map<String, Object> result) {
+            result.put("type", "result");
+            result.put("index", index);
+            result.put("originalFilename", originalFilename);
+            try {
+                listener.accept(result);
+            } catch (Exception e) {
+                log.debug("Could not report batch result {}: {}", index, e.getMessage());
+            }
+        }
+    }
+}
@@ -2,17 +2,24 @@ package com.example.agriconnect.Service;
 
 import com.example.common.Exception.AnyException;
 import com.example.common.Model.Crop;
+import com.example.agriconnect.Repository.CropPriceAnalyticsRepo;
+import com.example.common.DTO.CursorPage;
+import com.example.common.DTO.PricePointDto;
+import com.example.common.DTO.PriceStatsDto;
 import com.example.agriconnect.Repository.cropPriceRepo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +29,10 @@ import java.util.Set;
  * Service class for managing crop price predictions and market data retrieval.
  * Integrates with a Flask API to predict crop prices using multiple models (ensemble, neural network, XGBoost)
  * and retrieves market data for users, with support for state-based filtering and unique state queries.
+ * Several crops can be predicted at once: they are sent to the model server in batched requests when it
+ * supports them, and the resulting rows are inserted with one JDBC batch. Saved predictions also update the
+ * cross-user daily price rollups through the {@link PriceRollupService}. Model answers are shared between
+ * identical queries of the same day through the {@link PricePredictionCache}.
  */
 @Service
 public class MarketServices {
@@ -30,9 +41,32 @@ public class MarketServices {
     @Value("${flask.api.url2:http://localhost:8081/predict}")
     private String flaskApiUrl2;
 
+    // Whether the price model server accepts a JSON array of rows on flask.api.predict-batch-url
+    @Value("${flask.api.predict-batch-enabled:false}")
+    private boolean predictBatchEnabled;
+
+    @Value("${flask.api.predict-batch-url:http://localhost:8081/predict/batch}")
+    private String flaskPredictBatchUrl;
+
+    @Value("${price.prediction.batch.chunk-size:25}")
+    private int batchChunkSize;
+
     @Autowired
     private cropPriceRepo repository;
 
+    @Autowired
+    private PriceRollupService rollupService;
+
+    @Autowired
+    private PricePredictionCache predictionCache;
+
+    @Autowired
+    private CropPriceAnalyticsRepo analyticsRepo;
+
+    @Autowired
+    @Qualifier("flaskPredictRestTemplate")
+    private RestTemplate restTemplate;
+
     /**
      * Predicts crop prices by sending crop data to a Flask API and selecting the best price from multiple models.
      * Saves the predicted prices and the best price to the database.
@@ -45,39 +79,11 @@ public class MarketServices {
      *                      or an unexpected error occurs (HTTP 500)
      */
     public Map<String, Object> getPrediction(Crop crop) {
-        RestTemplate restTemplate = new RestTemplate();
-        Map<String, Object> requestMap = new HashMap<>();
-        requestMap.put("state", crop.getState());
-        requestMap.put("district", crop.getDistrict());
-        requestMap.put("market", crop.getMarket());
-        requestMap.put("crop_name", crop.getCropName());
-        requestMap.put("arrival_date", crop.getArrivalDate() != null ? crop.getArrivalDate().toString() : null);
-        requestMap.put("min_price", crop.getMinPrice());
-        requestMap.put("max_price", crop.getMaxPrice());
-
         Map<String, Object> response;
         try {
-            response = restTemplate.postForObject(flaskApiUrl2, requestMap, Map.class);
+            response = predictionCache.get(crop, () -> postPrediction(crop));
             if (response != null) {
-                if (response.containsKey("predicted_price_ensemble")) {
-                    crop.setSuggestedPriceSecond((Double) response.get("predicted_price_ensemble"));
-                }
-                if (response.containsKey("predicted_price_nn")) {
-                    crop.setSuggestedPriceThird((Double) response.get("predicted_price_nn"));
-                }
-                if (response.containsKey("predicted_price_xgb")) {
-                    crop.setSuggestedPrice((Double) response.get("predicted_price_xgb"));
-                }
-
-                // Add values back to response
-                response.put("suggested_price_first", crop.getSuggestedPriceSecond());
-                response.put("suggested_price_second", crop.getSuggestedPriceThird());
-                response.put("suggested_price_third", crop.getSuggestedPrice());
-
-                // Calculate best
-                double best = Math.max(crop.getSuggestedPrice(),
-                        Math.max(crop.getSuggestedPriceSecond(), crop.getSuggestedPriceThird()));
-                response.put("BEST", best);
+                applyPrediction(crop, response);
 
                 // Logs
                 log.info("State: {}", crop.getState());
@@ -89,8 +95,7 @@ public class MarketServices {
                 log.info("Max Price: {}", crop.getMaxPrice());
                 log.info("Suggested Price: {}", crop.getSuggestedPrice());
 
-                crop.setBestPrice(best);
-                repository.save(crop);
+                rollupService.recordPrediction(crop);
             }
         } catch (ResourceAccessException e) {
             log.error("Error accessing Flask URL: {}", flaskApiUrl2, e);
@@ -106,24 +111,235 @@ public class MarketServices {
     }
 
     /**
-     * Retrieves all market data entries associated with a specific user.
+     * Predicts prices for several crops. When the model server supports batches, the crops are sent in
+     * chunks of {@code price.prediction.batch.chunk-size} rows per request; otherwise, or if a chunk fails,
+     * each crop of that chunk is predicted with its own request. All predicted crops are then saved with
+     * one JDBC batch insert.
      *
-     * @param userId the ID of the user whose market data is to be retrieved
-     * @return a {@link List} of {@link Crop} objects containing market data for the user
+     * @param crops  the crops to predict, each with state, district, market, crop name and arrival date
+     * @param userId the ID of the user owning the saved predictions
+     * @return one result per crop, in input order: {@code index}, {@code success} and either
+     *         {@code predictionResult} (as returned by {@link #getPrediction}) or {@code error}
+     */
+    public List<Map<String, Object>> getPredictions(List<Crop> crops, Long userId) {
+        List<Map<String, Object>> results = new ArrayList<>(crops.size());
+        List<Crop> predicted = new ArrayList<>(crops.size());
+
+        // A non-positive chunk size would never advance; treat it as one row per request
+        int chunkSize = Math.max(1, batchChunkSize);
+        for (int start = 0; start < crops.size(); start += chunkSize) {
+            List<Crop> chunk = crops.subList(start, Math.min(start + chunkSize, crops.size()));
+            List<Map<String, Object>> responses = cachedOrBatched(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                Crop crop = chunk.get(i);
+                Map<String, Object> result = new HashMap<>();
+                result.put("index", start + i);
+                try {
+                    Map<String, Object> response = responses.get(i) != null
+                            ? responses.get(i)
+                            : predictionCache.get(crop, () -> predictOne(crop));
+                    applyPrediction(crop, response);
+                    result.put("success", true);
+                    result.put("predictionResult", response);
+                    predicted.add(crop);
+                } catch (Exception e) {
+                    log.warn("Price prediction failed for row {} ({} at {}): {}",
+                            start + i, crop.getCropName(), crop.getMarket(), e.getMessage());
+                    result.put("success", false);
+                    result.put("error", e instanceof AnyException ? e.getMessage() : "Prediction failed for this row.");
+                }
+                results.add(result);
+            }
+        }
+
+        try {
+            rollupService.recordPredictions(predicted, userId);
+        } catch (Exception e) {
+            log.error("Failed to save {} batch price predictions: {}", predicted.size(), e.getMessage(), e);
+            throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to save price predictions.");
+        }
+        log.info("Batch price prediction for user {}: {} of {} rows predicted", userId, predicted.size(), crops.size());
+        return results;
+    }
+
+    /**
+     * Answers a chunk from the prediction cache, and sends the remaining rows to the batch endpoint.
+     *
+     * @return the per-row responses in chunk order; {@code null} for rows still to be predicted individually
+     */
+    private List<Map<String, Object>> cachedOrBatched(List<Crop> chunk) {
+        List<Map<String, Object>> responses = new ArrayList<>(chunk.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Map<String, Object> cached = predictionCache.getIfPresent(chunk.get(i));
+            responses.add(cached);
+            if (cached == null) {
+                missing.add(i);
+            }
+        }
+
+        List<Crop> uncached = new ArrayList<>(missing.size());
+        for (int i : missing) {
+            uncached.add(chunk.get(i));
+        }
+        List<Map<String, Object>> batched = predictChunk(uncached);
+        if (batched != null) {
+            for (int j = 0; j < missing.size(); j++) {
+                predictionCache.put(uncached.get(j), batched.get(j));
+                responses.set(missing.get(j), batched.get(j));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Sends a chunk to the batch endpoint.
+     *
+     * @return the per-row responses in request order, or {@code null} if the chunk has to be predicted row by row
+     */
+    private List<Map<String, Object>> predictChunk(List<Crop> chunk) {
+        if (!predictBatchEnabled || chunk.size() < 2) {
+            return null;
+        }
+        try {
+            List<Map<String, Object>> rows = new ArrayList<>(chunk.size());
+            for (Crop crop : chunk) {
+                rows.add(toRequestMap(crop));
+            }
+            Object response = restTemplate.postForObject(flaskPredictBatchUrl, rows, Object.class);
+
+            // Accept either a bare array or {"results": [...]}
+            Object results = response instanceof Map<?, ?> map ? map.get("results") : response;
+            if (!(results instanceof List<?> list) || list.size() != chunk.size()) {
+                throw new AnyException(HttpStatus.BAD_GATEWAY.value(), "Batch prediction API returned an unexpected number of results.");
+            }
+            List<Map<String, Object>> responses = new ArrayList<>(list.size());
+            for (Object row : list) {
+                if (!(row instanceof Map<?, ?>)) {
+                    throw new AnyException(HttpStatus.BAD_GATEWAY.value(), "Batch prediction API returned a malformed row.");
+                }
+                @SuppressWarnings("unchecked")
+                Map<String, Object> typed = new HashMap<>((Map<String, Object>) row);
+                responses.add(typed);
+            }
+            return responses;
+        } catch (Exception e) {
+            log.warn("Batch price prediction of {} rows failed, predicting individually: {}", chunk.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> postPrediction(Crop crop) {
+        return restTemplate.postForObject(flaskApiUrl2, toRequestMap(crop), Map.class);
+    }
+
+    private Map<String, Object> predictOne(Crop crop) {
+        try {
+            Map<String, Object> response = postPrediction(crop);
+            if (response == null) {
+                throw new AnyException(HttpStatus.BAD_GATEWAY.value(), "Empty response from Flask service.");
+            }
+            return response;
+        } catch (ResourceAccessException e) {
+            throw new AnyException(HttpStatus.SERVICE_UNAVAILABLE.value(), "Failed to access Flask service.");
+        } catch (HttpClientErrorException e) {
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid request to Flask service.");
+        }
+    }
+
+    private static Map<String, Object> toRequestMap(Crop crop) {
+        Map<String, Object> requestMap = new HashMap<>();
+        requestMap.put("state", crop.getState());
+        requestMap.put("district", crop.getDistrict());
+        requestMap.put("market", crop.getMarket());
+        requestMap.put("crop_name", crop.getCropName());
+        requestMap.put("arrival_date", crop.getArrivalDate() != null ? crop.getArrivalDate().toString() : null);
+        requestMap.put("min_price", crop.getMinPrice());
+        requestMap.put("max_price", crop.getMaxPrice());
+        return requestMap;
+    }
+
+    /**
+     * Copies the model prices onto the crop, and the best of them back into the response.
      */
-    public List<Crop> GetAllMarketDetailsById(Long userId) {
-        return repository.findByUserDetails1UserId(userId);
+    private static void applyPrediction(Crop crop, Map<String, Object> response) {
+        if (response.containsKey("predicted_price_ensemble")) {
+            crop.setSuggestedPriceSecond(((Number) response.get("predicted_price_ensemble")).doubleValue());
+        }
+        if (response.containsKey("predicted_price_nn")) {
+            crop.setSuggestedPriceThird(((Number) response.get("predicted_price_nn")).doubleValue());
+        }
+        if (response.containsKey("predicted_price_xgb")) {
+            crop.setSuggestedPrice(((Number) response.get("predicted_price_xgb")).doubleValue());
+        }
+
+        // Add values back to response
+        response.put("suggested_price_first", crop.getSuggestedPriceSecond());
+        response.put("suggested_price_second", crop.getSuggestedPriceThird());
+        response.put("suggested_price_third", crop.getSuggestedPrice());
+
+        // Calculate best
+        double best = Math.max(crop.getSuggestedPrice(),
+                Math.max(crop.getSuggestedPriceSecond(), crop.getSuggestedPriceThird()));
+        response.put("BEST", best);
+        crop.setBestPrice(best);
     }
 
     /**
-     * Retrieves market data entries for a specific user, filtered by state.
+     * Retrieves one keyset page of a user's market data entries, newest first, optionally filtered by state.
      *
-     * @param state  the state to filter market data by
      * @param userId the ID of the user whose market data is to be retrieved
-     * @return a {@link List} of {@link Crop} objects matching the state and user
+     * @param state  the state to filter market data by ({@code null} for all states)
+     * @param before the cursor returned with the previous page ({@code null} for the first page)
+     * @param size   the maximum number of entries on the page
+     * @return a {@link CursorPage} of {@link Crop} objects and the cursor of the next page
+     */
+    public CursorPage<Crop> getMarketDetailsPage(Long userId, String state, Long before, int size) {
+        Long cursor = before != null ? before : Long.MAX_VALUE;
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Crop> fetched = state != null
+                ? repository.findPageByStateAndUserId(state, userId, cursor, limit)
+                : repository.findPageByUserId(userId, cursor, limit);
+        return CursorPage.of(fetched, size, Crop::getId);
+    }
+
+    /**
+     * Aggregates a user's best prices per crop and market.
+     *
+     * @param userId the ID of the user whose predictions are aggregated
+     * @param filter the optional state, crop, market and date range
+     * @return a {@link List} with one {@link PriceStatsDto} per crop and market
+     */
+    public List<PriceStatsDto> getPriceStats(Long userId, CropPriceAnalyticsRepo.Filter filter) {
+        return analyticsRepo.findStats(userId, filter);
+    }
+
+    /**
+     * Builds a user's best-price series per crop and market.
+     *
+     * @param userId the ID of the user whose predictions are aggregated
+     * @param bucket the bucket width (daily or weekly)
+     * @param filter the optional state, crop, market and date range
+     * @return a {@link List} of {@link PricePointDto}, ordered by crop, market and bucket start
+     */
+    public List<PricePointDto> getPriceSeries(Long userId, CropPriceAnalyticsRepo.Bucket bucket,
+                                              CropPriceAnalyticsRepo.Filter filter) {
+        return analyticsRepo.findSeries(userId, bucket, filter);
+    }
+
+    /**
+     * Reads the daily best-price trend of a crop across all users from the price rollups.
+     *
+     * @param cropName the crop name
+     * @param state    the state (optional)
+     * @param district the district (optional)
+     * @param market   the market (optional)
+     * @param days     the number of days up to and including today
+     * @return a {@link List} of {@link PricePointDto}, one per day with predictions
      */
-    public List<Crop> findByStateAndUserId(String state, Long userId) {
-        return repository.findByStateAndUserDetails1UserId(state, userId);
+    public List<PricePointDto> getDailyTrend(String cropName, String state, String district, String market, int days) {
+        return rollupService.getDailyTrend(cropName, state, district, market, days);
     }
 
     /**
@@ -0,0 +1,31 @@
+package com.example.agriconnect.Service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An uploaded crop image after preprocessing, shared by every consumer of one analysis request.
+ * <p>
+ * {@link #getImageBytes()} is sent to the Flask classifier and stored in Cloudinary, while the smaller
+ * {@link #getValidationImageBytes()} is inlined into Gemini requests. Both buffers are read-only by
+ * convention and must not be modified by consumers.
+ */
+@Getter
+@AllArgsConstructor
+public class PreparedImage {
+
+    // Filename supplied by the client, used for extension checks and the generated unique filename
+    private final String originalFilename;
+
+    // Filename reported to the classifier; ends in .jpg when the image was re-encoded
+    private final String filename;
+
+    // SHA-256 of the bytes as uploaded, used as the analysis cache key
+    private final String contentHash;
+
+    private final String contentType;
+
+    private final byte[] imageBytes;
+
+    private final byte[] validationImageBytes;
+}
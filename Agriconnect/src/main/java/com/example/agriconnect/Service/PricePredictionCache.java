@@ -0,0 +1,230 @@
+package com.example.agriconnect.Service;
+
+import com.example.common.Model.Crop;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes price model answers for identical market-price queries.
+ * <p>
+ * The Flask model is deterministic for a given state, district, market, crop, arrival date and price range,
+ * and during a reporting day many users in the same mandi ask the same question. Queries are keyed on
+ * trimmed, case-folded names and prices rounded to {@code price.prediction.cache.price-step}, so the model
+ * is called once per distinct key; concurrent identical queries wait for that call. Entries belong to the
+ * day (in {@code price.prediction.cache.zone}) they were computed on and are dropped at midnight, so market
+ * data refreshed overnight is picked up the next day. The cache is bounded by an LRU policy.
+ * <p>
+ * Only the model answer is shared; every user still gets their own {@code Crop} row.
+ */
+@Slf4j
+@Service
+public class PricePredictionCache {
+
+    private final ZoneId zone;
+    private final double priceStep;
+    private final boolean enabled;
+
+    // Access-ordered LRU; guarded by lock
+    private final LinkedHashMap<String, CachedPrediction> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    /**
+     * Constructs a new {@code PricePredictionCache}.
+     *
+     * @param meterRegistry the registry the cache counters are published to
+     * @param enabled       whether answers are cached at all
+     * @param maxEntries    the maximum number of cached answers
+     * @param priceStep     the rounding step for min and max prices in the key
+     * @param zone          the time zone whose midnight ends a cache day
+     */
+    public PricePredictionCache(MeterRegistry meterRegistry,
+                                @Value("${price.prediction.cache.enabled:true}") boolean enabled,
+                                @Value("${price.prediction.cache.max-entries:5000}") int maxEntries,
+                                @Value("${price.prediction.cache.price-step:1}") double priceStep,
+                                @Value("${price.prediction.cache.zone:Asia/Kolkata}") String zone) {
+        this.enabled = enabled;
+        this.priceStep = priceStep > 0 ? priceStep : 1;
+        this.zone = ZoneId.of(zone);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrediction> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("price.prediction.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("price.prediction.cache").tag("result", "miss").register(meterRegistry);
+        this.coalesced = Counter.builder("price.prediction.cache").tag("result", "coalesced").register(meterRegistry);
+    }
+
+    /**
+     * Returns the model answer for a crop's query, calling the loader only if no answer for the same key
+     * was computed today and none is being computed.
+     *
+     * @param crop   the query
+     * @param loader calls the price model; a {@code null} answer is returned but not cached
+     * @return a copy of the answer, which the caller may modify
+     * @throws RuntimeException whatever the loader throws
+     */
+    public Map<String, Object> get(Crop crop, Supplier<Map<String, Object>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = keyFor(crop);
+        Map<String, Object> cached = read(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Map<String, Object>> created = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                Map<String, Object> answer = running.join();
+                return answer != null ? new HashMap<>(answer) : null;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            Map<String, Object> answer = loader.get();
+            if (answer != null) {
+                write(key, answer);
+            }
+            created.complete(answer != null ? new HashMap<>(answer) : null);
+            return answer;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * @param crop the query
+     * @return a copy of today's answer for the crop's key, or {@code null} if there is none
+     */
+    public Map<String, Object> getIfPresent(Crop crop) {
+        if (!enabled) {
+            return null;
+        }
+        Map<String, Object> cached = read(keyFor(crop));
+        if (cached != null) {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * Stores an answer obtained outside {@link #get}, such as one row of a batched model call.
+     *
+     * @param crop   the query
+     * @param answer the model answer
+     */
+    public void put(Crop crop, Map<String, Object> answer) {
+        if (enabled && answer != null) {
+            misses.increment();
+            write(keyFor(crop), answer);
+        }
+    }
+
+    /**
+     * Drops every answer at the start of a new day. Entries from an earlier day are also ignored on read,
+     * so answers never outlive their day even if this task is late.
+     */
+    @Scheduled(cron = "0 0 0 * * *", zone = "${price.prediction.cache.zone:Asia/Kolkata}")
+    public void clearForNewDay() {
+        int cleared;
+        lock.lock();
+        try {
+            cleared = entries.size();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Cleared {} cached price predictions for the new day", cleared);
+    }
+
+    /**
+     * Builds the normalised key: names trimmed, case-folded and with single spaces, prices rounded to the
+     * price step.
+     *
+     * @param crop the query
+     * @return the cache key
+     */
+    String keyFor(Crop crop) {
+        return normalise(crop.getState()) + "|" + normalise(crop.getDistrict()) + "|" + normalise(crop.getMarket())
+                + "|" + normalise(crop.getCropName()) + "|" + crop.getArrivalDate()
+                + "|" + roundPrice(crop.getMinPrice()) + "|" + roundPrice(crop.getMaxPrice());
+    }
+
+    private Map<String, Object> read(String key) {
+        LocalDate today = LocalDate.now(zone);
+        lock.lock();
+        try {
+            CachedPrediction cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (!cached.day().equals(today)) {
+                entries.remove(key);
+                return null;
+            }
+            return new HashMap<>(cached.answer());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(String key, Map<String, Object> answer) {
+        CachedPrediction prediction = new CachedPrediction(Map.copyOf(withoutNulls(answer)), LocalDate.now(zone));
+        lock.lock();
+        try {
+            entries.put(key, prediction);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, Object> withoutNulls(Map<String, Object> answer) {
+        Map<String, Object> copy = new HashMap<>(answer);
+        copy.values().removeIf(value -> value == null);
+        return copy;
+    }
+
+    private static String normalise(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private String roundPrice(Double price) {
+        return price == null ? "" : Long.toString(Math.round(price / priceStep));
+    }
+
+    private record CachedPrediction(Map<String, Object> answer, LocalDate day) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.agriconnect.Service;
+
+import com.example.agriconnect.Repository.CropBatchRepo;
+import com.example.agriconnect.Repository.CropPriceRollupRepo;
+import com.example.agriconnect.Repository.cropPriceRepo;
+import com.example.common.DTO.PricePointDto;
+import com.example.common.Model.Crop;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves price predictions together with the daily rollups in {@code crop_price_daily_rollups}.
+ * <p>
+ * Every saved {@link Crop} is added to its (crop, market, district, state, arrival date) rollup row in the
+ * same transaction, so the rollups always match {@code Crop}. In case they drift anyway (rows edited or
+ * deleted directly in the database, or saved before the rollups existed), a nightly job rebuilds the most
+ * recent {@code price.rollup.rebuild.days}, and an empty rollup table is fully rebuilt at startup.
+ */
+@Slf4j
+@Service
+public class PriceRollupService {
+
+    private final cropPriceRepo cropRepository;
+    private final CropBatchRepo cropBatchRepo;
+    private final CropPriceRollupRepo rollupRepo;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @Value("${price.rollup.rebuild.days:35}")
+    private int rebuildDays;
+
+    @Value("${price.rollup.zone:Asia/Kolkata}")
+    private String zone;
+
+    /**
+     * Constructs a new {@code PriceRollupService}.
+     *
+     * @param cropRepository the JPA repository for single predictions
+     * @param cropBatchRepo  the JDBC batch writer for batch predictions
+     * @param rollupRepo     the rollup table
+     */
+    public PriceRollupService(cropPriceRepo cropRepository, CropBatchRepo cropBatchRepo, CropPriceRollupRepo rollupRepo) {
+        this.cropRepository = cropRepository;
+        this.cropBatchRepo = cropBatchRepo;
+        this.rollupRepo = rollupRepo;
+    }
+
+    /**
+     * Saves one prediction and adds it to its rollup.
+     *
+     * @param crop the predicted crop
+     * @return the saved crop
+     */
+    @Transactional
+    public Crop recordPrediction(Crop crop) {
+        Crop saved = cropRepository.save(crop);
+        rollupRepo.addAll(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * Saves several predictions of one user with a JDBC batch and adds them to their rollups.
+     *
+     * @param crops  the predicted crops
+     * @param userId the ID of the user owning every row
+     * @return the number of predictions saved
+     */
+    @Transactional
+    public int recordPredictions(List<Crop> crops, Long userId) {
+        int saved = cropBatchRepo.insertAll(crops, userId);
+        rollupRepo.addAll(crops);
+        return saved;
+    }
+
+    /**
+     * Reads the daily best-price trend of a crop across all users.
+     *
+     * @param cropName the crop name
+     * @param state    the state (optional)
+     * @param district the district (optional)
+     * @param market   the market (optional)
+     * @param days     the number of days up to and including today
+     * @return one point per day with predictions, in date order
+     */
+    public List<PricePointDto> getDailyTrend(String cropName, String state, String district, String market, int days) {
+        LocalDate today = LocalDate.now(ZoneId.of(zone));
+        return rollupRepo.findDailyTrend(cropName, state, district, market, today.minusDays(days - 1L), today);
+    }
+
+    /**
+     * Builds the rollups from all existing predictions when the rollup table is still empty.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIfEmpty() {
+        try {
+            if (rollupRepo.isEmpty()) {
+                rebuild(null);
+            }
+        } catch (Exception e) {
+            log.warn("Could not build the price rollups at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Scheduled task that rebuilds the rollups of the last {@code price.rollup.rebuild.days} days from
+     * {@code Crop}. Runs nightly by default.
+     */
+    @Scheduled(cron = "${price.rollup.rebuild.cron:0 15 3 * * *}", zone = "${price.rollup.zone:Asia/Kolkata}")
+    public void rebuildRecent() {
+        rebuild(LocalDate.now(ZoneId.of(zone)).minusDays(rebuildDays));
+    }
+
+    private void rebuild(LocalDate from) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int rows = rollupRepo.rebuildFrom(from);
+            log.info("Rebuilt {} price rollup rows from {} in {} ms", rows, from != null ? from : "the beginning",
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Price rollup rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.agriconnect.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * The content of one upload, read once into a (possibly pooled) byte array.
+ * <p>
+ * The backing array may be larger than the upload and is handed back to the {@link UploadBufferPool}
+ * on {@link #close()}, so consumers must read through {@link #inputStream()} or {@link #array()} with
+ * {@link #length()} and must not keep references to it afterwards. Use {@link #toByteArray()} for a copy
+ * that outlives the buffer.
+ */
+public final class UploadBuffer implements AutoCloseable {
+
+    private final byte[] array;
+    private final int length;
+    private final UploadBufferPool pool;
+    private boolean released;
+
+    UploadBuffer(byte[] array, int length, UploadBufferPool pool) {
+        this.array = array;
+        this.length = length;
+        this.pool = pool;
+    }
+
+    /**
+     * @return the backing array; only the first {@link #length()} bytes belong to the upload
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    /**
+     * @return the number of bytes in the upload
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return a stream over the upload that does not copy the backing array
+     */
+    public InputStream inputStream() {
+        return new ByteArrayInputStream(array, 0, length);
+    }
+
+    /**
+     * @return an exactly-sized copy of the upload
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(array, length);
+    }
+
+    /**
+     * Returns the backing array to the pool. Calling this more than once has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (!released) {
+            released = true;
+            if (pool != null) {
+                pool.release(array);
+            }
+        }
+    }
+}
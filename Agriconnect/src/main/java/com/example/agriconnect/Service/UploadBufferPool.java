@@ -0,0 +1,133 @@
+package com.example.agriconnect.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of reusable upload-sized byte arrays for reading crop image uploads.
+ * <p>
+ * Each upload is read from the multipart stream exactly once into a pooled array sized to
+ * {@code image.upload.max-file-size}. Reusing these arrays avoids allocating a fresh
+ * multi-megabyte (humongous, on G1) array per request. Arrays are created lazily up to the pool size;
+ * when all are in use, the upload is read into an exactly-sized array that is not pooled.
+ * <p>
+ * Streams of unknown length, such as zip entries, are read with {@link #read(InputStream, int)}, which
+ * never reads more than the caller's limit.
+ */
+@Slf4j
+@Component
+public class UploadBufferPool {
+
+    private final int bufferSize;
+    private final int poolSize;
+    private final BlockingQueue<byte[]> idle;
+    private final AtomicInteger created = new AtomicInteger();
+
+    /**
+     * Constructs a new {@code UploadBufferPool}.
+     *
+     * @param maxFileSize the largest accepted upload, which sizes each pooled array
+     * @param poolSize    the maximum number of pooled arrays
+     */
+    public UploadBufferPool(@Value("${image.upload.max-file-size:10MB}") DataSize maxFileSize,
+                            @Value("${image.upload.buffer-pool.size:4}") int poolSize) {
+        this.bufferSize = (int) Math.min(Integer.MAX_VALUE - 8, maxFileSize.toBytes());
+        this.poolSize = poolSize;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * @return the largest accepted image upload in bytes, which is also the pooled array size
+     */
+    public int maxImageSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Reads an upload into a pooled array. The caller must close the returned buffer once the upload has
+     * been consumed.
+     *
+     * @param file the uploaded file
+     * @return the buffer holding the upload content
+     * @throws IOException if the upload cannot be read
+     */
+    public UploadBuffer read(MultipartFile file) throws IOException {
+        long size = file.getSize();
+        if (size < 0 || size > bufferSize) {
+            byte[] bytes = file.getBytes();
+            return new UploadBuffer(bytes, bytes.length, null);
+        }
+
+        byte[] array = acquire();
+        boolean pooled = array != null;
+        if (!pooled) {
+            array = new byte[(int) size];
+        }
+        try (InputStream in = file.getInputStream()) {
+            int length = in.readNBytes(array, 0, (int) size);
+            return new UploadBuffer(array, length, pooled ? this : null);
+        } catch (IOException e) {
+            if (pooled) {
+                release(array);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a stream of unknown length into a pooled array, stopping at {@code maxBytes}. The caller must
+     * close the returned buffer once the content has been consumed.
+     *
+     * @param in       the stream, which is left positioned after the bytes read
+     * @param maxBytes the most bytes to accept; capped at the pooled array size
+     * @return the buffer holding the content, or {@code null} if the stream holds more than {@code maxBytes}
+     * @throws IOException if the stream cannot be read
+     */
+    public UploadBuffer read(InputStream in, int maxBytes) throws IOException {
+        int limit = Math.min(maxBytes, bufferSize);
+        byte[] array = acquire();
+        if (array == null) {
+            // readNBytes grows its result with the content, so a short stream never allocates the full limit
+            byte[] bytes = in.readNBytes(limit + 1);
+            return bytes.length > limit ? null : new UploadBuffer(bytes, bytes.length, null);
+        }
+        boolean kept = false;
+        try {
+            int length = in.readNBytes(array, 0, limit);
+            if (length == limit && in.read() != -1) {
+                return null;
+            }
+            kept = true;
+            return new UploadBuffer(array, length, this);
+        } finally {
+            if (!kept) {
+                release(array);
+            }
+        }
+    }
+
+    void release(byte[] array) {
+        idle.offer(array);
+    }
+
+    private byte[] acquire() {
+        byte[] array = idle.poll();
+        if (array != null) {
+            return array;
+        }
+        if (created.getAndUpdate(n -> n < poolSize ? n + 1 : n) < poolSize) {
+            log.debug("Allocating pooled upload buffer of {} bytes", bufferSize);
+            return new byte[bufferSize];
+        }
+        return null;
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -33,6 +34,10 @@ public class ExpertServiceImpl implements ExpertService {
     private final Cloudinary cloudinary;
     private final OtpService otpService;
 
+    // The multipart limits are sized for batch image analysis, so ID and profile images are capped here
+    @Value("${image.upload.max-file-size:10MB}")
+    private DataSize maxUploadSize;
+
     @Autowired
     public ExpertServiceImpl(
             ExpertRepository expertRepository,
@@ -209,6 +214,9 @@ public class ExpertServiceImpl implements ExpertService {
     @Override
     @Transactional
     public void submitExpertVerification(ExpertDto expertDto, MultipartFile uploadId, UserPrinciple userPrinciples, MultipartFile U) {
+        if (isTooLarge(uploadId) || isTooLarge(U)) {
+            throw new AnyException(413, "Uploaded image exceeds the maximum size of " + maxUploadSize.toMegabytes() + "MB");
+        }
         try {
             Expert expert = new Expert();
             expert.setField(expertDto.getField());
@@ -238,4 +246,8 @@ public class ExpertServiceImpl implements ExpertService {
                  500,"Failed to submit expert verification: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private boolean isTooLarge(MultipartFile file) {
+        return file != null && file.getSize() > maxUploadSize.toBytes();
+    }
+}
@@ -1,19 +1,29 @@
 package com.example.common.Configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * Application-wide configuration class.
  * <p>
- * Provides reusable beans such as {@link RestTemplate} and {@link ObjectMapper}
- * that can be injected across modules.
+ * Provides reusable beans such as {@link ObjectMapper} that can be injected across modules.
+ * Outbound HTTP clients are configured in {@link OutboundHttpConfig}.
  */
 @Configuration
 public class AppConfig {
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${weather.refresh.executor.max-size:4}")
+    private int weatherRefreshMaxSize;
+
+    @Value("${weather.refresh.executor.queue-capacity:100}")
+    private int weatherRefreshQueueCapacity;
+
     /**
      * Default constructor for AppConfig.
      */
@@ -21,17 +31,6 @@ public class AppConfig {
         // default constructor
     }
 
-    /**
-     * Creates a {@link RestTemplate} bean for making HTTP requests
-     * to external services.
-     *
-     * @return configured {@link RestTemplate} instance
-     */
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
-
     /**
      * Creates a Jackson {@link ObjectMapper} bean for JSON serialization
      * and deserialization across the application.
@@ -42,4 +41,24 @@ public class AppConfig {
     public ObjectMapper objectMapper() {
         return new ObjectMapper();
     }
+
+    /**
+     * Creates the small bounded executor that refreshes stale weather forecasts in the background.
+     * When it is full the refresh is skipped and the stale forecast keeps being served.
+     *
+     * @return configured {@link ThreadPoolTaskExecutor} instance
+     */
+    @Bean(name = "weatherRefreshExecutor")
+    public ThreadPoolTaskExecutor weatherRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(weatherRefreshMaxSize);
+        executor.setMaxPoolSize(weatherRefreshMaxSize);
+        executor.setQueueCapacity(weatherRefreshQueueCapacity);
+        executor.setThreadNamePrefix("weather-refresh-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("weather-refresh-", 1).factory());
+        }
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,131 @@
+package com.example.common.Configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Outbound HTTP configuration shared by every external integration.
+ * <p>
+ * Each destination gets its own {@link RestTemplate} backed by its own JDK {@link HttpClient}, so every
+ * destination has a separate keep-alive connection pool and its own connect and read timeouts. HTTPS
+ * destinations negotiate HTTP/2 where the server supports it; cleartext destinations (the Flask model
+ * servers and OpenWeatherMap) stay on HTTP/1.1 to avoid the h2c upgrade handshake.
+ * <p>
+ * Timeouts are read from {@code http.client.<destination>.connect-timeout} and
+ * {@code http.client.<destination>.read-timeout}, and HTTP/2 from {@code http.client.<destination>.http2}.
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    private final Environment environment;
+
+    /**
+     * Constructs a new {@code OutboundHttpConfig}.
+     *
+     * @param environment the environment the per-destination settings are read from
+     */
+    public OutboundHttpConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Creates the general-purpose {@link RestTemplate}, used where no destination-specific template applies.
+     *
+     * @return configured {@link RestTemplate} instance
+     */
+    @Bean
+    @Primary
+    public RestTemplate restTemplate() {
+        return build("default", Duration.ofSeconds(5), Duration.ofSeconds(30), false);
+    }
+
+    /**
+     * @return the {@link RestTemplate} for the Flask crop recommendation model
+     */
+    @Bean
+    public RestTemplate flaskRecommendRestTemplate() {
+        return build("flask-recommend", Duration.ofSeconds(3), Duration.ofSeconds(10), false);
+    }
+
+    /**
+     * @return the {@link RestTemplate} for the Flask crop price prediction model
+     */
+    @Bean
+    public RestTemplate flaskPredictRestTemplate() {
+        return build("flask-predict", Duration.ofSeconds(3), Duration.ofSeconds(10), false);
+    }
+
+    /**
+     * @return the {@link RestTemplate} for the Flask crop disease classifier
+     */
+    @Bean
+    public RestTemplate flaskAnalysisRestTemplate() {
+        return build("flask-analysis", Duration.ofSeconds(3), Duration.ofSeconds(30), false);
+    }
+
+    /**
+     * @return the {@link RestTemplate} for the Gemini API
+     */
+    @Bean
+    public RestTemplate geminiRestTemplate() {
+        return build("gemini", Duration.ofSeconds(5), Duration.ofSeconds(60), true);
+    }
+
+    /**
+     * @return the {@link RestTemplate} for the OpenWeatherMap API
+     */
+    @Bean
+    public RestTemplate weatherRestTemplate() {
+        return build("weather", Duration.ofSeconds(3), Duration.ofSeconds(10), false);
+    }
+
+    /**
+     * @return the {@link RestTemplate} for the Pexels API
+     */
+    @Bean
+    public RestTemplate pexelsRestTemplate() {
+        return build("pexels", Duration.ofSeconds(3), Duration.ofSeconds(5), true);
+    }
+
+    /**
+     * @return the {@link RestTemplate} for the MyMemory translation API
+     */
+    @Bean
+    public RestTemplate translationRestTemplate() {
+        return build("translation", Duration.ofSeconds(3), Duration.ofSeconds(5), true);
+    }
+
+    /**
+     * Builds a {@link RestTemplate} over a dedicated {@link HttpClient}, applying any configured overrides.
+     *
+     * @param destination           the destination name used in the {@code http.client.*} properties
+     * @param defaultConnectTimeout the connect timeout if none is configured
+     * @param defaultReadTimeout    the read timeout if none is configured
+     * @param defaultHttp2          whether HTTP/2 is negotiated if not configured
+     * @return configured {@link RestTemplate} instance
+     */
+    private RestTemplate build(String destination, Duration defaultConnectTimeout, Duration defaultReadTimeout,
+                               boolean defaultHttp2) {
+        String prefix = "http.client." + destination + ".";
+        Duration connectTimeout = environment.getProperty(prefix + "connect-timeout", Duration.class, defaultConnectTimeout);
+        Duration readTimeout = environment.getProperty(prefix + "read-timeout", Duration.class, defaultReadTimeout);
+        boolean http2 = environment.getProperty(prefix + "http2", Boolean.class, defaultHttp2);
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(requestFactory);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.common.DTO;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * One page of a keyset (seek) paginated history, newest first.
+ * <p>
+ * Pages are read with {@code id < cursor ORDER BY id DESC}, so the database seeks straight to the cursor in
+ * the user's index instead of skipping the rows of every earlier page, and rows saved in the meantime do
+ * not shift later pages.
+ *
+ * @param items      the rows of this page
+ * @param nextCursor the ID to pass as the cursor for the next page, or {@code null} if this is the last page
+ * @param <T>        the row type
+ */
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+
+    /**
+     * Builds a page from rows fetched with a limit of {@code size + 1}; the extra row only tells whether a
+     * further page exists and is not returned.
+     *
+     * @param fetched the fetched rows, in descending ID order
+     * @param size    the page size
+     * @param idOf    reads a row's ID
+     * @param <T>     the row type
+     * @return the page
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int size, ToLongFunction<T> idOf) {
+        if (fetched.size() <= size) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> items = List.copyOf(fetched.subList(0, size));
+        return new CursorPage<>(items, idOf.applyAsLong(items.get(size - 1)));
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.common.DTO;
+
+/**
+ * One day of the 5 day forecast, aggregated from its 3-hour forecast steps.
+ *
+ * @param date              the local date at the forecast location (ISO-8601)
+ * @param minTemperature    the lowest temperature of the day in °C, rounded
+ * @param maxTemperature    the highest temperature of the day in °C, rounded
+ * @param meanTemperature   the mean step temperature in °C, to one decimal
+ * @param rainProbability   the probability of rain at some point during the day in %, rounded
+ * @param dominantCondition the most frequent condition group of the day, such as "Rain"
+ * @param steps             the number of 3-hour steps the day covers (fewer than 8 for the first and last day)
+ */
+public record DailyForecastDto(
+        String date,
+        long minTemperature,
+        long maxTemperature,
+        double meanTemperature,
+        long rainProbability,
+        String dominantCondition,
+        int steps) {
+}
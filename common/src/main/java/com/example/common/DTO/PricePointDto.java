@@ -0,0 +1,27 @@
+package com.example.common.DTO;
+
+import java.time.LocalDate;
+
+/**
+ * One time bucket (a day or an ISO week) of the best-price series of a crop at a market.
+ *
+ * @param cropName     the crop name
+ * @param market       the market (mandi) name
+ * @param bucketStart  the first day of the bucket; Monday for weekly buckets
+ * @param predictions  the number of predictions in the bucket
+ * @param minBestPrice the lowest best price in the bucket
+ * @param maxBestPrice the highest best price in the bucket
+ * @param avgBestPrice the mean best price in the bucket, to two decimals
+ * @param avgChange    the change of the mean against the previous bucket of the same series, or {@code null}
+ *                     for the first bucket
+ */
+public record PricePointDto(
+        String cropName,
+        String market,
+        LocalDate bucketStart,
+        long predictions,
+        Double minBestPrice,
+        Double maxBestPrice,
+        Double avgBestPrice,
+        Double avgChange) {
+}
@@ -0,0 +1,26 @@
+package com.example.common.DTO;
+
+import java.time.LocalDate;
+
+/**
+ * Best-price statistics of one crop at one market, aggregated over a user's price predictions.
+ *
+ * @param cropName     the crop name
+ * @param market       the market (mandi) name
+ * @param predictions  the number of predictions in the group
+ * @param minBestPrice the lowest best price
+ * @param maxBestPrice the highest best price
+ * @param avgBestPrice the mean best price, to two decimals
+ * @param firstDate    the earliest arrival date in the group
+ * @param lastDate     the latest arrival date in the group
+ */
+public record PriceStatsDto(
+        String cropName,
+        String market,
+        long predictions,
+        Double minBestPrice,
+        Double maxBestPrice,
+        Double avgBestPrice,
+        LocalDate firstDate,
+        LocalDate lastDate) {
+}
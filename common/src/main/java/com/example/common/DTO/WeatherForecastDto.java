@@ -0,0 +1,88 @@
+package com.example.common.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Current weather for a location together with the multi-crop advice for it, as returned by {@code /weather},
+ * and optionally the daily summaries of the 5 day forecast.
+ * <p>
+ * Instances are immutable (the advice list and its entries are unmodifiable), so one instance can be cached
+ * and shared between requests.
+ *
+ * @param city            the OpenWeatherMap city name
+ * @param country         the ISO country code
+ * @param temperature     the temperature in °C, rounded
+ * @param feelsLike       the perceived temperature in °C, rounded
+ * @param humidity        the relative humidity in %
+ * @param pressure        the pressure in hPa
+ * @param description     the condition description, such as "light rain"
+ * @param icon            the OpenWeatherMap icon code
+ * @param weatherMain     the condition group, such as "Rain"
+ * @param windSpeed       the wind speed in km/h, rounded
+ * @param windDeg         the wind direction in degrees
+ * @param rainProbability the probability of rain in %, rounded
+ * @param date            the display date, such as "05 Mar 2025 (Wednesday)"
+ * @param cropAdvice      the per-crop advice
+ * @param daily           the day-by-day summary of the 5 day forecast; omitted from the JSON when empty
+ * @param adviceFallback  whether {@code cropAdvice} is the generic default because Gemini was unavailable;
+ *                        such forecasts are refreshed at the next request instead of being cached
+ */
+public record WeatherForecastDto(
+        String city,
+        String country,
+        long temperature,
+        long feelsLike,
+        int humidity,
+        int pressure,
+        String description,
+        String icon,
+        String weatherMain,
+        long windSpeed,
+        int windDeg,
+        long rainProbability,
+        String date,
+        List<Map<String, String>> cropAdvice,
+        @JsonInclude(JsonInclude.Include.NON_EMPTY) List<DailyForecastDto> daily,
+        @JsonIgnore boolean adviceFallback) {
+
+    public WeatherForecastDto {
+        List<Map<String, String>> advice = new ArrayList<>(cropAdvice != null ? cropAdvice.size() : 0);
+        if (cropAdvice != null) {
+            for (Map<String, String> crop : cropAdvice) {
+                advice.add(Collections.unmodifiableMap(new HashMap<>(crop)));
+            }
+        }
+        cropAdvice = Collections.unmodifiableList(advice);
+        daily = daily != null ? List.copyOf(daily) : List.of();
+    }
+
+    /**
+     * @return this forecast without the daily summaries, for current-conditions responses
+     */
+    public WeatherForecastDto withoutDaily() {
+        return daily.isEmpty() ? this : new WeatherForecastDto(city, country, temperature, feelsLike, humidity,
+                pressure, description, icon, weatherMain, windSpeed, windDeg, rainProbability, date, cropAdvice, List.of(), adviceFallback);
+    }
+
+    /**
+     * @return the current conditions and daily summaries of this forecast, with no crop advice
+     */
+    public WeatherForecastDto withoutAdvice() {
+        return cropAdvice.isEmpty() ? this : new WeatherForecastDto(city, country, temperature, feelsLike, humidity,
+                pressure, description, icon, weatherMain, windSpeed, windDeg, rainProbability, date, List.of(), daily, adviceFallback);
+    }
+
+    /**
+     * @return the placeholder shown while no weather data is available
+     */
+    public static WeatherForecastDto empty() {
+        return new WeatherForecastDto("", "", 0, 0, 0, 0, "", "", "Loading...", 0, 0, 0, "", List.of(), List.of(), false);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.common.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persisted progress of one Cloudinary cleanup run, so a restarted instance resumes from the last
+ * listing cursor instead of rescanning the whole folder.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "cloudinary_cleanup_runs")
+public class CloudinaryCleanupRun {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "prefix", nullable = false)
+    private String prefix;
+
+    @Column(name = "days_old", nullable = false)
+    private int daysOld;
+
+    // Assets created before this instant (epoch millis) are deleted; fixed when the run is queued
+    @Column(name = "cutoff_time", nullable = false)
+    private long cutoffTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    // Cursor of the next listing page; null before the first page and after the last one
+    @Column(name = "next_cursor", length = 512)
+    private String nextCursor;
+
+    // Set once the last listing page has been read; the run completes when its pending deletes are done
+    @Column(name = "listing_complete")
+    private boolean listingComplete;
+
+    // Newline-separated public IDs of the listed page that still have to be deleted; null when none are left
+    @Column(name = "pending_public_ids", columnDefinition = "TEXT")
+    private String pendingPublicIds;
+
+    @Column(name = "scanned_count")
+    private long scannedCount;
+
+    @Column(name = "deleted_count")
+    private long deletedCount;
+
+    @Column(name = "failed_count")
+    private long failedCount;
+
+    // Page attempts that failed in a row; the run is marked FAILED once this reaches the configured limit
+    @Column(name = "consecutive_errors")
+    private int consecutiveErrors;
+
+    // Set while the run waits for the Admin API rate limit window to reset (epoch millis)
+    @Column(name = "paused_until")
+    private Long pausedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private long createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private long updatedAt;
+}
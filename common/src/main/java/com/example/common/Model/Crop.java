@@ -15,7 +15,10 @@ import java.time.LocalDate;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "Crop")
+@Table(name = "Crop", indexes = {
+        @Index(name = "idx_crop_user_arrival", columnList = "UserId, arrival_date"),
+        @Index(name = "idx_crop_user_state", columnList = "UserId, state")
+})
 public class Crop {
 
     @Id
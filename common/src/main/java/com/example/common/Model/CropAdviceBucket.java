@@ -0,0 +1,36 @@
+package com.example.common.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Generated multi-crop advice for one discretised weather condition, so the same temperature, humidity,
+ * rain and condition band is only ever sent to Gemini once.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "crop_advice_buckets")
+public class CropAdviceBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Bucket identifier such as "t14|h7|r3|rain", see CropAdviceEngine
+    @Column(name = "bucket_key", nullable = false, unique = true, length = 64)
+    private String bucketKey;
+
+    // JSON array of per-crop advice (cropName, status, adviceEn, adviceHi, ...)
+    @Lob
+    @Column(name = "advice_json", nullable = false, columnDefinition = "TEXT")
+    private String adviceJson;
+
+    // Number of forecasts answered from this bucket; used to pick the buckets worth pre-warming
+    @Column(name = "hit_count")
+    private long hitCount;
+
+    @Column(name = "created_at", nullable = false)
+    private long createdAt;
+}
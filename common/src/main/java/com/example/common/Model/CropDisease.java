@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "crop_diseases")
+@Table(name = "crop_diseases", indexes = {
+        @Index(name = "idx_disease_user_crop_en", columnList = "UserId, crop_type_en"),
+        @Index(name = "idx_disease_user_crop_hi", columnList = "UserId, crop_type_hi")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,66 @@
+package com.example.common.Model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Running totals of all users' price predictions for one crop at one market on one arrival date, so price
+ * trends are read from a few indexed rows instead of scanning {@code Crop}.
+ * <p>
+ * Rows are upserted whenever predictions are saved and rebuilt from {@code Crop} by a nightly job; see
+ * {@code PriceRollupService}. Missing state or district values are stored as empty strings so they still
+ * take part in the unique key.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "crop_price_daily_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_price_rollup_key",
+                columnNames = {"crop_name", "market", "district", "state", "rollup_date"}),
+        indexes = @Index(name = "idx_price_rollup_crop_date", columnList = "crop_name, rollup_date"))
+public class CropPriceRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "crop_name", nullable = false, length = 100)
+    private String cropName;
+
+    @Column(name = "market", nullable = false, length = 100)
+    private String market;
+
+    @Column(name = "district", nullable = false, length = 100)
+    private String district;
+
+    @Column(name = "state", nullable = false, length = 100)
+    private String state;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "predictions", nullable = false)
+    private long predictions;
+
+    @Column(name = "best_sum", nullable = false)
+    private double bestSum;
+
+    @Column(name = "best_min")
+    private Double bestMin;
+
+    @Column(name = "best_max")
+    private Double bestMax;
+
+    // Sum, min and max of the XGBoost price (Crop.suggestedPrice)
+    @Column(name = "suggested_sum", nullable = false)
+    private double suggestedSum;
+
+    @Column(name = "suggested_min")
+    private Double suggestedMin;
+
+    @Column(name = "suggested_max")
+    private Double suggestedMax;
+}
@@ -13,7 +13,8 @@ import lombok.ToString;
 @Entity
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "CropRecommendation")
+@Table(name = "CropRecommendation",
+        indexes = @Index(name = "idx_recommendation_user_crop", columnList = "UserId, predicted_crop"))
 public class CropRecommendation {
 
     @Id
@@ -0,0 +1,357 @@
+package com.example.common.Service;
+
+import com.example.common.Model.CropAdviceBucket;
+import com.example.common.repo.CropAdviceBucketRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Memoizes multi-crop weather advice per discretised weather condition.
+ * <p>
+ * Advice only depends on temperature, humidity, rain probability and the weather condition, so these are
+ * rounded down to bands (2 °C, 10 % and 0.1 by default) and the condition is lower-cased. Each band
+ * combination is generated once, for the band's midpoint, and stored in {@code crop_advice_buckets}.
+ * Later forecasts falling into the same bucket are answered from memory or the database without a Gemini
+ * call. The in-memory tier is a bounded LRU, so rarely seen buckets make way for new ones. Bucket usage is
+ * counted so the most common buckets are loaded into memory at startup, and their unseen neighbours can be
+ * generated ahead of time.
+ */
+@Component
+public class CropAdviceEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(CropAdviceEngine.class);
+
+    private static final TypeReference<List<Map<String, String>>> ADVICE_TYPE = new TypeReference<>() {};
+
+    private final CropAdviceBucketRepository bucketRepository;
+    private final ObjectMapper objectMapper;
+
+    private final LinkedHashMap<String, List<Map<String, String>>> memory;
+    private final ReentrantLock memoryLock = new ReentrantLock();
+    private final Map<String, CompletableFuture<List<Map<String, String>>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> pendingHits = new ConcurrentHashMap<>();
+
+    @Value("${weather.advice.bucket.temp-step:2}")
+    private double tempStep;
+
+    @Value("${weather.advice.bucket.humidity-step:10}")
+    private int humidityStep;
+
+    @Value("${weather.advice.bucket.rain-step:0.1}")
+    private double rainStep;
+
+    @Value("${weather.advice.warm-start-buckets:200}")
+    private int warmStartBuckets;
+
+    /**
+     * Constructs a new {@code CropAdviceEngine}.
+     *
+     * @param bucketRepository the store of generated advice
+     * @param objectMapper     the mapper used to (de)serialize stored advice
+     * @param maxMemoryEntries the maximum number of buckets kept in memory
+     */
+    public CropAdviceEngine(CropAdviceBucketRepository bucketRepository, ObjectMapper objectMapper,
+                            @Value("${weather.advice.memory.max-entries:2000}") int maxMemoryEntries) {
+        this.bucketRepository = bucketRepository;
+        this.objectMapper = objectMapper;
+        int capacity = Math.max(1, maxMemoryEntries);
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Map<String, String>>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Maps weather readings to their bucket.
+     *
+     * @param temp        the temperature in °C
+     * @param humidity    the relative humidity in %
+     * @param rainProb    the rain probability (0-1)
+     * @param weatherMain the OpenWeatherMap condition group, such as "Rain"
+     * @return the bucket containing the readings
+     */
+    public AdviceBucket bucketFor(double temp, int humidity, double rainProb, String weatherMain) {
+        return new AdviceBucket(
+                (int) Math.floor(temp / tempStep),
+                humidity / humidityStep,
+                (int) Math.floor(rainProb / rainStep + 1e-9),
+                weatherMain.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the advice for a bucket, generating and storing it if the bucket has never been seen.
+     *
+     * @param bucket    the weather bucket
+     * @param generator produces the advice for a bucket, normally through Gemini
+     * @return a copy of the advice, one map per crop
+     * @throws RuntimeException whatever the generator throws when the bucket has to be generated
+     */
+    public List<Map<String, String>> getAdvice(AdviceBucket bucket,
+                                               Function<AdviceBucket, List<Map<String, String>>> generator) {
+        String key = bucket.key();
+        pendingHits.computeIfAbsent(key, k -> new LongAdder()).increment();
+
+        List<Map<String, String>> advice = recall(key);
+        if (advice == null) {
+            advice = loadOrGenerate(bucket, generator);
+        }
+        return copyOf(advice);
+    }
+
+    /**
+     * Lists buckets next to the most used ones (one temperature or rain band either side) that have no
+     * stored advice yet. Weather drifts gradually, so these are the buckets most likely to be requested next.
+     *
+     * @param popularBuckets how many of the most used buckets to look around
+     * @param limit          the maximum number of candidates
+     * @return unseen neighbouring buckets, most used neighbourhoods first
+     */
+    public List<AdviceBucket> prewarmCandidates(int popularBuckets, int limit) {
+        Set<AdviceBucket> candidates = new LinkedHashSet<>();
+        for (CropAdviceBucket stored : bucketRepository.findMostUsed(PageRequest.of(0, popularBuckets))) {
+            Optional<AdviceBucket> parsed = AdviceBucket.parse(stored.getBucketKey());
+            if (parsed.isEmpty()) {
+                continue;
+            }
+            AdviceBucket bucket = parsed.get();
+            for (int delta : new int[]{-1, 1}) {
+                candidates.add(new AdviceBucket(bucket.tempBand() + delta, bucket.humidityBand(), bucket.rainBand(), bucket.condition()));
+                if (bucket.rainBand() + delta >= 0 && (bucket.rainBand() + delta) * rainStep <= 1) {
+                    candidates.add(new AdviceBucket(bucket.tempBand(), bucket.humidityBand(), bucket.rainBand() + delta, bucket.condition()));
+                }
+            }
+        }
+
+        List<AdviceBucket> unseen = new ArrayList<>();
+        for (AdviceBucket candidate : candidates) {
+            if (unseen.size() >= limit) {
+                break;
+            }
+            if (!isRemembered(candidate.key()) && bucketRepository.findByBucketKey(candidate.key()).isEmpty()) {
+                unseen.add(candidate);
+            }
+        }
+        return unseen;
+    }
+
+    /**
+     * @param bucket the weather bucket
+     * @return the temperature at the middle of the bucket's band
+     */
+    public double representativeTemp(AdviceBucket bucket) {
+        return (bucket.tempBand() + 0.5) * tempStep;
+    }
+
+    /**
+     * @param bucket the weather bucket
+     * @return the humidity at the middle of the bucket's band, capped at 100
+     */
+    public int representativeHumidity(AdviceBucket bucket) {
+        return Math.min(100, bucket.humidityBand() * humidityStep + humidityStep / 2);
+    }
+
+    /**
+     * @param bucket the weather bucket
+     * @return the rain probability at the middle of the bucket's band, capped at 1
+     */
+    public double representativeRainProb(AdviceBucket bucket) {
+        return Math.min(1.0, (bucket.rainBand() + 0.5) * rainStep);
+    }
+
+    /**
+     * Loads the most used buckets into memory once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmStart() {
+        try {
+            int loaded = 0;
+            List<CropAdviceBucket> mostUsed = new ArrayList<>(bucketRepository.findMostUsed(PageRequest.of(0, warmStartBuckets)));
+            // Least used first, so the busiest buckets end up most recently used and are evicted last
+            for (CropAdviceBucket stored : mostUsed.reversed()) {
+                if (remember(stored.getBucketKey(), objectMapper.readValue(stored.getAdviceJson(), ADVICE_TYPE), true)) {
+                    loaded++;
+                }
+            }
+            logger.info("Loaded {} crop advice buckets into memory", loaded);
+        } catch (Exception e) {
+            logger.warn("Could not warm the crop advice memory: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Scheduled task that adds the hits counted since the last run to the stored buckets. Runs every minute.
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void flushHits() {
+        for (String key : new ArrayList<>(pendingHits.keySet())) {
+            LongAdder hits = pendingHits.remove(key);
+            long count = hits != null ? hits.sumThenReset() : 0;
+            if (count == 0) {
+                continue;
+            }
+            try {
+                bucketRepository.addHits(key, count);
+            } catch (Exception e) {
+                logger.warn("Failed to record crop advice hits for {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private List<Map<String, String>> loadOrGenerate(AdviceBucket bucket,
+                                                     Function<AdviceBucket, List<Map<String, String>>> generator) {
+        String key = bucket.key();
+        CompletableFuture<List<Map<String, String>>> created = new CompletableFuture<>();
+        CompletableFuture<List<Map<String, String>>> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            List<Map<String, String>> advice = readStored(key);
+            if (advice == null) {
+                advice = generator.apply(bucket);
+                store(key, advice);
+            }
+            remember(key, advice, false);
+            created.complete(advice);
+            return advice;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private List<Map<String, String>> readStored(String key) {
+        try {
+            Optional<CropAdviceBucket> stored = bucketRepository.findByBucketKey(key);
+            return stored.isPresent() ? objectMapper.readValue(stored.get().getAdviceJson(), ADVICE_TYPE) : null;
+        } catch (Exception e) {
+            logger.warn("Failed to read stored crop advice for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, List<Map<String, String>> advice) {
+        try {
+            CropAdviceBucket bucket = new CropAdviceBucket();
+            bucket.setBucketKey(key);
+            bucket.setAdviceJson(objectMapper.writeValueAsString(advice));
+            bucket.setCreatedAt(System.currentTimeMillis());
+            bucketRepository.save(bucket);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the same bucket first; its advice is equally valid
+            logger.debug("Crop advice bucket {} already stored", key);
+        } catch (Exception e) {
+            logger.warn("Failed to store crop advice for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private List<Map<String, String>> recall(String key) {
+        memoryLock.lock();
+        try {
+            return memory.get(key);
+        } finally {
+            memoryLock.unlock();
+        }
+    }
+
+    private boolean isRemembered(String key) {
+        memoryLock.lock();
+        try {
+            // containsKey does not count as an access, so checking candidates leaves the LRU order alone
+            return memory.containsKey(key);
+        } finally {
+            memoryLock.unlock();
+        }
+    }
+
+    private boolean remember(String key, List<Map<String, String>> advice, boolean onlyIfAbsent) {
+        memoryLock.lock();
+        try {
+            if (onlyIfAbsent) {
+                return memory.putIfAbsent(key, advice) == null;
+            }
+            memory.put(key, advice);
+            return true;
+        } finally {
+            memoryLock.unlock();
+        }
+    }
+
+    private static List<Map<String, String>> copyOf(List<Map<String, String>> advice) {
+        List<Map<String, String>> copy = new ArrayList<>(advice.size());
+        for (Map<String, String> crop : advice) {
+            copy.add(new HashMap<>(crop));
+        }
+        return copy;
+    }
+
+    /**
+     * A discretised weather condition: band indexes for temperature, humidity and rain probability, plus
+     * the lower-cased condition group.
+     */
+    public record AdviceBucket(int tempBand, int humidityBand, int rainBand, String condition) {
+
+        /**
+         * @return the stored bucket identifier, such as {@code t14|h7|r3|rain}
+         */
+        public String key() {
+            return "t" + tempBand + "|h" + humidityBand + "|r" + rainBand + "|" + condition;
+        }
+
+        /**
+         * @return the condition capitalised the way OpenWeatherMap reports it, such as "Rain"
+         */
+        public String weatherMain() {
+            return condition.isEmpty() ? condition : Character.toUpperCase(condition.charAt(0)) + condition.substring(1);
+        }
+
+        static Optional<AdviceBucket> parse(String key) {
+            String[] parts = key.split("\\|", 4);
+            if (parts.length != 4) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new AdviceBucket(
+                        Integer.parseInt(parts[0].substring(1)),
+                        Integer.parseInt(parts[1].substring(1)),
+                        Integer.parseInt(parts[2].substring(1)),
+                        parts[3]));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.example.common.Service;
+
+import com.example.common.DTO.WeatherForecastDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Caches weather forecasts (including their crop advice) per geohash cell.
+ * <p>
+ * Coordinates are quantized to a geohash cell (precision 5 by default, roughly 5 km across), and the
+ * forecast is fetched once for the cell's centre, so every farmer in the same village shares one
+ * OpenWeatherMap and Gemini round-trip. An entry is fresh for the forecast step (3 hours by default).
+ * After that it is still served while a single background refresh runs for the cell, until it is too old
+ * to serve at all. Concurrent misses on the same cell wait for one upstream call instead of each making
+ * their own. Hits, stale hits, misses and refresh outcomes are published as Micrometer counters.
+ * <p>
+ * The response language is deliberately not part of the key: neither the forecast nor the (bilingual)
+ * advice depends on it, and keying on a free-form request parameter would let any caller bypass the cache.
+ */
+@Component
+public class WeatherForecastCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherForecastCache.class);
+
+    private static final long FALLBACK_FRESH_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String GEOHASH_ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private final Map<String, CachedForecast> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<WeatherForecastDto>> inFlight = new ConcurrentHashMap<>();
+    // Requests per cell since the last ranking, for the morning pre-fetch; only recorded while it is enabled
+    private final Map<String, LongAdder> demand = new ConcurrentHashMap<>();
+    private final boolean trackDemand;
+    private final int maxTrackedCells;
+
+    private final TaskExecutor refreshExecutor;
+    private final int geohashPrecision;
+    private final long ttlMillis;
+    private final long maxStaleMillis;
+
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter refreshSuccesses;
+    private final Counter refreshFailures;
+
+    /**
+     * Constructs a new {@code WeatherForecastCache}.
+     *
+     * @param refreshExecutor  the executor background refreshes run on
+     * @param meterRegistry    the registry the cache counters are published to
+     * @param geohashPrecision the number of geohash characters identifying a cell
+     * @param ttlMinutes       how long an entry is fresh
+     * @param maxStaleMinutes  how long an entry may be served at all, including while it is refreshed
+     * @param trackDemand      whether requests are counted per cell for the morning pre-fetch
+     * @param maxTrackedCells  the most cells whose demand is kept between pre-fetch runs
+     */
+    public WeatherForecastCache(@Qualifier("weatherRefreshExecutor") TaskExecutor refreshExecutor,
+                                MeterRegistry meterRegistry,
+                                @Value("${weather.cache.geohash-precision:5}") int geohashPrecision,
+                                @Value("${weather.cache.ttl-minutes:180}") long ttlMinutes,
+                                @Value("${weather.cache.max-stale-minutes:360}") long maxStaleMinutes,
+                                @Value("${weather.prefetch.enabled:false}") boolean trackDemand,
+                                @Value("${weather.prefetch.max-tracked-cells:10000}") int maxTrackedCells) {
+        this.refreshExecutor = refreshExecutor;
+        this.geohashPrecision = geohashPrecision;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxStaleMillis = TimeUnit.MINUTES.toMillis(Math.max(ttlMinutes, maxStaleMinutes));
+        this.trackDemand = trackDemand;
+        this.maxTrackedCells = Math.max(1, maxTrackedCells);
+
+        this.hits = Counter.builder("weather.forecast.cache").tag("result", "hit").register(meterRegistry);
+        this.staleHits = Counter.builder("weather.forecast.cache").tag("result", "stale").register(meterRegistry);
+        this.misses = Counter.builder("weather.forecast.cache").tag("result", "miss").register(meterRegistry);
+        this.refreshSuccesses = Counter.builder("weather.forecast.cache.refresh").tag("outcome", "success").register(meterRegistry);
+        this.refreshFailures = Counter.builder("weather.forecast.cache.refresh").tag("outcome", "failure").register(meterRegistry);
+        meterRegistry.gauge("weather.forecast.cache.size", entries, Map::size);
+    }
+
+    /**
+     * Returns the forecast for the cell containing the given coordinates, loading it if the cell has no
+     * servable entry.
+     *
+     * @param lat    the latitude
+     * @param lon    the longitude
+     * @param loader fetches the forecast for a latitude and longitude (the cell centre)
+     * @return the cached forecast
+     * @throws RuntimeException whatever the loader throws when the cell has to be loaded
+     */
+    public WeatherForecastDto get(double lat, double lon, BiFunction<Double, Double, WeatherForecastDto> loader) {
+        String cell = geohash(lat, lon, geohashPrecision);
+        long now = System.currentTimeMillis();
+        if (trackDemand) {
+            demand.computeIfAbsent(cell, k -> new LongAdder()).increment();
+        }
+
+        CachedForecast cached = entries.get(cell);
+        if (cached != null && now - cached.fetchedAt() < ttlMillis) {
+            hits.increment();
+            return cached.forecast();
+        }
+        if (cached != null && now - cached.fetchedAt() < maxStaleMillis) {
+            staleHits.increment();
+            refreshInBackground(cell, loader);
+            return cached.forecast();
+        }
+
+        misses.increment();
+        return load(cell, loader);
+    }
+
+    /**
+     * Loads the cell containing the given coordinates unless its entry is younger than {@code minAgeMillis}.
+     * Used to warm cells ahead of peak traffic.
+     *
+     * @param lat          the latitude
+     * @param lon          the longitude
+     * @param minAgeMillis entries younger than this are left alone
+     * @param loader       fetches the forecast for a latitude and longitude (the cell centre)
+     * @return {@code true} if the cell was loaded
+     * @throws RuntimeException whatever the loader throws
+     */
+    public boolean refreshIfOlderThan(double lat, double lon, long minAgeMillis,
+                                      BiFunction<Double, Double, WeatherForecastDto> loader) {
+        String cell = geohash(lat, lon, geohashPrecision);
+        CachedForecast cached = entries.get(cell);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt() < minAgeMillis) {
+            return false;
+        }
+        try {
+            load(cell, loader);
+            refreshSuccesses.increment();
+            return true;
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Ranks cells by the requests they received since the previous ranking, then halves every count so the
+     * ranking follows recent days rather than all time.
+     *
+     * @param limit the maximum number of cells
+     * @return the busiest cells, busiest first, with their centre coordinates
+     */
+    public List<CellDemand> busiestCells(int limit) {
+        List<CellDemand> ranked = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : demand.entrySet()) {
+            double[] centre = geohashCentre(entry.getKey());
+            ranked.add(new CellDemand(centre[0], centre[1], entry.getValue().sum()));
+        }
+        ranked.sort(Comparator.comparingLong(CellDemand::requests).reversed());
+
+        demand.forEach((key, count) -> {
+            long current = count.sumThenReset();
+            if (current > 1) {
+                count.add(current / 2);
+            }
+        });
+        demand.values().removeIf(count -> count.sum() == 0);
+
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    /**
+     * Scheduled task that drops entries too old to be served and trims the demand counts to the
+     * {@code weather.prefetch.max-tracked-cells} busiest cells. Runs every 10 minutes.
+     */
+    @Scheduled(fixedRate = 10 * 60 * 1000)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - maxStaleMillis;
+        entries.values().removeIf(entry -> entry.fetchedAt() < cutoff);
+
+        int excess = demand.size() - maxTrackedCells;
+        if (excess > 0) {
+            // Cells requested once or twice far outnumber the busy ones, so the quietest are dropped first
+            demand.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                    .sorted(Map.Entry.comparingByValue())
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(demand::remove);
+        }
+    }
+
+    /**
+     * Loads a cell on the calling thread, or waits for the load already running for it.
+     */
+    private WeatherForecastDto load(String cell, BiFunction<Double, Double, WeatherForecastDto> loader) {
+        CompletableFuture<WeatherForecastDto> created = new CompletableFuture<>();
+        CompletableFuture<WeatherForecastDto> running = inFlight.putIfAbsent(cell, created);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            WeatherForecastDto forecast = fetch(cell, loader);
+            created.complete(forecast);
+            return forecast;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cell, created);
+        }
+    }
+
+    /**
+     * Starts a refresh for a stale cell unless one is already running.
+     */
+    private void refreshInBackground(String cell, BiFunction<Double, Double, WeatherForecastDto> loader) {
+        CompletableFuture<WeatherForecastDto> created = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(cell, created) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    created.complete(fetch(cell, loader));
+                    refreshSuccesses.increment();
+                } catch (RuntimeException e) {
+                    refreshFailures.increment();
+                    logger.warn("Background weather refresh failed for {}: {}", cell, e.getMessage());
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(cell, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(cell, created);
+            created.cancel(false);
+            logger.warn("Weather refresh executor saturated, serving stale forecast for {}", cell);
+        }
+    }
+
+    private WeatherForecastDto fetch(String cell, BiFunction<Double, Double, WeatherForecastDto> loader) {
+        double[] centre = geohashCentre(cell);
+        WeatherForecastDto forecast = loader.apply(centre[0], centre[1]);
+        long fetchedAt = System.currentTimeMillis();
+        // Default advice (Gemini unavailable) only stays fresh for a few minutes, then the next request refreshes it
+        if (forecast.adviceFallback()) {
+            fetchedAt -= Math.max(0, ttlMillis - FALLBACK_FRESH_MILLIS);
+        }
+        entries.put(cell, new CachedForecast(forecast, fetchedAt));
+        return forecast;
+    }
+
+    /**
+     * Encodes coordinates as a geohash of the given length.
+     *
+     * @param lat       the latitude
+     * @param lon       the longitude
+     * @param precision the number of characters
+     * @return the geohash of the cell containing the coordinates
+     */
+    static String geohash(double lat, double lon, int precision) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0, ch = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (lon >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(GEOHASH_ALPHABET.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decodes a geohash to the centre of its cell.
+     *
+     * @param geohash the geohash
+     * @return the latitude and longitude of the cell centre
+     */
+    static double[] geohashCentre(String geohash) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < geohash.length(); i++) {
+            int value = GEOHASH_ALPHABET.indexOf(geohash.charAt(i));
+            for (int shift = 4; shift >= 0; shift--) {
+                boolean set = ((value >> shift) & 1) == 1;
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (set) {
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{(minLat + maxLat) / 2, (minLon + maxLon) / 2};
+    }
+
+    private record CachedForecast(WeatherForecastDto forecast, long fetchedAt) {
+    }
+
+    /**
+     * Observed demand for one cell.
+     *
+     * @param lat      the latitude of the cell centre
+     * @param lon      the longitude of the cell centre
+     * @param requests the (decayed) number of requests
+     */
+    public record CellDemand(double lat, double lon, long requests) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.common.Service;
+
+import com.example.common.Exception.AnyException;
+import com.example.common.util.LocationHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the weather forecast cache before the morning peak, when farmers check the weather before field work.
+ * <p>
+ * The busiest geohash cells (by requests observed since the previous run) are fetched one at a time, spaced
+ * to stay under the OpenWeatherMap per-minute limit. Until enough traffic has been observed, the reference
+ * district coordinates from {@link LocationHelper} fill the remaining slots. A run stops early when the
+ * provider reports its rate limit or several cells fail in a row.
+ */
+@Service
+public class WeatherPrefetchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherPrefetchService.class);
+
+    private final WeatherService weatherService;
+    private final WeatherForecastCache forecastCache;
+    private final LocationHelper locationHelper;
+
+    @Value("${weather.prefetch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${weather.prefetch.top-cells:50}")
+    private int topCells;
+
+    @Value("${weather.prefetch.request-interval-ms:1100}")
+    private long requestIntervalMs;
+
+    @Value("${weather.prefetch.min-age-minutes:60}")
+    private long minAgeMinutes;
+
+    @Value("${weather.prefetch.max-consecutive-failures:3}")
+    private int maxConsecutiveFailures;
+
+    /**
+     * Constructs a new {@code WeatherPrefetchService}.
+     *
+     * @param weatherService the service that fetches and caches forecasts
+     * @param forecastCache  the cache that ranks cells by demand
+     * @param locationHelper the source of the reference district coordinates
+     */
+    public WeatherPrefetchService(WeatherService weatherService, WeatherForecastCache forecastCache,
+                                  LocationHelper locationHelper) {
+        this.weatherService = weatherService;
+        this.forecastCache = forecastCache;
+        this.locationHelper = locationHelper;
+    }
+
+    /**
+     * Scheduled task that pre-fetches the busiest cells. Runs at 05:30 India time by default.
+     */
+    @Scheduled(cron = "${weather.prefetch.cron:0 30 5 * * *}", zone = "${weather.prefetch.zone:Asia/Kolkata}")
+    public void prefetchBusiestCells() {
+        if (!enabled) {
+            return;
+        }
+        List<WeatherForecastCache.CellDemand> cells = new ArrayList<>(forecastCache.busiestCells(topCells));
+        for (double[] coords : locationHelper.getDistrictCoordinates().values()) {
+            if (cells.size() >= topCells) {
+                break;
+            }
+            cells.add(new WeatherForecastCache.CellDemand(coords[0], coords[1], 0));
+        }
+
+        long minAgeMillis = TimeUnit.MINUTES.toMillis(minAgeMinutes);
+        int fetched = 0;
+        int consecutiveFailures = 0;
+        for (WeatherForecastCache.CellDemand cell : cells) {
+            try {
+                if (!weatherService.prefetchForecast(cell.lat(), cell.lon(), minAgeMillis)) {
+                    continue;
+                }
+                fetched++;
+                consecutiveFailures = 0;
+            } catch (AnyException e) {
+                if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                    logger.warn("Weather pre-fetch stopped by the provider rate limit after {} cells", fetched);
+                    break;
+                }
+                logger.warn("Weather pre-fetch failed for {},{}: {}", cell.lat(), cell.lon(), e.getMessage());
+                if (++consecutiveFailures >= maxConsecutiveFailures) {
+                    logger.warn("Weather pre-fetch stopped after {} consecutive failures", consecutiveFailures);
+                    break;
+                }
+            }
+
+            try {
+                Thread.sleep(requestIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        logger.info("Weather pre-fetch warmed {} of {} cells", fetched, cells.size());
+    }
+}
@@ -1,20 +1,27 @@
 package com.example.common.Service;
 
+import com.example.common.DTO.WeatherForecastDto;
 import com.example.common.Exception.AnyException;
 import com.example.common.util.GeminiApiHelper;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.common.util.GeminiCallGuard;
+import com.example.common.util.OpenWeatherParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class WeatherService {
@@ -26,9 +33,23 @@ public class WeatherService {
 
     private static final String WEATHER_API_URL = "http://api.openweathermap.org/data/2.5/forecast";
 
+    private static final DateTimeFormatter DISPLAY_DATE = DateTimeFormatter.ofPattern("dd MMM yyyy (EEEE)");
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final GeminiApiHelper geminiApiHelper;
+    private final OpenWeatherParser openWeatherParser;
+    private final WeatherForecastCache forecastCache;
+    private final CropAdviceEngine cropAdviceEngine;
+
+    @Value("${weather.advice.prewarm.enabled:false}")
+    private boolean prewarmEnabled;
+
+    @Value("${weather.advice.prewarm.popular-buckets:50}")
+    private int prewarmPopularBuckets;
+
+    @Value("${weather.advice.prewarm.max-generations:50}")
+    private int prewarmMaxGenerations;
 
     // Fixed 20 crops with icons
     private static final List<String> CROPS = Arrays.asList(
@@ -45,51 +66,118 @@ public class WeatherService {
         put("Tomato", "🍅"); put("Onion", "🧅"); put("Cauliflower", "🥦"); put("Cabbage", "🥬");
     }};
 
-    public WeatherService(RestTemplate restTemplate, ObjectMapper objectMapper, GeminiApiHelper geminiApiHelper) {
+    public WeatherService(@Qualifier("weatherRestTemplate") RestTemplate restTemplate, ObjectMapper objectMapper,
+                          GeminiApiHelper geminiApiHelper, OpenWeatherParser openWeatherParser,
+                          WeatherForecastCache forecastCache, CropAdviceEngine cropAdviceEngine) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
         this.geminiApiHelper = geminiApiHelper;
+        this.openWeatherParser = openWeatherParser;
+        this.forecastCache = forecastCache;
+        this.cropAdviceEngine = cropAdviceEngine;
     }
 
-    // 🌤 Fetch weather + multi-crop advice
-    public Map<String, Object> getWeatherForecast(double lat, double lon, String lang) throws AnyException {
-        try {
-            if (lat < -90 || lat > 90)
-                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid latitude");
-            if (lon < -180 || lon > 180)
-                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid longitude");
+    // 🌤 Fetch weather + multi-crop advice + 5-day daily summaries, shared per geohash cell through the forecast cache
+    public WeatherForecastDto getWeatherForecast(double lat, double lon, String lang) throws AnyException {
+        if (lat < -90 || lat > 90)
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid latitude");
+        if (lon < -180 || lon > 180)
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid longitude");
 
+        String language = lang != null ? lang : "en";
+        return forecastCache.get(lat, lon, (cellLat, cellLon) -> fetchWeatherForecast(cellLat, cellLon, language, null));
+    }
+
+    /**
+     * Same forecast as {@link #getWeatherForecast}, handed to a listener piece by piece: the current
+     * conditions first, then one advice entry per crop. On a cache miss the conditions are sent as soon as
+     * OpenWeatherMap has answered, and each crop's advice as soon as Gemini has streamed it. Cached parts,
+     * and crops Gemini left out, follow once the forecast is complete. Every crop is sent exactly once.
+     *
+     * @param lat      the latitude
+     * @param lon      the longitude
+     * @param lang     the response language
+     * @param listener receives the forecast pieces on the calling thread
+     * @return the complete forecast
+     * @throws AnyException if the coordinates are invalid or the forecast cannot be fetched
+     */
+    public WeatherForecastDto streamWeatherForecast(double lat, double lon, String lang,
+                                                    ForecastListener listener) throws AnyException {
+        if (lat < -90 || lat > 90)
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid latitude");
+        if (lon < -180 || lon > 180)
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Invalid longitude");
+
+        String language = lang != null ? lang : "en";
+        ForecastStream stream = new ForecastStream(listener);
+        WeatherForecastDto forecast = forecastCache.get(lat, lon,
+                (cellLat, cellLon) -> fetchWeatherForecast(cellLat, cellLon, language, stream));
+        stream.complete(forecast);
+        return forecast;
+    }
+
+    // Warms the cell for the given coordinates unless it was fetched within minAgeMillis
+    public boolean prefetchForecast(double lat, double lon, long minAgeMillis) throws AnyException {
+        return forecastCache.refreshIfOlderThan(lat, lon, minAgeMillis,
+                (cellLat, cellLon) -> fetchWeatherForecast(cellLat, cellLon, "en", null));
+    }
+
+    // Uncached OpenWeatherMap + Gemini round-trip; the response is parsed straight from the HTTP stream
+    private WeatherForecastDto fetchWeatherForecast(double lat, double lon, String lang,
+                                                    ForecastListener listener) throws AnyException {
+        try {
             String url = String.format("%s?lat=%.6f&lon=%.6f&appid=%s&units=metric", WEATHER_API_URL, lat, lon, openWeatherApiKey);
             logger.info("Fetching weather from OpenWeatherMap: {}", url);
 
-            String response = restTemplate.getForObject(url, String.class);
-            if (response == null)
+            OpenWeatherParser.CurrentConditions conditions = restTemplate.execute(url, HttpMethod.GET, null,
+                    response -> openWeatherParser.parse(response.getBody()));
+            if (conditions == null)
                 throw new AnyException(HttpStatus.NO_CONTENT.value(), "Empty weather response");
 
-            JsonNode data = objectMapper.readTree(response);
-            return parseWeatherData(data, lang != null ? lang : "en");
+            return buildForecast(conditions, lang, listener);
 
         } catch (AnyException ex) {
             throw ex;
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            logger.warn("OpenWeatherMap rate limit reached for lat={}, lon={}", lat, lon);
+            throw new AnyException(HttpStatus.TOO_MANY_REQUESTS.value(), "Weather provider rate limit reached");
         } catch (Exception e) {
             logger.error("Failed to fetch weather forecast for lat={}, lon={}", lat, lon, e);
             throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to fetch weather forecast");
         }
     }
 
-    // 🌾 Multi-crop advice
+    // 🌾 Multi-crop advice, answered per weather bucket by the advice engine
     public List<Map<String, String>> generateCropAdvice(double temp, int humidity, double rainProb,
                                                         String weatherMain, String lang) throws AnyException {
+        // Input validation
+        if (temp < -50 || temp > 60)
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Temperature must be -50°C to 60°C");
+        if (humidity < 0 || humidity > 100)
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Humidity must be 0-100%");
+        if (rainProb < 0 || rainProb > 1)
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Rain probability must be 0-1");
+        if (weatherMain == null || weatherMain.isBlank())
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Weather condition cannot be empty");
+
+        return cropAdviceForBucket(temp, humidity, rainProb, weatherMain, null);
+    }
+
+    // A non-null adviceListener receives each crop's advice while Gemini is still generating the rest
+    private List<Map<String, String>> cropAdviceForBucket(double temp, int humidity, double rainProb, String weatherMain,
+                                                          Consumer<Map<String, String>> adviceListener) throws AnyException {
+        CropAdviceEngine.AdviceBucket bucket = cropAdviceEngine.bucketFor(temp, humidity, rainProb, weatherMain);
+        return cropAdviceEngine.getAdvice(bucket, b -> requestCropAdvice(b, adviceListener));
+    }
+
+    // Generates advice for the middle of a bucket so it holds for every reading in the bucket
+    private List<Map<String, String>> requestCropAdvice(CropAdviceEngine.AdviceBucket bucket,
+                                                        Consumer<Map<String, String>> adviceListener) throws AnyException {
         try {
-            // Input validation
-            if (temp < -50 || temp > 60)
-                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Temperature must be -50°C to 60°C");
-            if (humidity < 0 || humidity > 100)
-                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Humidity must be 0-100%");
-            if (rainProb < 0 || rainProb > 1)
-                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Rain probability must be 0-1");
-            if (weatherMain == null || weatherMain.isBlank())
-                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Weather condition cannot be empty");
+            double temp = cropAdviceEngine.representativeTemp(bucket);
+            int humidity = cropAdviceEngine.representativeHumidity(bucket);
+            double rainProb = cropAdviceEngine.representativeRainProb(bucket);
+            String weatherMain = bucket.weatherMain();
 
             // Old-style prompt
             String prompt = String.format(
@@ -98,7 +186,10 @@ public class WeatherService {
                     temp, humidity, rainProb, weatherMain, String.join(", ", CROPS)
             );
 
-            String generatedText = geminiApiHelper.callGeminiApiForJson(prompt);
+            String generatedText = adviceListener == null
+                    ? geminiApiHelper.callGeminiApiForJson(GeminiCallGuard.Feature.WEATHER_MULTI, prompt)
+                    : geminiApiHelper.streamGeminiApiForJsonArray(GeminiCallGuard.Feature.WEATHER_MULTI, prompt,
+                            element -> emitStreamedAdvice(element, adviceListener));
 
             List<Map<String, String>> apiAdvice = objectMapper.readValue(generatedText,
                     new com.fasterxml.jackson.core.type.TypeReference<List<Map<String, String>>>() {});
@@ -111,28 +202,14 @@ public class WeatherService {
                 if (!CROPS.contains(cropName))
                     throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Invalid crop in response: " + cropName);
 
-                Map<String, String> map = new HashMap<>();
-                map.put("crop", CROP_ICONS.getOrDefault(cropName, "") + " " + cropName);
-                map.put("icon", CROP_ICONS.getOrDefault(cropName, ""));
-                map.put("cropName", cropName);
-                map.put("status", crop.get("status"));
-                map.put("adviceEn", crop.get("adviceEn"));
-                map.put("adviceHi", crop.get("adviceHi"));
-                advice.add(map);
+                advice.add(toCropAdvice(crop));
                 includedCrops.add(cropName);
             }
 
             // Missing crops default
             for (String crop : CROPS) {
                 if (!includedCrops.contains(crop)) {
-                    Map<String, String> map = new HashMap<>();
-                    map.put("crop", CROP_ICONS.get(crop) + " " + crop);
-                    map.put("icon", CROP_ICONS.get(crop));
-                    map.put("cropName", crop);
-                    map.put("status", "✅");
-                    map.put("adviceEn", "Check weather conditions and proceed with regular care");
-                    map.put("adviceHi", "मौसम की स्थिति जांचें और नियमित देखभाल के साथ आगे बढ़ें");
-                    advice.add(map);
+                    advice.add(defaultCropAdvice(crop));
                 }
             }
 
@@ -146,6 +223,74 @@ public class WeatherService {
         }
     }
 
+    // One streamed array element; unknown crops are left for the full-response check above
+    private void emitStreamedAdvice(String element, Consumer<Map<String, String>> adviceListener) {
+        try {
+            Map<String, String> crop = objectMapper.readValue(element,
+                    new com.fasterxml.jackson.core.type.TypeReference<Map<String, String>>() {});
+            if (CROPS.contains(crop.get("cropName"))) {
+                adviceListener.accept(toCropAdvice(crop));
+            }
+        } catch (Exception e) {
+            logger.debug("Skipping unreadable streamed crop advice: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, String> toCropAdvice(Map<String, String> crop) {
+        String cropName = crop.get("cropName");
+        Map<String, String> map = new HashMap<>();
+        map.put("crop", CROP_ICONS.getOrDefault(cropName, "") + " " + cropName);
+        map.put("icon", CROP_ICONS.getOrDefault(cropName, ""));
+        map.put("cropName", cropName);
+        map.put("status", crop.get("status"));
+        map.put("adviceEn", crop.get("adviceEn"));
+        map.put("adviceHi", crop.get("adviceHi"));
+        return map;
+    }
+
+    // Generates advice for unseen buckets next to the most used ones, off the request path
+    @Scheduled(cron = "${weather.advice.prewarm.cron:0 30 2 * * *}")
+    public void prewarmCropAdvice() {
+        if (!prewarmEnabled) {
+            return;
+        }
+        List<CropAdviceEngine.AdviceBucket> buckets = cropAdviceEngine.prewarmCandidates(prewarmPopularBuckets, prewarmMaxGenerations);
+        int generated = 0;
+        for (CropAdviceEngine.AdviceBucket bucket : buckets) {
+            try {
+                cropAdviceEngine.getAdvice(bucket, b -> requestCropAdvice(b, null));
+                generated++;
+            } catch (Exception e) {
+                logger.warn("Crop advice pre-warm stopped at {}: {}", bucket.key(), e.getMessage());
+                break;
+            }
+        }
+        logger.info("Pre-warmed {} of {} crop advice buckets", generated, buckets.size());
+    }
+
+    // 🍅 Single crop advice from a forecast: reuses the forecast's multi-crop advice for the fixed crops
+    public Map<String, String> getSingleCropAdvice(WeatherForecastDto weatherData, String lang, String cropName) throws AnyException {
+        if (cropName == null || cropName.isBlank())
+            throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Crop name cannot be empty");
+
+        String name = cropName.trim();
+        for (Map<String, String> crop : weatherData.cropAdvice()) {
+            if (name.equalsIgnoreCase(crop.get("cropName"))) {
+                return new HashMap<>(crop);
+            }
+        }
+
+        // Crops outside CROPS get a targeted call
+        return generateSingleCropAdvice(
+                weatherData.temperature(),
+                weatherData.humidity(),
+                weatherData.rainProbability() / 100.0, // converting % to probability
+                weatherData.weatherMain(),
+                lang,
+                name
+        );
+    }
+
     // 🍅 Single crop advice
     public Map<String, String> generateSingleCropAdvice(double temp, int humidity, double rainProb,
                                                         String weatherMain, String lang, String cropName) throws AnyException {
@@ -159,7 +304,7 @@ public class WeatherService {
                     temp, humidity, rainProb, weatherMain, cropName
             );
 
-            String generatedText = geminiApiHelper.callGeminiApiForJson(prompt);
+            String generatedText = geminiApiHelper.callGeminiApiForJson(GeminiCallGuard.Feature.WEATHER_SINGLE, prompt);
 
             Map<String, String> cropAdvice = objectMapper.readValue(
                     generatedText,
@@ -179,72 +324,147 @@ public class WeatherService {
         }
     }
 
-    // Parse OpenWeather + add crop advice
-    private Map<String, Object> parseWeatherData(JsonNode data, String lang) throws AnyException {
-        try {
-            JsonNode city = data.get("city");
-            if (city == null || !city.has("name") || !city.has("country"))
-                throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Invalid city data");
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("city", city.get("name").asText());
-            result.put("country", city.get("country").asText());
-
-            JsonNode current = data.get("list").get(0);
-            JsonNode main = current.get("main");
-            JsonNode weather = current.get("weather").get(0);
-            JsonNode wind = current.get("wind");
-
-            if (main == null || weather == null || wind == null)
-                throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Invalid weather data");
-
-            double temp = main.get("temp").asDouble();
-            int humidity = main.get("humidity").asInt();
-            double rainProb = current.get("pop").asDouble();
-            String weatherMain = weather.get("main").asText();
-
-            result.put("temperature", Math.round(temp));
-            result.put("feelsLike", Math.round(main.get("feels_like").asDouble()));
-            result.put("humidity", humidity);
-            result.put("pressure", main.get("pressure").asInt());
-            result.put("description", weather.get("description").asText());
-            result.put("icon", weather.get("icon").asText());
-            result.put("weatherMain", weatherMain);
-            result.put("windSpeed", Math.round(wind.get("speed").asDouble() * 3.6));
-            result.put("windDeg", wind.get("deg").asInt());
-            result.put("rainProbability", Math.round(rainProb * 100));
-            result.put("date", LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd MMM yyyy (EEEE)")));
-
-            result.put("cropAdvice", generateCropAdvice(temp, humidity, rainProb, weatherMain, lang));
-
-            return result;
+    // Current conditions + crop advice + daily summaries (all from the same response)
+    private WeatherForecastDto buildForecast(OpenWeatherParser.CurrentConditions conditions, String lang,
+                                             ForecastListener listener) throws AnyException {
+        if (listener != null) {
+            listener.onConditions(toForecast(conditions, List.of(), false));
+        }
 
+        List<Map<String, String>> cropAdvice;
+        boolean adviceFallback = false;
+        try {
+            if (listener != null) {
+                cropAdvice = cropAdviceForBucket(conditions.temp(), conditions.humidity(),
+                        conditions.rainProb(), conditions.weatherMain(), listener::onCropAdvice);
+            } else {
+                cropAdvice = generateCropAdvice(conditions.temp(), conditions.humidity(),
+                        conditions.rainProb(), conditions.weatherMain(), lang);
+            }
         } catch (AnyException ex) {
-            throw ex;
-        } catch (Exception e) {
-            logger.error("Failed to parse weather data", e);
-            throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to parse weather data");
+            if (!isGeminiUnavailable(ex))
+                throw ex;
+            logger.warn("Gemini unavailable ({}), serving default crop advice", ex.getMessage());
+            cropAdvice = defaultCropAdvice();
+            adviceFallback = true;
         }
+
+        return toForecast(conditions, cropAdvice, adviceFallback);
+    }
+
+    private WeatherForecastDto toForecast(OpenWeatherParser.CurrentConditions conditions,
+                                          List<Map<String, String>> cropAdvice, boolean adviceFallback) {
+        return new WeatherForecastDto(
+                conditions.city(),
+                conditions.country(),
+                Math.round(conditions.temp()),
+                Math.round(conditions.feelsLike()),
+                conditions.humidity(),
+                conditions.pressure(),
+                conditions.description(),
+                conditions.icon(),
+                conditions.weatherMain(),
+                Math.round(conditions.windSpeed() * 3.6),
+                conditions.windDeg(),
+                Math.round(conditions.rainProb() * 100),
+                LocalDateTime.now().format(DISPLAY_DATE),
+                cropAdvice,
+                conditions.daily(),
+                adviceFallback);
     }
 
     // Default weather data
-    public Map<String, Object> getDefaultWeatherData(String lang) throws AnyException {
-        Map<String, Object> defaultData = new HashMap<>();
-        defaultData.put("city", "Basti");
-        defaultData.put("country", "IN");
-        defaultData.put("temperature", 28);
-        defaultData.put("feelsLike", 32);
-        defaultData.put("humidity", 75);
-        defaultData.put("pressure", 1010);
-        defaultData.put("description", "partly cloudy");
-        defaultData.put("icon", "02d");
-        defaultData.put("weatherMain", "Clouds");
-        defaultData.put("windSpeed", 8);
-        defaultData.put("windDeg", 180);
-        defaultData.put("rainProbability", 40);
-        defaultData.put("date", LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd MMM yyyy (EEEE)")));
-
-        defaultData.put("cropAdvice", generateCropAdvice(28, 75, 0.4, "Clouds", lang));
-        return defaultData;
-    }
-}
\ No newline at end of file
+    public WeatherForecastDto getDefaultWeatherData(String lang) throws AnyException {
+        List<Map<String, String>> cropAdvice;
+        boolean adviceFallback = false;
+        try {
+            cropAdvice = generateCropAdvice(28, 75, 0.4, "Clouds", lang);
+        } catch (AnyException ex) {
+            if (!isGeminiUnavailable(ex))
+                throw ex;
+            cropAdvice = defaultCropAdvice();
+            adviceFallback = true;
+        }
+        return new WeatherForecastDto("Basti", "IN", 28, 32, 75, 1010, "partly cloudy", "02d", "Clouds",
+                8, 180, 40, LocalDateTime.now().format(DISPLAY_DATE), cropAdvice, List.of(), adviceFallback);
+    }
+
+    // Generic advice for every crop, used when Gemini has no answer
+    private List<Map<String, String>> defaultCropAdvice() {
+        List<Map<String, String>> advice = new ArrayList<>(CROPS.size());
+        for (String crop : CROPS) {
+            advice.add(defaultCropAdvice(crop));
+        }
+        return advice;
+    }
+
+    private Map<String, String> defaultCropAdvice(String crop) {
+        Map<String, String> map = new HashMap<>();
+        map.put("crop", CROP_ICONS.get(crop) + " " + crop);
+        map.put("icon", CROP_ICONS.get(crop));
+        map.put("cropName", crop);
+        map.put("status", "✅");
+        map.put("adviceEn", "Check weather conditions and proceed with regular care");
+        map.put("adviceHi", "मौसम की स्थिति जांचें और नियमित देखभाल के साथ आगे बढ़ें");
+        return map;
+    }
+
+    // Rejected by the Gemini rate limiter, bulkhead or circuit breaker
+    private static boolean isGeminiUnavailable(AnyException ex) {
+        return ex.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || ex.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    /**
+     * Receives a forecast piece by piece from {@link #streamWeatherForecast}.
+     */
+    public interface ForecastListener {
+
+        /**
+         * @param conditions the current conditions and daily summaries, with no crop advice yet
+         */
+        void onConditions(WeatherForecastDto conditions);
+
+        /**
+         * @param advice the advice for one crop
+         */
+        void onCropAdvice(Map<String, String> advice);
+    }
+
+    // Sends each piece once. Only the requesting thread streams: a background refresh started by a stale
+    // cache hit reuses the same loader, but it only updates the cache.
+    private static final class ForecastStream implements ForecastListener {
+
+        private final ForecastListener delegate;
+        private final Thread owner = Thread.currentThread();
+        private final Set<String> sentCrops = new HashSet<>();
+        private boolean conditionsSent;
+
+        ForecastStream(ForecastListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onConditions(WeatherForecastDto conditions) {
+            if (Thread.currentThread() == owner && !conditionsSent) {
+                conditionsSent = true;
+                delegate.onConditions(conditions);
+            }
+        }
+
+        @Override
+        public void onCropAdvice(Map<String, String> advice) {
+            if (Thread.currentThread() == owner && sentCrops.add(advice.get("cropName"))) {
+                delegate.onCropAdvice(advice);
+            }
+        }
+
+        // Sends whatever the cache, the advice engine or the defaults supplied without streaming
+        void complete(WeatherForecastDto forecast) {
+            onConditions(forecast.withoutAdvice());
+            for (Map<String, String> advice : forecast.cropAdvice()) {
+                onCropAdvice(advice);
+            }
+        }
+    }
+}
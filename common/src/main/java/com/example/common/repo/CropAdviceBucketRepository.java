@@ -0,0 +1,27 @@
+package com.example.common.repo;
+
+import com.example.common.Model.CropAdviceBucket;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CropAdviceBucketRepository extends JpaRepository<CropAdviceBucket, Long> {
+
+        Optional<CropAdviceBucket> findByBucketKey(String bucketKey);
+
+        @Query("SELECT b FROM CropAdviceBucket b ORDER BY b.hitCount DESC")
+        List<CropAdviceBucket> findMostUsed(Pageable pageable);
+
+        @Transactional
+        @Modifying
+        @Query("UPDATE CropAdviceBucket b SET b.hitCount = b.hitCount + :hits WHERE b.bucketKey = :bucketKey")
+        int addHits(@Param("bucketKey") String bucketKey, @Param("hits") long hits);
+}
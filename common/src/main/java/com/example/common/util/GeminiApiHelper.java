@@ -1,19 +1,38 @@
 package com.example.common.util;
 
 import com.example.common.Exception.AnyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 @Component
 public class GeminiApiHelper {
@@ -24,23 +43,47 @@ public class GeminiApiHelper {
     private String geminiApiKey;
 
     private static final String GEMINI_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent";
+    private static final String GEMINI_STREAM_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:streamGenerateContent";
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final GeminiCallGuard callGuard;
+    private final GeminiMetrics metrics;
 
-    public GeminiApiHelper(RestTemplate restTemplate, ObjectMapper objectMapper) {
+    // Identical requests currently waiting on Gemini, keyed by request hash
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    // Access-ordered LRU of text-only responses; guarded by cacheLock
+    private final LinkedHashMap<String, CachedResponse> responseCache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock cacheLock = new ReentrantLock();
+
+    @Value("${gemini.cache.enabled:false}")
+    private boolean responseCacheEnabled;
+
+    @Value("${gemini.cache.max-entries:500}")
+    private int responseCacheMaxEntries;
+
+    @Value("${gemini.cache.ttl-minutes:60}")
+    private long responseCacheTtlMinutes;
+
+    public GeminiApiHelper(@Qualifier("geminiRestTemplate") RestTemplate restTemplate, ObjectMapper objectMapper,
+                           GeminiCallGuard callGuard, GeminiMetrics metrics) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
+        this.callGuard = callGuard;
+        this.metrics = metrics;
     }
 
     /**
      * Calls the Gemini API with a text prompt and optional generation configuration.
+     * @param feature The calling feature, which selects the concurrency bulkhead and tags the metrics.
      * @param prompt The text prompt to send to the Gemini API.
      * @param generationConfig Optional configuration for response format (e.g., response_mime_type).
      * @return The text response from the Gemini API.
-     * @throws AnyException If the API call fails or the response is invalid.
+     * @throws AnyException If the API call fails or the response is invalid, or with 429/503 if the call is
+     *                      rejected by the rate limiter, bulkhead or circuit breaker.
      */
-    public String callGeminiApi(String prompt, Map<String, Object> generationConfig) throws AnyException {
+    public String callGeminiApi(GeminiCallGuard.Feature feature, String prompt, Map<String, Object> generationConfig) throws AnyException {
         try {
             // Build request body
             Map<String, Object> contents = Map.of("parts", List.of(Map.of("text", prompt)));
@@ -52,29 +95,8 @@ public class GeminiApiHelper {
             String requestBody = objectMapper.writeValueAsString(requestBodyMap);
             logger.debug("Gemini API Request: {}", requestBody);
 
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
-
-            // Make API call
-
-            String apiUrl = GEMINI_API_URL + "?key=" + geminiApiKey;
-            String responseBody = restTemplate.postForObject(apiUrl, entity, String.class);
-
-            if (responseBody == null) {
-                throw new AnyException(204, "Gemini API returned empty response");
-            }
-
-            // Parse response
-            JsonNode geminiResponse = objectMapper.readTree(responseBody);
-            JsonNode candidates = geminiResponse.path("candidates");
-            if (candidates.isEmpty()) {
-                throw new AnyException(204, "No candidates returned by Gemini API");
-            }
-
-            String resultText = candidates.get(0).path("content").path("parts").get(0).path("text").asText();
+            // Make API call (identical in-flight requests share one upstream call)
+            String resultText = send(feature, requestBody, responseCacheEnabled);
             logger.debug("gemini API Response: {}", resultText);
             return resultText;
 
@@ -88,12 +110,28 @@ public class GeminiApiHelper {
 
     /**
      * Calls the Gemini API with a text prompt and inline data (e.g., image).
+     * @param feature The calling feature, which selects the concurrency bulkhead and tags the metrics.
      * @param textPrompt The text prompt to send.
      * @param inlineData The inline data (e.g., base64-encoded image).
      * @return The text response from the Gemini API.
      * @throws AnyException If the API call fails or the response is invalid.
      */
-    public String callGeminiApiWithInlineData(String textPrompt, Map<String, Object> inlineData) throws AnyException {
+    public String callGeminiApiWithInlineData(GeminiCallGuard.Feature feature, String textPrompt,
+                                              Map<String, Object> inlineData) throws AnyException {
+        return callGeminiApiWithInlineData(feature, textPrompt, inlineData, null);
+    }
+
+    /**
+     * Calls the Gemini API with a text prompt, inline data (e.g., image) and optional generation configuration.
+     * @param feature The calling feature, which selects the concurrency bulkhead and tags the metrics.
+     * @param textPrompt The text prompt to send.
+     * @param inlineData The inline data (e.g., base64-encoded image).
+     * @param generationConfig Optional configuration for response format (e.g., response_mime_type).
+     * @return The text response from the Gemini API.
+     * @throws AnyException If the API call fails or the response is invalid.
+     */
+    public String callGeminiApiWithInlineData(GeminiCallGuard.Feature feature, String textPrompt, Map<String, Object> inlineData,
+                                              Map<String, Object> generationConfig) throws AnyException {
         try {
             // Build request body
             Map<String, Object> parts = Map.of(
@@ -102,33 +140,15 @@ public class GeminiApiHelper {
                             Map.of("inline_data", inlineData)
                     )
             );
-            Map<String, Object> requestBodyMap = Map.of("contents", List.of(parts));
+            Map<String, Object> requestBodyMap = generationConfig != null
+                    ? Map.of("contents", List.of(parts), "generationConfig", generationConfig)
+                    : Map.of("contents", List.of(parts));
 
             String requestBody = objectMapper.writeValueAsString(requestBodyMap);
             logger.debug("Gemini API Request with Inline Data: {}", requestBody);
 
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
-
-            // Make API call
-            String apiUrl = GEMINI_API_URL + "?key=" + geminiApiKey;
-            String responseBody = restTemplate.postForObject(apiUrl, entity, String.class);
-
-            if (responseBody == null) {
-                throw new AnyException(204, "Gemini API returned empty response");
-            }
-
-            // Parse response
-            JsonNode geminiResponse = objectMapper.readTree(responseBody);
-            JsonNode candidates = geminiResponse.path("candidates");
-            if (candidates.isEmpty()) {
-                throw new AnyException(204, "No Gemini candidates");
-            }
-
-            String resultText = candidates.get(0).path("content").path("parts").get(0).path("text").asText();
+            // Make API call (identical in-flight requests share one upstream call; image responses are not cached)
+            String resultText = send(feature, requestBody, false);
             logger.debug("Gemini API Response: {}", resultText);
             return resultText;
 
@@ -143,8 +163,220 @@ public class GeminiApiHelper {
     /**
      * Simplified method for text-only calls with JSON response format
      */
-    public String callGeminiApiForJson(String prompt) throws AnyException {
+    public String callGeminiApiForJson(GeminiCallGuard.Feature feature, String prompt) throws AnyException {
+        Map<String, Object> generationConfig = Map.of("response_mime_type", "application/json");
+        return callGeminiApi(feature, prompt, generationConfig);
+    }
+
+    /**
+     * Simplified method for image calls with JSON response format, so a single request can return
+     * several structured answers about the same image.
+     */
+    public String callGeminiApiWithInlineDataForJson(GeminiCallGuard.Feature feature, String textPrompt,
+                                                     Map<String, Object> inlineData) throws AnyException {
         Map<String, Object> generationConfig = Map.of("response_mime_type", "application/json");
-        return callGeminiApi(prompt, generationConfig);
+        return callGeminiApiWithInlineData(feature, textPrompt, inlineData, generationConfig);
+    }
+
+    /**
+     * Calls the Gemini API with a text prompt for a JSON array, streaming the answer with
+     * {@code streamGenerateContent}. Each array element is handed to {@code elementConsumer} as soon as it
+     * is complete, long before the whole answer has been generated.
+     * <p>
+     * Streaming calls pass through the {@link GeminiCallGuard} but are neither coalesced nor cached, since
+     * a follower could not replay the elements it missed.
+     * @param feature The calling feature, which selects the concurrency bulkhead and tags the metrics.
+     * @param prompt The text prompt to send to the Gemini API.
+     * @param elementConsumer Receives the JSON text of each array element, in order.
+     * @return The complete text response from the Gemini API.
+     * @throws AnyException If the API call fails, or with 429/503 if the call is rejected by the rate
+     *                      limiter, bulkhead or circuit breaker.
+     */
+    public String streamGeminiApiForJsonArray(GeminiCallGuard.Feature feature, String prompt,
+                                              Consumer<String> elementConsumer) throws AnyException {
+        try {
+            // Build request body
+            Map<String, Object> contents = Map.of("parts", List.of(Map.of("text", prompt)));
+            Map<String, Object> requestBodyMap = Map.of(
+                    "contents", List.of(contents),
+                    "generationConfig", Map.of("response_mime_type", "application/json")
+            );
+            byte[] requestBody = objectMapper.writeValueAsBytes(requestBodyMap);
+
+            String apiUrl = GEMINI_STREAM_API_URL + "?alt=sse&key=" + geminiApiKey;
+            String resultText = callGuard.execute(feature, () -> metrics.time(feature, () -> restTemplate.execute(apiUrl, HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        request.getBody().write(requestBody);
+                    },
+                    response -> readStream(feature, response.getBody(), new JsonArrayElementSplitter(elementConsumer)))));
+
+            if (resultText == null || resultText.isEmpty()) {
+                throw new AnyException(204, "Gemini API returned empty response");
+            }
+            metrics.recordSizes(feature, requestBody.length, resultText.getBytes(StandardCharsets.UTF_8).length);
+            logger.debug("Gemini streamed response: {}", resultText);
+            return resultText;
+
+        } catch (AnyException ex) {
+            throw ex;
+        } catch (Exception e) {
+            logger.error("Gemini streaming API call failed", e);
+            throw new AnyException(500, "Failed to call Gemini API");
+        }
+    }
+
+    // Reads server-sent events ("data: {...}" lines), each carrying the next slice of the candidate text;
+    // the last event carries the usage of the whole answer
+    private String readStream(GeminiCallGuard.Feature feature, InputStream body,
+                              JsonArrayElementSplitter splitter) throws IOException {
+        StringBuilder text = new StringBuilder();
+        if (body == null) {
+            return "";
+        }
+        JsonNode usageMetadata = null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            JsonNode event;
+            try {
+                event = objectMapper.readTree(line.substring(5));
+            } catch (JsonProcessingException e) {
+                // Gemini answered, just not usefully; an IOException here would count against the circuit breaker
+                throw new AnyException(500, "Gemini API returned a malformed stream event");
+            }
+            if (event.has("usageMetadata")) {
+                usageMetadata = event.get("usageMetadata");
+            }
+            JsonNode parts = event.path("candidates").path(0).path("content").path("parts");
+            for (JsonNode part : parts) {
+                String slice = part.path("text").asText("");
+                text.append(slice);
+                splitter.feed(slice);
+            }
+        }
+        metrics.recordUsage(feature, usageMetadata);
+        return text.toString();
+    }
+
+    /**
+     * Sends a request body to Gemini and returns the text of the first candidate.
+     * <p>
+     * Requests are keyed by a SHA-256 hash of the body, which covers the prompt, any inline data and the
+     * generation configuration. While a request is in flight, identical requests wait for its result instead
+     * of calling Gemini again. When {@code cacheable} is set, the result is also kept in a bounded LRU cache
+     * for {@code gemini.cache.ttl-minutes}. Only the leader's upstream call passes through the {@link GeminiCallGuard}.
+     */
+    private String send(GeminiCallGuard.Feature feature, String requestBody, boolean cacheable) throws Exception {
+        String key = hash(requestBody);
+        if (cacheable) {
+            String cached = readCache(key);
+            if (cached != null) {
+                logger.debug("Gemini response served from cache");
+                metrics.recordCacheResult(feature, "hit");
+                return cached;
+            }
+        }
+
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            logger.debug("Joining identical in-flight Gemini request");
+            metrics.recordCacheResult(feature, "coalesced");
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        try {
+            String resultText = callGuard.execute(feature, () -> metrics.time(feature, () -> post(feature, requestBody)));
+            if (cacheable) {
+                writeCache(key, resultText);
+            }
+            created.complete(resultText);
+            return resultText;
+        } catch (Exception e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private String post(GeminiCallGuard.Feature feature, String requestBody) throws Exception {
+        // Set headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // Encoded once here, so the size can be recorded without a second copy of large image bodies
+        byte[] body = requestBody.getBytes(StandardCharsets.UTF_8);
+        HttpEntity<byte[]> entity = new HttpEntity<>(body, headers);
+
+        String apiUrl = GEMINI_API_URL + "?key=" + geminiApiKey;
+        String responseBody = restTemplate.postForObject(apiUrl, entity, String.class);
+
+        if (responseBody == null) {
+            throw new AnyException(204, "Gemini API returned empty response");
+        }
+
+        // Parse response
+        JsonNode geminiResponse = objectMapper.readTree(responseBody);
+        metrics.recordUsage(feature, geminiResponse.path("usageMetadata"));
+        JsonNode candidates = geminiResponse.path("candidates");
+        if (candidates.isEmpty()) {
+            throw new AnyException(204, "No candidates returned by Gemini API");
+        }
+
+        String text = candidates.get(0).path("content").path("parts").get(0).path("text").asText();
+        metrics.recordSizes(feature, body.length, text.getBytes(StandardCharsets.UTF_8).length);
+        return text;
+    }
+
+    private String readCache(String key) {
+        cacheLock.lock();
+        try {
+            CachedResponse cached = responseCache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.storedAt() > TimeUnit.MINUTES.toMillis(responseCacheTtlMinutes)) {
+                responseCache.remove(key);
+                return null;
+            }
+            return cached.text();
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private void writeCache(String key, String text) {
+        cacheLock.lock();
+        try {
+            responseCache.put(key, new CachedResponse(text, System.currentTimeMillis()));
+            Iterator<String> eldest = responseCache.keySet().iterator();
+            while (responseCache.size() > responseCacheMaxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private static String hash(String requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(requestBody.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record CachedResponse(String text, long storedAt) {
     }
-}
\ No newline at end of file
+}
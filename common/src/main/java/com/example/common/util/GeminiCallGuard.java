@@ -0,0 +1,313 @@
+package com.example.common.util;
+
+import com.example.common.Exception.AnyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resilience layer for upstream Gemini calls: a per-feature bulkhead, a circuit breaker and a token-bucket
+ * rate limiter, applied in that order.
+ * <p>
+ * The bulkhead caps concurrent calls per {@link Bulkhead}, so slow image analyses cannot take every slot
+ * weather advice needs. The token bucket keeps the process within the Gemini quota
+ * ({@code gemini.rate-limit.requests-per-minute}) and allows short bursts. The breaker opens after
+ * {@code gemini.circuit.failure-threshold} consecutive timeouts or 5xx responses, and immediately on a
+ * 429. While it is open, calls fail at once instead of waiting for the socket timeout. After
+ * {@code gemini.circuit.open-seconds} a single trial call decides whether it closes again.
+ * <p>
+ * Every rejection is an {@link AnyException}: 429 from the limiter, and 503 from the bulkhead and the
+ * breaker. Callers route these to their existing fallbacks. Rejections are counted in {@code gemini.rejected},
+ * tagged by feature and reason.
+ */
+@Component
+public class GeminiCallGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiCallGuard.class);
+
+    /**
+     * Concurrency pools shared by related features.
+     */
+    public enum Bulkhead {
+        WEATHER("weather", 4),
+        IMAGE_ANALYSIS("image-analysis", 6),
+        VALIDATION("validation", 4);
+
+        private final String propertyName;
+        private final int defaultMaxConcurrent;
+
+        Bulkhead(String propertyName, int defaultMaxConcurrent) {
+            this.propertyName = propertyName;
+            this.defaultMaxConcurrent = defaultMaxConcurrent;
+        }
+
+        /**
+         * @return the name used in {@code gemini.bulkhead.<name>.max-concurrent}
+         */
+        public String propertyName() {
+            return propertyName;
+        }
+    }
+
+    /**
+     * The call sites that use Gemini. Each runs in its {@link Bulkhead} and tags its metrics with its own name.
+     */
+    public enum Feature {
+        WEATHER_MULTI("weather-multi", Bulkhead.WEATHER),
+        WEATHER_SINGLE("weather-single", Bulkhead.WEATHER),
+        IMAGE_VALIDATE("image-validate", Bulkhead.VALIDATION),
+        IMAGE_VALIDATE_ENHANCE("image-validate-enhance", Bulkhead.IMAGE_ANALYSIS),
+        IMAGE_ENHANCE("image-enhance", Bulkhead.IMAGE_ANALYSIS);
+
+        private final String tag;
+        private final Bulkhead bulkhead;
+
+        Feature(String tag, Bulkhead bulkhead) {
+            this.tag = tag;
+            this.bulkhead = bulkhead;
+        }
+
+        /**
+         * @return the value of the {@code feature} metric tag
+         */
+        public String tag() {
+            return tag;
+        }
+
+        /**
+         * @return the concurrency pool the feature runs in
+         */
+        public Bulkhead bulkhead() {
+            return bulkhead;
+        }
+    }
+
+    private enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Map<Bulkhead, Semaphore> bulkheads = new EnumMap<>(Bulkhead.class);
+    private final long bulkheadWaitMillis;
+    private final MeterRegistry meterRegistry;
+
+    // Token bucket; guarded by bucketLock
+    private final ReentrantLock bucketLock = new ReentrantLock();
+    private final double bucketCapacity;
+    private final double tokensPerNano;
+    private final long rateLimitWaitMillis;
+    private double tokens;
+    private long lastRefillNanos;
+
+    // Circuit breaker; guarded by circuitLock
+    private final ReentrantLock circuitLock = new ReentrantLock();
+    private final int failureThreshold;
+    private final long openMillis;
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    /**
+     * Constructs a new {@code GeminiCallGuard}.
+     *
+     * @param environment   the environment the {@code gemini.*} limits are read from
+     * @param meterRegistry the registry the rejection counters are published to
+     */
+    public GeminiCallGuard(Environment environment, MeterRegistry meterRegistry) {
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            int maxConcurrent = environment.getProperty(
+                    "gemini.bulkhead." + bulkhead.propertyName() + ".max-concurrent", Integer.class, bulkhead.defaultMaxConcurrent);
+            bulkheads.put(bulkhead, new Semaphore(maxConcurrent));
+        }
+        this.meterRegistry = meterRegistry;
+        this.bulkheadWaitMillis = environment.getProperty("gemini.bulkhead.max-wait-ms", Long.class, 1000L);
+
+        double requestsPerMinute = environment.getProperty("gemini.rate-limit.requests-per-minute", Double.class, 60.0);
+        this.bucketCapacity = environment.getProperty("gemini.rate-limit.burst", Double.class, 10.0);
+        this.tokensPerNano = requestsPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.rateLimitWaitMillis = environment.getProperty("gemini.rate-limit.max-wait-ms", Long.class, 2000L);
+        this.tokens = bucketCapacity;
+        this.lastRefillNanos = System.nanoTime();
+
+        this.failureThreshold = environment.getProperty("gemini.circuit.failure-threshold", Integer.class, 5);
+        this.openMillis = TimeUnit.SECONDS.toMillis(environment.getProperty("gemini.circuit.open-seconds", Long.class, 30L));
+    }
+
+    /**
+     * Runs an upstream call inside the feature's bulkhead, the rate limiter and the circuit breaker.
+     *
+     * @param feature the calling feature
+     * @param call    the upstream call
+     * @param <T>     the result type
+     * @return the call's result
+     * @throws AnyException 429 or 503 if the call is rejected, or whatever the call throws
+     * @throws Exception    whatever the call throws
+     */
+    public <T> T execute(Feature feature, Callable<T> call) throws Exception {
+        Semaphore bulkhead = bulkheads.get(feature.bulkhead());
+        if (!bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS)) {
+            countRejection(feature, "bulkhead");
+            throw new AnyException(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    "Too many concurrent Gemini requests for " + feature.bulkhead().propertyName());
+        }
+        try {
+            boolean trial;
+            try {
+                trial = acquireCircuit();
+            } catch (AnyException e) {
+                countRejection(feature, "circuit-open");
+                throw e;
+            }
+            try {
+                acquireToken();
+            } catch (Exception e) {
+                if (trial) {
+                    releaseTrial();
+                }
+                if (e instanceof AnyException) {
+                    countRejection(feature, "rate-limit");
+                }
+                throw e;
+            }
+            try {
+                T result = call.call();
+                recordSuccess();
+                return result;
+            } catch (Exception e) {
+                recordOutcome(e, trial);
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void countRejection(Feature feature, String reason) {
+        Counter.builder("gemini.rejected")
+                .tag("feature", feature.tag())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void acquireToken() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(rateLimitWaitMillis);
+        while (true) {
+            long waitNanos;
+            bucketLock.lock();
+            try {
+                long now = System.nanoTime();
+                tokens = Math.min(bucketCapacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+                lastRefillNanos = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                if (now + waitNanos > deadline) {
+                    throw new AnyException(HttpStatus.TOO_MANY_REQUESTS.value(), "Gemini request rate limit reached");
+                }
+            } finally {
+                bucketLock.unlock();
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    // Returns true if this call is the half-open trial
+    private boolean acquireCircuit() {
+        circuitLock.lock();
+        try {
+            if (circuitState == CircuitState.CLOSED) {
+                return false;
+            }
+            if (circuitState == CircuitState.OPEN && System.currentTimeMillis() >= openUntil) {
+                circuitState = CircuitState.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (circuitState == CircuitState.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            throw new AnyException(HttpStatus.SERVICE_UNAVAILABLE.value(), "Gemini is temporarily unavailable");
+        } finally {
+            circuitLock.unlock();
+        }
+    }
+
+    private void releaseTrial() {
+        circuitLock.lock();
+        try {
+            trialInFlight = false;
+        } finally {
+            circuitLock.unlock();
+        }
+    }
+
+    private void recordSuccess() {
+        circuitLock.lock();
+        try {
+            if (circuitState != CircuitState.CLOSED) {
+                logger.info("Gemini circuit closed");
+            }
+            circuitState = CircuitState.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        } finally {
+            circuitLock.unlock();
+        }
+    }
+
+    private void recordOutcome(Exception e, boolean trial) {
+        boolean rateLimited = e instanceof HttpClientErrorException.TooManyRequests;
+        boolean unhealthy = rateLimited || e instanceof HttpServerErrorException || e instanceof ResourceAccessException;
+        if (!unhealthy) {
+            // Gemini answered; a bad prompt or unusable answer says nothing about its health
+            recordSuccess();
+            return;
+        }
+        circuitLock.lock();
+        try {
+            consecutiveFailures++;
+            if (rateLimited || trial || consecutiveFailures >= failureThreshold) {
+                long pause = openMillis;
+                if (rateLimited) {
+                    pause = Math.max(pause, retryAfterMillis((HttpClientErrorException) e));
+                }
+                circuitState = CircuitState.OPEN;
+                openUntil = System.currentTimeMillis() + pause;
+                trialInFlight = false;
+                logger.warn("Gemini circuit opened for {} ms after {} failures: {}", pause, consecutiveFailures, e.getMessage());
+            }
+        } finally {
+            circuitLock.unlock();
+        }
+    }
+
+    private static long retryAfterMillis(HttpClientErrorException e) {
+        String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("Retry-After") : null;
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim())).toMillis();
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.common.util;
+
+import com.example.common.Exception.AnyException;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.Callable;
+
+/**
+ * Micrometer instrumentation of upstream Gemini calls, tagged by the calling {@link GeminiCallGuard.Feature}.
+ * <p>
+ * Published meters:
+ * <ul>
+ *     <li>{@code gemini.request}: latency timer with a percentile histogram, tagged with the outcome
+ *     ({@code success}, {@code timeout}, {@code rate-limited}, {@code client-error}, {@code server-error},
+ *     {@code io-error}, {@code empty-response} or {@code error})</li>
+ *     <li>{@code gemini.request.size} and {@code gemini.response.size}: request and answer sizes in bytes</li>
+ *     <li>{@code gemini.tokens}: tokens reported in {@code usageMetadata}, tagged by type ({@code prompt},
+ *     {@code candidates}, {@code thoughts} and {@code cached})</li>
+ *     <li>{@code gemini.cost}: estimated spend in USD, from {@code gemini.pricing.*}</li>
+ *     <li>{@code gemini.cache}: requests answered without an upstream call, tagged {@code hit} (response
+ *     cache) or {@code coalesced} (joined an identical in-flight request)</li>
+ * </ul>
+ * Calls rejected before reaching Gemini are counted by {@link GeminiCallGuard} in {@code gemini.rejected}.
+ */
+@Component
+public class GeminiMetrics {
+
+    private static final double TOKENS_PER_MILLION = 1_000_000.0;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gemini.pricing.input-usd-per-million-tokens:0.30}")
+    private double inputUsdPerMillionTokens;
+
+    @Value("${gemini.pricing.output-usd-per-million-tokens:2.50}")
+    private double outputUsdPerMillionTokens;
+
+    /**
+     * Constructs a new {@code GeminiMetrics}.
+     *
+     * @param meterRegistry the registry the Gemini meters are published to
+     */
+    public GeminiMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Times an upstream call and records its outcome.
+     *
+     * @param feature the calling feature
+     * @param call    the upstream call
+     * @param <T>     the result type
+     * @return the call's result
+     * @throws Exception whatever the call throws
+     */
+    public <T> T time(GeminiCallGuard.Feature feature, Callable<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return call.call();
+        } catch (Exception e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("gemini.request")
+                    .description("Latency of upstream Gemini calls")
+                    .tag("feature", feature.tag())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records the size of a request body and of the text answered for it.
+     *
+     * @param feature       the calling feature
+     * @param requestBytes  the request body size in bytes
+     * @param responseBytes the answer text size in bytes
+     */
+    public void recordSizes(GeminiCallGuard.Feature feature, long requestBytes, long responseBytes) {
+        summary("gemini.request.size", feature).record(requestBytes);
+        summary("gemini.response.size", feature).record(responseBytes);
+    }
+
+    /**
+     * Records token counts and the estimated cost from a response's {@code usageMetadata}. Thought tokens
+     * are billed as output.
+     *
+     * @param feature       the calling feature
+     * @param usageMetadata the {@code usageMetadata} node; missing nodes are ignored
+     */
+    public void recordUsage(GeminiCallGuard.Feature feature, JsonNode usageMetadata) {
+        if (usageMetadata == null || usageMetadata.isMissingNode() || usageMetadata.isNull()) {
+            return;
+        }
+        long promptTokens = usageMetadata.path("promptTokenCount").asLong(0);
+        long candidateTokens = usageMetadata.path("candidatesTokenCount").asLong(0);
+        long thoughtTokens = usageMetadata.path("thoughtsTokenCount").asLong(0);
+        long cachedTokens = usageMetadata.path("cachedContentTokenCount").asLong(0);
+
+        tokens(feature, "prompt").increment(promptTokens);
+        tokens(feature, "candidates").increment(candidateTokens);
+        tokens(feature, "thoughts").increment(thoughtTokens);
+        tokens(feature, "cached").increment(cachedTokens);
+
+        double cost = promptTokens / TOKENS_PER_MILLION * inputUsdPerMillionTokens
+                + (candidateTokens + thoughtTokens) / TOKENS_PER_MILLION * outputUsdPerMillionTokens;
+        Counter.builder("gemini.cost")
+                .description("Estimated Gemini spend")
+                .baseUnit("usd")
+                .tag("feature", feature.tag())
+                .register(meterRegistry)
+                .increment(cost);
+    }
+
+    /**
+     * Counts a request answered without an upstream call.
+     *
+     * @param feature the calling feature
+     * @param result  {@code hit} for the response cache, {@code coalesced} for a joined in-flight request
+     */
+    public void recordCacheResult(GeminiCallGuard.Feature feature, String result) {
+        Counter.builder("gemini.cache")
+                .tag("feature", feature.tag())
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private DistributionSummary summary(String name, GeminiCallGuard.Feature feature) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("feature", feature.tag())
+                .register(meterRegistry);
+    }
+
+    private Counter tokens(GeminiCallGuard.Feature feature, String type) {
+        return Counter.builder("gemini.tokens")
+                .baseUnit("tokens")
+                .tag("feature", feature.tag())
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private static String outcomeOf(Exception e) {
+        if (e instanceof HttpClientErrorException.TooManyRequests) {
+            return "rate-limited";
+        }
+        if (e instanceof HttpClientErrorException) {
+            return "client-error";
+        }
+        if (e instanceof HttpServerErrorException) {
+            return "server-error";
+        }
+        if (e instanceof ResourceAccessException) {
+            return isTimeout(e) ? "timeout" : "io-error";
+        }
+        if (e instanceof AnyException) {
+            return "empty-response";
+        }
+        return "error";
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException || cause instanceof HttpTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
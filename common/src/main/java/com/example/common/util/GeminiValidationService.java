@@ -43,11 +43,34 @@ public class GeminiValidationService {
             if (file == null || file.isEmpty()) {
                 throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Uploaded file is empty");
             }
+            return isValidCropImage(file.getBytes(), file.getContentType());
+
+        } catch (AnyException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Failed to read image for Gemini validation", e);
+            throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to validate crop image");
+        }
+    }
+
+    /**
+     * Validates whether the given image bytes depict a crop or plant using the Gemini API.
+     * Used when the original upload is no longer available, e.g. from a background analysis job.
+     *
+     * @param imageBytes  The raw image bytes to validate.
+     * @param contentType The MIME type of the image, or {@code null} to assume {@code image/jpeg}.
+     * @return {@code true} if the image is identified as a crop or plant, {@code false} otherwise.
+     * @throws AnyException If the image is empty or if the Gemini API call fails.
+     */
+    public boolean isValidCropImage(byte[] imageBytes, String contentType) throws AnyException {
+        try {
+            if (imageBytes == null || imageBytes.length == 0) {
+                throw new AnyException(HttpStatus.BAD_REQUEST.value(), "Uploaded file is empty");
+            }
 
             logger.info("Validating image with Gemini API...");
-            byte[] imageBytes = file.getBytes();
             String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-            String mimeType = file.getContentType() != null ? file.getContentType() : "image/jpeg";
+            String mimeType = contentType != null ? contentType : "image/jpeg";
 
             // Build inline data for request
             Map<String, Object> inlineData = Map.of(
@@ -56,7 +79,7 @@ public class GeminiValidationService {
             );
 
             String textPrompt = "Is this image a crop or plant? Answer YES or NO.";
-            String resultText = geminiApiHelper.callGeminiApiWithInlineData(textPrompt, inlineData);
+            String resultText = geminiApiHelper.callGeminiApiWithInlineData(GeminiCallGuard.Feature.IMAGE_VALIDATE, textPrompt, inlineData);
 
             logger.info("Gemini validation result: {}", resultText);
             return resultText.trim().equalsIgnoreCase("YES") || resultText.toUpperCase().contains("YES");
@@ -69,4 +92,4 @@ public class GeminiValidationService {
             throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Failed to validate crop image");
         }
     }
-}
\ No newline at end of file
+}
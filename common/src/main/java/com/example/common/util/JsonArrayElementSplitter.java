@@ -0,0 +1,98 @@
+package com.example.common.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Splits a JSON array that arrives in arbitrary text chunks into its top-level elements.
+ * <p>
+ * Only structure is tracked (nesting depth, strings and escapes), so each element is handed on as soon as
+ * its closing bracket arrives, without waiting for the rest of the array. Each element's text can then be
+ * parsed on its own. Instances are not thread-safe; use one per stream.
+ */
+public class JsonArrayElementSplitter {
+
+    private final Consumer<String> elementConsumer;
+    private final StringBuilder element = new StringBuilder();
+    // 0 before the array, 1 between elements, deeper inside an element
+    private int depth;
+    private boolean capturing;
+    private boolean inString;
+    private boolean escaped;
+
+    /**
+     * Constructs a new {@code JsonArrayElementSplitter}.
+     *
+     * @param elementConsumer receives the JSON text of each complete top-level element
+     */
+    public JsonArrayElementSplitter(Consumer<String> elementConsumer) {
+        this.elementConsumer = elementConsumer;
+    }
+
+    /**
+     * Feeds the next chunk of the array text. Anything before the opening bracket is ignored.
+     *
+     * @param chunk the chunk
+     */
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (depth == 0) {
+                if (c == '[') {
+                    depth = 1;
+                }
+                continue;
+            }
+            if (!capturing) {
+                if (Character.isWhitespace(c) || c == ',') {
+                    continue;
+                }
+                if (c == ']' && depth == 1) {
+                    depth = 0;
+                    continue;
+                }
+                capturing = true;
+            }
+
+            element.append(c);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> depth++;
+                case '}', ']' -> {
+                    depth--;
+                    if (depth == 1) {
+                        emit(element.length());
+                    } else if (depth == 0) {
+                        // A scalar element ended by the closing bracket of the array
+                        emit(element.length() - 1);
+                    }
+                }
+                case ',' -> {
+                    if (depth == 1) {
+                        emit(element.length() - 1);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void emit(int length) {
+        String text = element.substring(0, length).strip();
+        element.setLength(0);
+        capturing = false;
+        if (!text.isEmpty()) {
+            elementConsumer.accept(text);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -91,6 +92,15 @@ public class LocationHelper {
         return DEFAULT_DISTRICTS;
     }
 
+    /**
+     * Retrieves the reference coordinates of the known districts.
+     *
+     * @return An unmodifiable {@link Map} of district name to {@code {latitude, longitude}}.
+     */
+    public Map<String, double[]> getDistrictCoordinates() {
+        return Collections.unmodifiableMap(DISTRICT_COORDINATES);
+    }
+
     /**
      * Retrieves the list of default markets.
      *
@@ -0,0 +1,336 @@
+package com.example.common.util;
+
+import com.example.common.DTO.DailyForecastDto;
+import com.example.common.Exception.AnyException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming reader for the OpenWeatherMap 5 day / 3 hour forecast response.
+ * <p>
+ * The response is read token by token straight from the HTTP stream, without building a tree. The first
+ * forecast step supplies the current conditions. Every step contributes its timestamp, temperatures, rain
+ * probability and condition to small primitive arrays, which are folded into daily summaries once the
+ * city (and with it the location's UTC offset) has been read. Parsing stops as soon as both the step list
+ * and the city have been seen.
+ */
+@Component
+public class OpenWeatherParser {
+
+    private static final int DEFAULT_STEP_COUNT = 40;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Constructs a new {@code OpenWeatherParser}.
+     *
+     * @param objectMapper the application mapper, whose {@link JsonFactory} is reused
+     */
+    public OpenWeatherParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Reads the current conditions and the daily summaries from a forecast response.
+     *
+     * @param body the response body
+     * @return the city, the conditions of the first forecast step and one summary per local day
+     * @throws IOException  if the body cannot be read or is not JSON
+     * @throws AnyException if the body is empty or misses required fields
+     */
+    public CurrentConditions parse(InputStream body) throws IOException {
+        if (body == null)
+            throw new AnyException(HttpStatus.NO_CONTENT.value(), "Empty weather response");
+
+        Reading reading = new Reading();
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            // The stream is drained below instead of closed, so the pooled connection can be reused
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new AnyException(HttpStatus.NO_CONTENT.value(), "Empty weather response");
+
+            while (!(reading.hasSteps && reading.hasCity) && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("cnt".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    reading.ensureCapacity(parser.getIntValue());
+                } else if ("list".equals(field) && value == JsonToken.START_ARRAY) {
+                    readSteps(parser, reading);
+                } else if ("city".equals(field) && value == JsonToken.START_OBJECT) {
+                    readCity(parser, reading);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        body.transferTo(OutputStream.nullOutputStream());
+        return reading.toConditions();
+    }
+
+    private void readSteps(JsonParser parser, Reading reading) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            reading.startStep();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "dt" -> reading.stepTime[reading.stepCount] = parser.getValueAsLong();
+                    case "main" -> readMain(parser, reading);
+                    case "weather" -> readWeather(parser, reading, value);
+                    case "wind" -> readWind(parser, reading);
+                    case "pop" -> reading.stepPop[reading.stepCount] = parser.getValueAsDouble();
+                    default -> parser.skipChildren();
+                }
+            }
+            reading.endStep();
+        }
+        reading.hasSteps = true;
+    }
+
+    private void readMain(JsonParser parser, Reading reading) throws IOException {
+        int step = reading.stepCount;
+        boolean first = step == 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "temp" -> {
+                    reading.stepTemp[step] = parser.getValueAsDouble();
+                    reading.stepHasTemp = true;
+                }
+                case "temp_min" -> reading.stepTempMin[step] = parser.getValueAsDouble();
+                case "temp_max" -> reading.stepTempMax[step] = parser.getValueAsDouble();
+                case "feels_like" -> {
+                    if (first) reading.feelsLike = parser.getValueAsDouble();
+                }
+                case "humidity" -> {
+                    if (first) {
+                        reading.humidity = parser.getValueAsInt();
+                        reading.hasHumidity = true;
+                    }
+                }
+                case "pressure" -> {
+                    if (first) reading.pressure = parser.getValueAsInt();
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readWeather(JsonParser parser, Reading reading, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean first = reading.stepCount == 0;
+        boolean primary = true;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (!primary) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "main" -> reading.stepCondition[reading.stepCount] = parser.getValueAsString();
+                    case "description" -> {
+                        if (first) reading.description = parser.getValueAsString();
+                    }
+                    case "icon" -> {
+                        if (first) reading.icon = parser.getValueAsString();
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            primary = false;
+        }
+    }
+
+    private void readWind(JsonParser parser, Reading reading) throws IOException {
+        if (reading.stepCount != 0) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "speed" -> reading.windSpeed = parser.getValueAsDouble();
+                case "deg" -> reading.windDeg = parser.getValueAsInt();
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readCity(JsonParser parser, Reading reading) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> reading.city = parser.getValueAsString();
+                case "country" -> reading.country = parser.getValueAsString();
+                case "timezone" -> reading.utcOffsetSeconds = parser.getValueAsInt();
+                default -> parser.skipChildren();
+            }
+        }
+        reading.hasCity = true;
+    }
+
+    /**
+     * Conditions of the first forecast step, with OpenWeatherMap's units (°C, %, m/s, 0-1), and the daily
+     * summaries of all steps.
+     */
+    public record CurrentConditions(String city, String country, double temp, double feelsLike, int humidity,
+                                    int pressure, String weatherMain, String description, String icon,
+                                    double windSpeed, int windDeg, double rainProb, List<DailyForecastDto> daily) {
+    }
+
+    // Mutable accumulator filled while streaming, turned into a CurrentConditions at the end
+    private static final class Reading {
+        boolean hasSteps;
+        boolean hasCity;
+        boolean hasHumidity;
+        String city;
+        String country;
+        int utcOffsetSeconds;
+        double feelsLike;
+        int humidity;
+        int pressure;
+        String description;
+        String icon;
+        double windSpeed;
+        int windDeg;
+
+        // Per-step values; index stepCount is the step being read
+        int stepCount;
+        boolean stepHasTemp;
+        long[] stepTime = new long[DEFAULT_STEP_COUNT];
+        double[] stepTemp = new double[DEFAULT_STEP_COUNT];
+        double[] stepTempMin = new double[DEFAULT_STEP_COUNT];
+        double[] stepTempMax = new double[DEFAULT_STEP_COUNT];
+        double[] stepPop = new double[DEFAULT_STEP_COUNT];
+        String[] stepCondition = new String[DEFAULT_STEP_COUNT];
+
+        void ensureCapacity(int steps) {
+            if (steps > stepTime.length) {
+                stepTime = Arrays.copyOf(stepTime, steps);
+                stepTemp = Arrays.copyOf(stepTemp, steps);
+                stepTempMin = Arrays.copyOf(stepTempMin, steps);
+                stepTempMax = Arrays.copyOf(stepTempMax, steps);
+                stepPop = Arrays.copyOf(stepPop, steps);
+                stepCondition = Arrays.copyOf(stepCondition, steps);
+            }
+        }
+
+        void startStep() {
+            if (stepCount == stepTime.length) {
+                ensureCapacity(stepTime.length * 2);
+            }
+            stepHasTemp = false;
+            stepTime[stepCount] = 0;
+            stepTempMin[stepCount] = Double.NaN;
+            stepTempMax[stepCount] = Double.NaN;
+            stepPop[stepCount] = 0;
+            stepCondition[stepCount] = null;
+        }
+
+        void endStep() {
+            // Steps without a temperature or condition are dropped; the first one must be complete
+            if (stepHasTemp && stepCondition[stepCount] != null) {
+                stepCount++;
+            } else if (stepCount == 0) {
+                throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Invalid weather data");
+            }
+        }
+
+        CurrentConditions toConditions() {
+            if (city == null || country == null)
+                throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Invalid city data");
+            if (stepCount == 0 || !hasHumidity)
+                throw new AnyException(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Invalid weather data");
+            return new CurrentConditions(city, country, stepTemp[0], feelsLike, humidity, pressure, stepCondition[0],
+                    description, icon, windSpeed, windDeg, stepPop[0], summariseDays());
+        }
+
+        // Steps are in time order, so each local day is a contiguous run of steps
+        List<DailyForecastDto> summariseDays() {
+            List<DailyForecastDto> days = new ArrayList<>(6);
+            int start = 0;
+            while (start < stepCount) {
+                long day = localDay(stepTime[start]);
+                int end = start + 1;
+                while (end < stepCount && localDay(stepTime[end]) == day) {
+                    end++;
+                }
+                days.add(summarise(day, start, end));
+                start = end;
+            }
+            return days;
+        }
+
+        private DailyForecastDto summarise(long day, int start, int end) {
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            double sum = 0;
+            double noRain = 1;
+            for (int i = start; i < end; i++) {
+                min = Math.min(min, Double.isNaN(stepTempMin[i]) ? stepTemp[i] : stepTempMin[i]);
+                max = Math.max(max, Double.isNaN(stepTempMax[i]) ? stepTemp[i] : stepTempMax[i]);
+                sum += stepTemp[i];
+                noRain *= 1 - Math.min(1, Math.max(0, stepPop[i]));
+            }
+            int steps = end - start;
+            return new DailyForecastDto(
+                    LocalDate.ofEpochDay(day).toString(),
+                    Math.round(min),
+                    Math.round(max),
+                    Math.round(sum / steps * 10) / 10.0,
+                    Math.round((1 - noRain) * 100),
+                    dominantCondition(start, end),
+                    steps);
+        }
+
+        // Most frequent condition; ties go to the one seen first
+        private String dominantCondition(int start, int end) {
+            String dominant = stepCondition[start];
+            int dominantCount = 0;
+            for (int i = start; i < end; i++) {
+                int count = 0;
+                for (int j = start; j < end; j++) {
+                    if (stepCondition[i].equals(stepCondition[j])) {
+                        count++;
+                    }
+                }
+                if (count > dominantCount) {
+                    dominant = stepCondition[i];
+                    dominantCount = count;
+                }
+            }
+            return dominant;
+        }
+
+        private long localDay(long epochSecond) {
+            return Math.floorDiv(epochSecond + utcOffsetSeconds, SECONDS_PER_DAY);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -24,6 +25,12 @@ public class PexelsImageService {
     @Value("${pexels.api.key}")
     private String apiKey;
 
+    private final RestTemplate restTemplate;
+
+    public PexelsImageService(@Qualifier("pexelsRestTemplate") RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
     /**
      * Fetches an image URL from the Pexels API for the specified crop name.
      * Makes a GET request to the Pexels API with the crop name as a query parameter and returns the medium-sized image URL.
@@ -42,8 +49,6 @@ public class PexelsImageService {
                     URLEncoder.encode(cropName, StandardCharsets.UTF_8) +
                     "&per_page=1";
 
-            RestTemplate restTemplate = new RestTemplate();
-
             org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
             headers.set("Authorization", apiKey);
 
@@ -2,6 +2,7 @@ package com.example.common.util;
 
 import com.example.common.Model.CropInfo;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -19,6 +20,12 @@ public class TranslateToHindi {
 
     private static final Map<String, CropInfo> cropDict = new HashMap<>();
 
+    private final RestTemplate restTemplate;
+
+    public TranslateToHindi(@Qualifier("translationRestTemplate") RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
     static {
         cropDict.put("rice", new CropInfo("चावल", "भारत में व्यापक रूप से खाया जाने वाला मुख्य अनाज।",
                 "A staple grain widely consumed in India."));
@@ -98,8 +105,6 @@ public class TranslateToHindi {
         String encodedText = text.replace(" ", "%20");
         String url = "https://api.mymemory.translated.net/get?q=" + encodedText + "&langpair=en|hi";
 
-        RestTemplate restTemplate = new RestTemplate();
-
         try {
             Map response = restTemplate.getForObject(url, Map.class);
             if (response != null && response.containsKey("responseData")) {
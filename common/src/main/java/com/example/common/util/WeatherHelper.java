@@ -1,5 +1,6 @@
 package com.example.common.util;
 
+import com.example.common.DTO.WeatherForecastDto;
 import com.example.common.Exception.AnyException;
 import com.example.common.Service.WeatherService;
 import lombok.Getter;
@@ -9,7 +10,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,19 +46,10 @@ public class WeatherHelper {
     /**
      * Creates an empty weather data template with default values.
      *
-     * @return A {@link Map} containing default weather data fields (e.g., city, temperature, humidity).
+     * @return A {@link WeatherForecastDto} with empty fields (e.g., city, temperature, humidity).
      */
-    public Map<String, Object> getEmptyWeatherData() {
-        Map<String, Object> emptyData = new HashMap<>();
-        emptyData.put("city", "");
-        emptyData.put("country", "");
-        emptyData.put("temperature", 0);
-        emptyData.put("humidity", 0);
-        emptyData.put("rainProbability", 0);
-        emptyData.put("weatherMain", "Loading...");
-        emptyData.put("windSpeed", 0);
-        emptyData.put("cropAdvice", new ArrayList<>());
-        return emptyData;
+    public WeatherForecastDto getEmptyWeatherData() {
+        return WeatherForecastDto.empty();
     }
 
     /**
@@ -78,8 +69,8 @@ public class WeatherHelper {
         logger.info("Fetching weather for coordinates - Lat: {}, Lon: {}, Lang: {}", lat, lon, lang);
 
         try {
-            Map<String, Object> weatherData = weatherService.getWeatherForecast(lat, lon, lang);
-            String location = weatherData.get("city") + ", " + weatherData.get("country");
+            WeatherForecastDto weatherData = weatherService.getWeatherForecast(lat, lon, lang);
+            String location = weatherData.city() + ", " + weatherData.country();
 
             return WeatherResult.success(weatherData, location);
 
@@ -88,18 +79,56 @@ public class WeatherHelper {
 
             try {
                 // Try to get default/cached data
-                Map<String, Object> defaultData = weatherService.getDefaultWeatherData(lang);
+                WeatherForecastDto defaultData = weatherService.getDefaultWeatherData(lang);
                 return WeatherResult.fallback(defaultData, DEFAULT_LOCATION, "Failed to fetch current weather data");
 
             } catch (Exception ex) {
                 logger.error("Error getting default weather data: {}", ex.getMessage());
                 // Return empty data as last resort
-                Map<String, Object> emptyData = getEmptyWeatherData();
+                WeatherForecastDto emptyData = getEmptyWeatherData();
                 return WeatherResult.error(emptyData, DEFAULT_LOCATION, "Service temporarily unavailable");
             }
         }
     }
 
+    /**
+     * Streams weather data for the specified coordinates and language to a listener: the current conditions
+     * first, then the advice for each crop as it becomes available. Falls back like {@link #getWeatherData},
+     * but the fallback data is returned rather than streamed, since part of the live forecast may already
+     * have been sent.
+     *
+     * @param latitude  The latitude coordinate, or null to use the default (Basti, Uttar Pradesh).
+     * @param longitude The longitude coordinate, or null to use the default (Basti, Uttar Pradesh).
+     * @param lang      The language code for localized weather data.
+     * @param listener  Receives the forecast pieces on the calling thread.
+     * @return A {@link WeatherResult} containing the complete weather data, location, success status, and optional error message.
+     */
+    public WeatherResult streamWeatherData(Double latitude, Double longitude, String lang,
+                                           WeatherService.ForecastListener listener) {
+        double[] coords = getNormalizedCoordinates(latitude, longitude);
+        double lat = coords[0];
+        double lon = coords[1];
+
+        logger.info("Streaming weather for coordinates - Lat: {}, Lon: {}, Lang: {}", lat, lon, lang);
+
+        try {
+            WeatherForecastDto weatherData = weatherService.streamWeatherForecast(lat, lon, lang, listener);
+            return WeatherResult.success(weatherData, weatherData.city() + ", " + weatherData.country());
+
+        } catch (Exception e) {
+            logger.error("Error streaming weather data: {}", e.getMessage());
+
+            try {
+                WeatherForecastDto defaultData = weatherService.getDefaultWeatherData(lang);
+                return WeatherResult.fallback(defaultData, DEFAULT_LOCATION, "Failed to fetch current weather data");
+
+            } catch (Exception ex) {
+                logger.error("Error getting default weather data: {}", ex.getMessage());
+                return WeatherResult.error(getEmptyWeatherData(), DEFAULT_LOCATION, "Service temporarily unavailable");
+            }
+        }
+    }
+
     /**
      * Creates an API response for weather data based on the provided coordinates and language.
      *
@@ -110,11 +139,28 @@ public class WeatherHelper {
      *         Returns HTTP 200 for success or fallback, and HTTP 500 for errors.
      */
     public ResponseEntity<Map<String, Object>> createWeatherApiResponse(Double latitude, Double longitude, String lang) {
+        return createWeatherApiResponse(latitude, longitude, lang, false);
+    }
+
+    /**
+     * Creates an API response for weather data, optionally including the daily summaries of the 5 day forecast.
+     * The summaries come from the same cached forecast, so they cost no extra upstream call.
+     *
+     * @param latitude     The latitude coordinate, or null to use the default (Basti, Uttar Pradesh).
+     * @param longitude    The longitude coordinate, or null to use the default (Basti, Uttar Pradesh).
+     * @param lang         The language code for localized weather data.
+     * @param includeDaily Whether to include the per-day forecast summaries.
+     * @return A {@link ResponseEntity} containing the weather data, location, and success status.
+     *         Returns HTTP 200 for success or fallback, and HTTP 500 for errors.
+     */
+    public ResponseEntity<Map<String, Object>> createWeatherApiResponse(Double latitude, Double longitude, String lang,
+                                                                        boolean includeDaily) {
         WeatherResult result = getWeatherData(latitude, longitude, lang);
+        WeatherForecastDto weatherData = includeDaily ? result.getWeatherData() : result.getWeatherData().withoutDaily();
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", result.isSuccess());
-        response.put("weatherData", result.getWeatherData());
+        response.put("weatherData", weatherData);
         response.put("location", result.getLocation());
 
         if (!result.isSuccess()) {
@@ -128,6 +174,8 @@ public class WeatherHelper {
 
     /**
      * Creates an API response with crop-specific advice based on weather data.
+     * Advice for the fixed crop list is taken from the forecast's multi-crop advice; other crops are
+     * generated individually.
      *
      * @param latitude  The latitude coordinate, or null to use the default (Basti, Uttar Pradesh).
      * @param longitude The longitude coordinate, or null to use the default (Basti, Uttar Pradesh).
@@ -146,14 +194,7 @@ public class WeatherHelper {
 
         if (result.isSuccess()) {
             try {
-                Map<String, String> cropAdvice = weatherService.generateSingleCropAdvice(
-                        (double) result.getWeatherData().get("temperature"),
-                        (int) result.getWeatherData().get("humidity"),
-                        ((Number) result.getWeatherData().get("rainProbability")).doubleValue() / 100, // converting % to probability
-                        (String) result.getWeatherData().get("weatherMain"),
-                        lang,
-                        cropName
-                );
+                Map<String, String> cropAdvice = weatherService.getSingleCropAdvice(result.getWeatherData(), lang, cropName);
                 response.put("success", true);
                 response.put("cropAdvice", cropAdvice);
             } catch (AnyException e) {
@@ -176,7 +217,7 @@ public class WeatherHelper {
     public static class WeatherResult {
         // Getters
         @Getter
-        private final Map<String, Object> weatherData;
+        private final WeatherForecastDto weatherData;
         @Getter
         private final String location;
         @Getter
@@ -188,13 +229,13 @@ public class WeatherHelper {
         /**
          * Constructs a WeatherResult instance.
          *
-         * @param weatherData   The weather data map.
+         * @param weatherData   The weather data.
          * @param location      The location string (e.g., "Basti, Uttar Pradesh").
          * @param success       Indicates if the operation was successful.
          * @param errorMessage  The error message, if any.
          * @param isError       Indicates if the result represents an error state.
          */
-        private WeatherResult(Map<String, Object> weatherData, String location,
+        private WeatherResult(WeatherForecastDto weatherData, String location,
                               boolean success, String errorMessage, boolean isError) {
             this.weatherData = weatherData;
             this.location = location;
@@ -206,35 +247,35 @@ public class WeatherHelper {
         /**
          * Creates a successful WeatherResult instance.
          *
-         * @param weatherData The weather data map.
+         * @param weatherData The weather data.
          * @param location    The location string.
          * @return A {@link WeatherResult} representing a successful operation.
          */
-        public static WeatherResult success(Map<String, Object> weatherData, String location) {
+        public static WeatherResult success(WeatherForecastDto weatherData, String location) {
             return new WeatherResult(weatherData, location, true, null, false);
         }
 
         /**
          * Creates a fallback WeatherResult instance for when live data is unavailable.
          *
-         * @param weatherData  The fallback weather data map.
+         * @param weatherData  The fallback weather data.
          * @param location     The location string.
          * @param error        The error message explaining the fallback.
          * @return A {@link WeatherResult} representing a fallback operation.
          */
-        public static WeatherResult fallback(Map<String, Object> weatherData, String location, String error) {
+        public static WeatherResult fallback(WeatherForecastDto weatherData, String location, String error) {
             return new WeatherResult(weatherData, location, false, error, false);
         }
 
         /**
          * Creates an error WeatherResult instance for when the service is unavailable.
          *
-         * @param weatherData  The empty or default weather data map.
+         * @param weatherData  The empty or default weather data.
          * @param location     The location string.
          * @param error        The error message explaining the failure.
          * @return A {@link WeatherResult} representing an error state.
          */
-        public static WeatherResult error(Map<String, Object> weatherData, String location, String error) {
+        public static WeatherResult error(WeatherForecastDto weatherData, String location, String error) {
             return new WeatherResult(weatherData, location, false, error, true);
         }
 
@@ -0,0 +1,60 @@
+package com.example.common.Service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeatherForecastCacheGeohashTest {
+
+    // Cell size at precision 5: 12 latitude and 13 longitude bits
+    private static final double LAT_SPAN_5 = 180 / Math.pow(2, 12);
+    private static final double LON_SPAN_5 = 360 / Math.pow(2, 13);
+
+    @Test
+    void encodesKnownGeohashes() {
+        assertEquals("u4pruydqqvj", WeatherForecastCache.geohash(57.64911, 10.40744, 11));
+        assertEquals("ezs42", WeatherForecastCache.geohash(42.6, -5.6, 5));
+    }
+
+    @Test
+    void splitsCellsAtTheEquatorAndPrimeMeridian() {
+        assertEquals("s0000", WeatherForecastCache.geohash(0, 0, 5));
+        assertEquals("7zzzz", WeatherForecastCache.geohash(-0.0001, -0.0001, 5));
+    }
+
+    @Test
+    void encodesTheCornersOfTheMap() {
+        assertEquals("zzzzz", WeatherForecastCache.geohash(90, 180, 5));
+        assertEquals("00000", WeatherForecastCache.geohash(-90, -180, 5));
+    }
+
+    @Test
+    void decodesToTheCentreOfTheCell() {
+        double[] centre = WeatherForecastCache.geohashCentre("s0000");
+
+        assertEquals(LAT_SPAN_5 / 2, centre[0], 1e-12);
+        assertEquals(LON_SPAN_5 / 2, centre[1], 1e-12);
+    }
+
+    @Test
+    void roundTripsThroughTheCellCentre() {
+        double[][] points = {{18.5204, 73.8567}, {-33.8688, 151.2093}, {40.7128, -74.006}, {-54.8, -68.3}, {89.99, 179.99}};
+        for (double[] point : points) {
+            String cell = WeatherForecastCache.geohash(point[0], point[1], 5);
+            double[] centre = WeatherForecastCache.geohashCentre(cell);
+
+            assertEquals(cell, WeatherForecastCache.geohash(centre[0], centre[1], 5));
+            assertTrue(Math.abs(centre[0] - point[0]) <= LAT_SPAN_5 / 2);
+            assertTrue(Math.abs(centre[1] - point[1]) <= LON_SPAN_5 / 2);
+        }
+    }
+
+    @Test
+    void nearbyPointsShareACell() {
+        String cell = WeatherForecastCache.geohash(18.5204, 73.8567, 5);
+        double[] centre = WeatherForecastCache.geohashCentre(cell);
+
+        assertEquals(cell, WeatherForecastCache.geohash(centre[0] + LAT_SPAN_5 / 4, centre[1] - LON_SPAN_5 / 4, 5));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonArrayElementSplitterTest {
+
+    private final List<String> elements = new ArrayList<>();
+    private final JsonArrayElementSplitter splitter = new JsonArrayElementSplitter(elements::add);
+
+    @Test
+    void splitsObjectsAsSoonAsTheyClose() {
+        splitter.feed("[{\"crop\":\"Rice\"},");
+        assertEquals(List.of("{\"crop\":\"Rice\"}"), elements);
+
+        splitter.feed(" {\"crop\":\"Wheat\",\"tips\":[\"a\",\"b\"]}]");
+        assertEquals(List.of("{\"crop\":\"Rice\"}", "{\"crop\":\"Wheat\",\"tips\":[\"a\",\"b\"]}"), elements);
+    }
+
+    @Test
+    void ignoresTextBeforeTheArray() {
+        splitter.feed("```json\n[{\"a\":1}]");
+
+        assertEquals(List.of("{\"a\":1}"), elements);
+    }
+
+    @Test
+    void keepsBracketsAndCommasInsideStrings() {
+        splitter.feed("[{\"advice\":\"water [daily], then {rest}\"},\"x],y\"]");
+
+        assertEquals(List.of("{\"advice\":\"water [daily], then {rest}\"}", "\"x],y\""), elements);
+    }
+
+    @Test
+    void handlesEscapedQuotesAndBackslashes() {
+        splitter.feed("[{\"note\":\"say \\\"hi]\\\" \\\\\"},{\"b\":2}]");
+
+        assertEquals(List.of("{\"note\":\"say \\\"hi]\\\" \\\\\"}", "{\"b\":2}"), elements);
+    }
+
+    @Test
+    void splitsScalarElementsIncludingTheLastBeforeTheBracket() {
+        splitter.feed("[1, true ,\"two\", null,3.5 ]");
+
+        assertEquals(List.of("1", "true", "\"two\"", "null", "3.5"), elements);
+    }
+
+    @Test
+    void handlesChunksSplitMidToken() {
+        String array = "[{\"crop\":\"Ri\\\"ce\",\"n\":[1,{\"x\":\"]\"}]}, 42 ,\"tail\"]";
+        for (char c : array.toCharArray()) {
+            splitter.feed(String.valueOf(c));
+        }
+
+        assertEquals(List.of("{\"crop\":\"Ri\\\"ce\",\"n\":[1,{\"x\":\"]\"}]}", "42", "\"tail\""), elements);
+    }
+
+    @Test
+    void emitsNothingForAnEmptyArray() {
+        splitter.feed("[ ]");
+
+        assertEquals(List.of(), elements);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.common.util;
+
+import com.example.common.DTO.DailyForecastDto;
+import com.example.common.Exception.AnyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OpenWeatherParserTest {
+
+    // 2024-01-01T00:00:00Z
+    private static final long DAY_START = LocalDate.of(2024, 1, 1).toEpochDay() * 86_400;
+    private static final long HOURS_3 = 3 * 3600;
+
+    private final OpenWeatherParser parser = new OpenWeatherParser(new ObjectMapper());
+
+    @Test
+    void readsCurrentConditionsFromTheFirstStep() throws IOException {
+        OpenWeatherParser.CurrentConditions conditions = parse(forecast(0,
+                step(DAY_START, 21.5, 0.2, "Clouds"),
+                step(DAY_START + HOURS_3, 24, 0.4, "Rain")));
+
+        assertEquals("Pune", conditions.city());
+        assertEquals("IN", conditions.country());
+        assertEquals(21.5, conditions.temp());
+        assertEquals(20.5, conditions.feelsLike());
+        assertEquals(60, conditions.humidity());
+        assertEquals(1012, conditions.pressure());
+        assertEquals("Clouds", conditions.weatherMain());
+        assertEquals("clouds 21.5", conditions.description());
+        assertEquals(3.5, conditions.windSpeed());
+        assertEquals(0.2, conditions.rainProb());
+    }
+
+    @Test
+    void summarisesStepsPerLocalDay() throws IOException {
+        List<DailyForecastDto> daily = parse(forecast(0,
+                step(DAY_START, 20, 0.5, "Rain"),
+                step(DAY_START + HOURS_3, 26, 0.5, "Rain"),
+                step(DAY_START + 2 * HOURS_3, 23, 0, "Clear"),
+                step(DAY_START + 8 * HOURS_3, 18, 0, "Clear"))).daily();
+
+        assertEquals(2, daily.size());
+        DailyForecastDto first = daily.get(0);
+        assertEquals("2024-01-01", first.date());
+        assertEquals(20, first.minTemperature());
+        assertEquals(26, first.maxTemperature());
+        assertEquals(23.0, first.meanTemperature());
+        assertEquals(75, first.rainProbability());
+        assertEquals("Rain", first.dominantCondition());
+        assertEquals(3, first.steps());
+        assertEquals("2024-01-02", daily.get(1).date());
+        assertEquals(1, daily.get(1).steps());
+    }
+
+    @Test
+    void dropsStepsWithoutTemperatureOrCondition() throws IOException {
+        List<DailyForecastDto> daily = parse(forecast(0,
+                step(DAY_START, 20, 0, "Clear"),
+                "{\"dt\":" + (DAY_START + HOURS_3) + ",\"main\":{\"temp\":40}}",
+                "{\"dt\":" + (DAY_START + 2 * HOURS_3) + ",\"weather\":[{\"main\":\"Rain\"}]}",
+                step(DAY_START + 3 * HOURS_3, 22, 0, "Clear"))).daily();
+
+        assertEquals(1, daily.size());
+        assertEquals(2, daily.get(0).steps());
+        assertEquals(22, daily.get(0).maxTemperature());
+        assertEquals("Clear", daily.get(0).dominantCondition());
+    }
+
+    @Test
+    void rejectsAnIncompleteFirstStep() {
+        String body = forecast(0,
+                "{\"dt\":" + DAY_START + ",\"main\":{\"temp\":20,\"humidity\":60}}",
+                step(DAY_START + HOURS_3, 22, 0, "Clear"));
+
+        AnyException e = assertThrows(AnyException.class, () -> parse(body));
+        assertEquals(500, e.getStatusCode());
+    }
+
+    @Test
+    void rejectsAResponseWithoutCity() {
+        String body = "{\"cnt\":1,\"list\":[" + step(DAY_START, 20, 0, "Clear") + "]}";
+
+        AnyException e = assertThrows(AnyException.class, () -> parse(body));
+        assertEquals("Invalid city data", e.getMessage());
+    }
+
+    @Test
+    void readsMoreStepsThanAnnouncedOrDefault() throws IOException {
+        List<String> steps = new ArrayList<>();
+        for (int i = 0; i < 56; i++) {
+            steps.add(step(DAY_START + i * HOURS_3, 20 + i % 8, 0, "Clear"));
+        }
+        // cnt larger than the default capacity, and still smaller than the actual number of steps
+        String body = forecastWithCount(45, 0, steps.toArray(String[]::new));
+
+        List<DailyForecastDto> daily = parse(body).daily();
+
+        assertEquals(7, daily.size());
+        assertEquals(56, daily.stream().mapToInt(DailyForecastDto::steps).sum());
+        assertEquals("2024-01-07", daily.get(6).date());
+    }
+
+    @Test
+    void splitsDaysAtLocalMidnightForNegativeOffsets() throws IOException {
+        // UTC-5: 00:00Z and 03:00Z still belong to the previous local day, 06:00Z is 01:00 local
+        List<DailyForecastDto> daily = parse(forecast(-5 * 3600,
+                step(DAY_START, 10, 0, "Clear"),
+                step(DAY_START + HOURS_3, 12, 0, "Clear"),
+                step(DAY_START + 2 * HOURS_3, 14, 0, "Clear"))).daily();
+
+        assertEquals(2, daily.size());
+        assertEquals("2023-12-31", daily.get(0).date());
+        assertEquals(2, daily.get(0).steps());
+        assertEquals("2024-01-01", daily.get(1).date());
+        assertEquals(1, daily.get(1).steps());
+    }
+
+    @Test
+    void roundsLocalDaysDownBeforeTheEpoch() throws IOException {
+        List<DailyForecastDto> daily = parse(forecast(-5 * 3600, step(3600, 10, 0, "Clear"))).daily();
+
+        assertEquals("1969-12-31", daily.get(0).date());
+    }
+
+    @Test
+    void drainsTheBodyAfterTheCity() throws IOException {
+        InputStream body = stream(forecast(0, step(DAY_START, 20, 0, "Clear"))
+                .replaceFirst("}$", ",\"trailing\":[1,2,3]}"));
+
+        parser.parse(body);
+
+        assertEquals(-1, body.read());
+    }
+
+    private OpenWeatherParser.CurrentConditions parse(String body) throws IOException {
+        return parser.parse(stream(body));
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String forecastWithCount(int cnt, int utcOffsetSeconds, String... steps) {
+        return "{\"cod\":\"200\",\"cnt\":" + cnt + ",\"list\":[" + String.join(",", steps) + "],"
+                + "\"city\":{\"id\":1259229,\"name\":\"Pune\",\"coord\":{\"lat\":18.52,\"lon\":73.86},"
+                + "\"country\":\"IN\",\"timezone\":" + utcOffsetSeconds + "}}";
+    }
+
+    private static String forecast(int utcOffsetSeconds, String... steps) {
+        return forecastWithCount(steps.length, utcOffsetSeconds, steps);
+    }
+
+    private static String step(long dt, double temp, double pop, String condition) {
+        return "{\"dt\":" + dt + ",\"main\":{\"temp\":" + temp + ",\"feels_like\":" + (temp - 1)
+                + ",\"temp_min\":" + temp + ",\"temp_max\":" + temp + ",\"pressure\":1012,\"humidity\":60},"
+                + "\"weather\":[{\"id\":800,\"main\":\"" + condition + "\",\"description\":\""
+                + condition.toLowerCase() + " " + temp + "\",\"icon\":\"01d\"},{\"main\":\"Ignored\"}],"
+                + "\"wind\":{\"speed\":3.5,\"deg\":90},\"pop\":" + pop + ",\"dt_txt\":\"ignored\"}";
+    }
+}